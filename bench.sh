@@ -0,0 +1,27 @@
+#!/bin/bash
+
+echo ""
+echo "========================================"
+echo "   学生信息管理系统 - 基准测试"
+echo "========================================"
+echo ""
+
+if [ $# -lt 1 ]; then
+    echo "用法：./bench.sh <基准测试类> [参数...]"
+    echo "例如：./bench.sh dao.RowMapperBenchmark 200000 10"
+    exit 1
+fi
+
+# 检查编译输出
+if [ ! -d "out-bench" ]; then
+    echo "[ERROR] 请先运行 ./download_libs.sh 下载测试依赖，再运行 ./compile.sh 编译项目！"
+    exit 1
+fi
+
+# out-bench在前，使内存H2库的db.properties优先于resources中的配置
+CLASSPATH="out-bench:out"
+for jar in lib/*.jar lib/test/*.jar; do
+    CLASSPATH="$CLASSPATH:$jar"
+done
+
+java -Dfile.encoding=UTF-8 ${BENCH_JAVA_OPTS:--Xmx4g} -cp "$CLASSPATH" "$@"
@@ -0,0 +1,164 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * 基准测试用的内存H2库
+ * 表结构与sql/init.sql一致（枚举列改为VARCHAR），数据按固定随机种子生成，多次运行结果可比
+ */
+final class BenchDatabase {
+
+    static final int CLASS_COUNT = 50;
+
+    private static final String[] GENDERS = {"男", "女"};
+    private static final String[] STATUSES = {"在读", "在读", "在读", "休学", "毕业"};
+    static final String[] EXAM_TYPES = {"期末", "期中", "平时"};
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * 重建全部表
+     */
+    static void createSchema() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS tb_score");
+            stmt.execute("DROP TABLE IF EXISTS tb_course");
+            stmt.execute("DROP TABLE IF EXISTS tb_student");
+            stmt.execute("DROP TABLE IF EXISTS tb_class");
+            stmt.execute("CREATE TABLE tb_class (id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "class_name VARCHAR(50) NOT NULL, grade VARCHAR(20) NOT NULL, major VARCHAR(50), "
+                    + "department VARCHAR(50), create_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE tb_student (id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "student_no VARCHAR(20) NOT NULL UNIQUE, name VARCHAR(50) NOT NULL, "
+                    + "gender VARCHAR(2) DEFAULT '男', birth_date DATE, phone VARCHAR(20), email VARCHAR(50), "
+                    + "address VARCHAR(200), class_id INT, enrollment_date DATE, status VARCHAR(4) DEFAULT '在读', "
+                    + "create_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE tb_course (id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "course_no VARCHAR(20) NOT NULL UNIQUE, course_name VARCHAR(100) NOT NULL, "
+                    + "credit DECIMAL(3,1), hours INT, teacher_id INT, semester VARCHAR(20), "
+                    + "course_type VARCHAR(4) DEFAULT '必修', create_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE tb_score (id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "student_id INT NOT NULL, course_id INT NOT NULL, score DECIMAL(5,2), "
+                    + "exam_type VARCHAR(4) DEFAULT '期末', exam_date DATE, recorder_id INT, "
+                    + "create_time DATETIME DEFAULT CURRENT_TIMESTAMP, update_time DATETIME)");
+        }
+    }
+
+    /**
+     * 插入班级和学生，学生均匀分布在各班级中
+     */
+    static void insertStudents(int count) throws SQLException {
+        Random random = new Random(42);
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO tb_class (class_name, grade, major, department) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= CLASS_COUNT; i++) {
+                    pstmt.setString(1, "班级" + i);
+                    pstmt.setString(2, String.valueOf(2020 + i % 4));
+                    pstmt.setString(3, "专业" + i % 5);
+                    pstmt.setString(4, "院系" + i % 3);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO tb_student (student_no, name, gender, birth_date, phone, email, address, "
+                    + "class_id, enrollment_date, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= count; i++) {
+                    pstmt.setString(1, String.format("S%09d", i));
+                    pstmt.setString(2, "学生" + i);
+                    pstmt.setString(3, GENDERS[random.nextInt(GENDERS.length)]);
+                    pstmt.setDate(4, java.sql.Date.valueOf("2003-01-01"));
+                    pstmt.setString(5, "159" + (10000000 + random.nextInt(90000000)));
+                    pstmt.setString(6, i % 3 == 0 ? null : "s" + i + "@example.com");
+                    pstmt.setString(7, "地址" + random.nextInt(1000));
+                    pstmt.setInt(8, 1 + i % CLASS_COUNT);
+                    pstmt.setDate(9, java.sql.Date.valueOf("2021-09-01"));
+                    pstmt.setString(10, STATUSES[random.nextInt(STATUSES.length)]);
+                    pstmt.addBatch();
+                    if (i % 10000 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * 插入课程和成绩：成绩依次铺满 学生 × 课程 × 考试类型，不违反uk_student_course_type，
+     * 分数近似正态分布（均值75，标准差12），约2%未录入分数
+     * @param studentCount 已插入的学生数
+     */
+    static void insertScores(int studentCount, int courseCount, int count) throws SQLException {
+        if ((long) studentCount * courseCount * EXAM_TYPES.length < count) {
+            throw new IllegalArgumentException("成绩数超过学生×课程×考试类型的组合数");
+        }
+        Random random = new Random(7);
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO tb_course (course_no, course_name, credit, hours, semester) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= courseCount; i++) {
+                    pstmt.setString(1, "C" + i);
+                    pstmt.setString(2, "课程" + i);
+                    pstmt.setDouble(3, 1 + i % 4 * 0.5);
+                    pstmt.setInt(4, 48);
+                    pstmt.setString(5, "2023-2024-" + (1 + i % 2));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO tb_score (student_id, course_id, score, exam_type, exam_date, recorder_id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)")) {
+                java.sql.Date examDate = java.sql.Date.valueOf("2024-01-15");
+                for (int i = 0; i < count; i++) {
+                    pstmt.setInt(1, 1 + i % studentCount);
+                    pstmt.setInt(2, 1 + i / studentCount % courseCount);
+                    if (random.nextInt(50) == 0) {
+                        pstmt.setNull(3, java.sql.Types.DECIMAL);
+                    } else {
+                        double score = Math.max(0, Math.min(100, 75 + random.nextGaussian() * 12));
+                        pstmt.setDouble(3, Math.round(score * 2) / 2.0);
+                    }
+                    pstmt.setString(4, EXAM_TYPES[i / studentCount / courseCount]);
+                    pstmt.setDate(5, examDate);
+                    pstmt.setInt(6, 1);
+                    pstmt.addBatch();
+                    if ((i + 1) % 10000 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            // 唯一键在数据生成后再建，逐行维护索引会使生成慢数倍
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE tb_score ADD CONSTRAINT uk_student_course_type "
+                        + "UNIQUE (student_id, course_id, exam_type)");
+            }
+        }
+    }
+
+    /**
+     * 当前JVM已使用的堆内存，测量前先做几次GC
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,108 @@
+package dao;
+
+import entity.Student;
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 行映射基准测试：按列名读取（原mapRow写法）与按预先解析的列序号读取（createRowMapper）
+ * 两条查询：带class_name的联表查询，以及不带class_name、原写法每行都抛出并吞掉SQLException的单表查询。
+ * 项目用compile.sh直接调用javac构建，没有Maven/Gradle来运行JMH的注解处理器和打包插件，
+ * 因此不用JMH，而是先预热若干轮再计时，结果写入sink防止被JIT消除。
+ * 运行：./bench.sh dao.RowMapperBenchmark [学生数] [轮数]
+ */
+public class RowMapperBenchmark {
+
+    private static final String JOIN_SQL =
+            "SELECT s.*, c.class_name FROM tb_student s LEFT JOIN tb_class c ON s.class_id = c.id";
+
+    private static final String PLAIN_SQL = "SELECT * FROM tb_student";
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    // 防止映射结果被JIT消除
+    private static long sink;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        BenchDatabase.createSchema();
+        BenchDatabase.insertStudents(rows);
+        System.out.println("学生数：" + rows + "，测量轮数：" + rounds);
+
+        StudentDao dao = new StudentDao();
+        for (String sql : new String[] {JOIN_SQL, PLAIN_SQL}) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                run(sql, null);
+                run(sql, dao);
+            }
+            long byName = 0;
+            long byIndex = 0;
+            for (int i = 0; i < rounds; i++) {
+                byName += run(sql, null);
+                byIndex += run(sql, dao);
+            }
+            System.out.println(sql);
+            report("  按列名", byName, rows, rounds);
+            report("  按列序号", byIndex, rows, rounds);
+            System.out.printf("  提升：%.1f%%%n", 100.0 * (byName - byIndex) / byName);
+        }
+        System.out.println("(sink=" + sink + ")");
+        DBUtil.shutdown();
+    }
+
+    /**
+     * 执行一次查询并映射全部行，dao为null时按列名映射，返回耗时（纳秒）
+     */
+    private static long run(String sql, StudentDao dao) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            long start = System.nanoTime();
+            RowMapper<Student> mapper = dao != null
+                    ? dao.createRowMapper(ColumnIndex.of(rs.getMetaData()))
+                    : RowMapperBenchmark::mapByName;
+            while (rs.next()) {
+                Student student = mapper.mapRow(rs);
+                sink += student.getId() + (student.getClassName() != null ? 1 : 0);
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 按列名读取，与改为列序号之前的StudentDao.mapRow相同
+     */
+    private static Student mapByName(ResultSet rs) throws SQLException {
+        Student student = new Student();
+        student.setId(rs.getInt("id"));
+        student.setStudentNo(rs.getString("student_no"));
+        student.setName(rs.getString("name"));
+        student.setGender(rs.getString("gender"));
+        student.setBirthDate(rs.getDate("birth_date"));
+        student.setPhone(rs.getString("phone"));
+        student.setEmail(rs.getString("email"));
+        student.setAddress(rs.getString("address"));
+        student.setClassId(rs.getObject("class_id") != null ? rs.getInt("class_id") : null);
+        student.setEnrollmentDate(rs.getDate("enrollment_date"));
+        student.setStatus(rs.getString("status"));
+        student.setCreateTime(rs.getTimestamp("create_time"));
+
+        // 尝试获取关联的班级名称
+        try {
+            student.setClassName(rs.getString("class_name"));
+        } catch (SQLException ignored) {}
+
+        return student;
+    }
+
+    private static void report(String label, long nanos, int rows, int rounds) {
+        System.out.printf("%s：每轮 %.1f ms，每行 %.0f ns%n",
+                label, nanos / 1e6 / rounds, (double) nanos / rows / rounds);
+    }
+}
@@ -0,0 +1,132 @@
+package dao;
+
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 成绩列式内存存储基准测试：整体加载耗时、内存占用和各统计查询的延迟
+ * 作为参照，另测一条在数据库中按课程聚合的SQL（内存H2库，course_id上没有索引）。
+ * 运行：./bench.sh dao.ScoreColumnStoreBenchmark [成绩数] [学生数] [课程数]
+ * 默认500万条成绩、10万学生、60门课程，需要约3GB堆（BENCH_JAVA_OPTS=-Xmx6g）。
+ */
+public class ScoreColumnStoreBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    private static final String COURSE_SQL =
+            "SELECT COUNT(*), AVG(score), MAX(score), MIN(score) FROM tb_score WHERE course_id = ?";
+
+    // 防止结果被JIT消除
+    private static double sink;
+
+    public static void main(String[] args) throws SQLException {
+        int scoreCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        int studentCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int courseCount = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        long start = System.currentTimeMillis();
+        BenchDatabase.createSchema();
+        BenchDatabase.insertStudents(studentCount);
+        BenchDatabase.insertScores(studentCount, courseCount, scoreCount);
+        System.out.printf("成绩：%d，学生：%d，课程：%d，班级：%d（生成数据 %d ms）%n",
+                scoreCount, studentCount, courseCount, BenchDatabase.CLASS_COUNT,
+                System.currentTimeMillis() - start);
+
+        ScoreColumnStore store = ScoreColumnStore.getInstance();
+        store.getCourseStatistics(1, ScoreStatistics.DEFAULT_BOUNDARIES);
+        System.out.printf("整体加载：%d ms%n", store.getLastLoadMillis());
+        // 加载过程中H2也会缓存数据，用清空存储后释放的堆内存衡量存储本身的占用
+        long estimated = store.getMemoryBytes();
+        long heapLoaded = BenchDatabase.usedHeap();
+        store.clear();
+        long heapCleared = BenchDatabase.usedHeap();
+        System.out.printf("内存：估算 %.1f MB，清空后释放 %.1f MB（每行 %.1f 字节）%n",
+                estimated / 1048576.0, (heapLoaded - heapCleared) / 1048576.0,
+                (double) (heapLoaded - heapCleared) / scoreCount);
+        store.getCourseStatistics(1, ScoreStatistics.DEFAULT_BOUNDARIES);
+
+        Random random = new Random(1);
+        List<Integer> allClasses = new ArrayList<>();
+        for (int i = 1; i <= BenchDatabase.CLASS_COUNT; i++) {
+            allClasses.add(i);
+        }
+        measure("单门课程统计", () -> sink += store.getCourseStatistics(
+                1 + random.nextInt(courseCount), ScoreStatistics.DEFAULT_BOUNDARIES).getTotalCount());
+        measure("全部课程统计", () -> sink += store.getAllCourseStatistics(
+                ScoreStatistics.DEFAULT_BOUNDARIES).size());
+        measure("班级各科平均分", () -> sink += store.getClassCourseAverages(
+                1 + random.nextInt(BenchDatabase.CLASS_COUNT)).size());
+        measure("单个学生GPA", () -> sink += store.getStudentGpa(1 + random.nextInt(studentCount)));
+        measure("全部学生GPA", () -> sink += store.getStudentGpas(allClasses).size());
+        measure("参照：SQL单门课程聚合", () -> sink += courseAggregate(1 + random.nextInt(courseCount)), 20);
+
+        // 写入路径：每轮按唯一键覆盖1000条已有成绩（与导入的一块相同），随后的统计查询不应触发整体重新加载
+        ScoreDao scoreDao = new ScoreDao();
+        long loads = store.getLoadCount();
+        measure("按唯一键写入1000条成绩", () -> {
+            List<entity.Score> chunk = new ArrayList<>(1000);
+            int offset = random.nextInt(Math.max(scoreCount - 1000, 1));
+            for (int i = offset; i < offset + 1000 && i < scoreCount; i++) {
+                entity.Score score = new entity.Score(1 + i % studentCount, 1 + i / studentCount % courseCount,
+                        (double) random.nextInt(101));
+                score.setExamType(BenchDatabase.EXAM_TYPES[i / studentCount / courseCount]);
+                chunk.add(score);
+            }
+            scoreDao.upsertBatch(chunk);
+        }, 20);
+        measure("写入后的单门课程统计", () -> sink += store.getCourseStatistics(
+                1 + random.nextInt(courseCount), ScoreStatistics.DEFAULT_BOUNDARIES).getTotalCount());
+        System.out.println("写入期间整体重新加载次数：" + (store.getLoadCount() - loads));
+
+        System.out.println(store);
+        System.out.println("(sink=" + sink + ")");
+        DBUtil.shutdown();
+    }
+
+    private static double courseAggregate(int courseId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COURSE_SQL)) {
+            pstmt.setInt(1, courseId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(2);
+            }
+        }
+    }
+
+    private static void measure(String label, Operation operation) throws SQLException {
+        measure(label, operation, ROUNDS);
+    }
+
+    /**
+     * 预热后执行rounds次，输出平均值、中位数和P99延迟
+     */
+    private static void measure(String label, Operation operation, int rounds) throws SQLException {
+        for (int i = 0; i < Math.max(rounds / 4, 3); i++) {
+            operation.run();
+        }
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%s：平均 %.3f ms，中位数 %.3f ms，P99 %.3f ms%n", label,
+                Arrays.stream(nanos).average().orElse(0) / 1e6, nanos[rounds / 2] / 1e6,
+                nanos[Math.min(rounds - 1, (int) Math.ceil(rounds * 0.99) - 1)] / 1e6);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws SQLException;
+    }
+}
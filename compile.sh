@@ -17,6 +17,11 @@ SRC_DIR="src"
 OUT_DIR="out"
 LIB_DIR="lib"
 RES_DIR="resources"
+TEST_DIR="test"
+TEST_RES_DIR="test-resources"
+TEST_OUT_DIR="out-test"
+BENCH_DIR="bench"
+BENCH_OUT_DIR="out-bench"
 
 echo -e "${BLUE}[INFO]${NC} 检查Java环境..."
 if ! command -v javac &> /dev/null; then
@@ -25,16 +30,16 @@ if ! command -v javac &> /dev/null; then
 fi
 echo -e "${GREEN}[SUCCESS]${NC} $(javac -version 2>&1)"
 
-echo -e "${BLUE}[INFO]${NC} [1/4] 清理输出目录..."
+echo -e "${BLUE}[INFO]${NC} [1/5] 清理输出目录..."
 rm -rf "$OUT_DIR"
 mkdir -p "$OUT_DIR"
 
-echo -e "${BLUE}[INFO]${NC} [2/4] 收集源文件..."
+echo -e "${BLUE}[INFO]${NC} [2/5] 收集源文件..."
 find "$SRC_DIR" -name "*.java" > sources.txt
 FILE_COUNT=$(wc -l < sources.txt)
 echo -e "${BLUE}[INFO]${NC} 找到 $FILE_COUNT 个Java源文件"
 
-echo -e "${BLUE}[INFO]${NC} [3/4] 编译源代码..."
+echo -e "${BLUE}[INFO]${NC} [3/5] 编译源代码..."
 
 CLASSPATH=""
 for jar in $LIB_DIR/*.jar; do
@@ -51,7 +56,7 @@ else
     exit 1
 fi
 
-echo -e "${BLUE}[INFO]${NC} [4/4] 复制资源文件..."
+echo -e "${BLUE}[INFO]${NC} [4/5] 复制资源文件..."
 if [ -d "$RES_DIR" ]; then
     cp -r "$RES_DIR"/* "$OUT_DIR"/ 2>/dev/null || true
     echo -e "${GREEN}[SUCCESS]${NC} 资源文件已复制"
@@ -59,6 +64,45 @@ fi
 
 rm -f sources.txt
 
+# 测试和基准测试依赖lib/test下的H2与JUnit，未下载时跳过
+echo -e "${BLUE}[INFO]${NC} [5/5] 编译测试和基准测试..."
+rm -rf "$TEST_OUT_DIR" "$BENCH_OUT_DIR"
+if ls $LIB_DIR/test/*.jar &> /dev/null; then
+    TEST_CLASSPATH="$OUT_DIR:$CLASSPATH"
+    for jar in $LIB_DIR/test/*.jar; do
+        TEST_CLASSPATH="$TEST_CLASSPATH:$jar"
+    done
+    if [ -d "$TEST_DIR" ]; then
+        mkdir -p "$TEST_OUT_DIR"
+        find "$TEST_DIR" -name "*.java" > sources.txt
+        if ! javac -encoding UTF-8 -cp "$TEST_CLASSPATH" -d "$TEST_OUT_DIR" @sources.txt; then
+            echo -e "${RED}[ERROR]${NC} 测试编译失败！"
+            rm -f sources.txt
+            exit 1
+        fi
+        if [ -d "$TEST_RES_DIR" ]; then
+            cp -r "$TEST_RES_DIR"/* "$TEST_OUT_DIR"/ 2>/dev/null || true
+        fi
+    fi
+    if [ -d "$BENCH_DIR" ]; then
+        mkdir -p "$BENCH_OUT_DIR"
+        find "$BENCH_DIR" -name "*.java" > sources.txt
+        if ! javac -encoding UTF-8 -cp "$TEST_CLASSPATH" -d "$BENCH_OUT_DIR" @sources.txt; then
+            echo -e "${RED}[ERROR]${NC} 基准测试编译失败！"
+            rm -f sources.txt
+            exit 1
+        fi
+        # 基准测试连接内存H2库，与测试使用相同的配置
+        if [ -d "$TEST_RES_DIR" ]; then
+            cp -r "$TEST_RES_DIR"/* "$BENCH_OUT_DIR"/ 2>/dev/null || true
+        fi
+    fi
+    rm -f sources.txt
+    echo -e "${GREEN}[SUCCESS]${NC} 测试编译完成，运行 ./test.sh 执行测试，./bench.sh 执行基准测试"
+else
+    echo -e "${BLUE}[INFO]${NC} 未找到 $LIB_DIR/test 下的测试依赖，跳过（运行 ./download_libs.sh 下载）"
+fi
+
 CLASS_COUNT=$(find "$OUT_DIR" -name "*.class" | wc -l)
 echo ""
 echo "========================================"
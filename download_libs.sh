@@ -32,10 +32,17 @@ download_if_not_exists "https://repo1.maven.org/maven2/org/apache/xmlbeans/xmlbe
 download_if_not_exists "https://repo1.maven.org/maven2/org/apache/logging/log4j/log4j-api/2.17.1/log4j-api-2.17.1.jar"
 download_if_not_exists "https://repo1.maven.org/maven2/commons-codec/commons-codec/1.15/commons-codec-1.15.jar"
 
+# 测试依赖（仅编译运行test/和bench/时使用，不随程序打包）
+mkdir -p test
+cd test
+download_if_not_exists "https://repo1.maven.org/maven2/com/h2database/h2/2.2.224/h2-2.2.224.jar"
+download_if_not_exists "https://repo1.maven.org/maven2/org/junit/platform/junit-platform-console-standalone/1.10.2/junit-platform-console-standalone-1.10.2.jar"
+cd ..
+
 cd ..
 
 echo ""
 echo "==========================================="
 echo "  完成！"
 echo "==========================================="
-ls -lh $LIB_DIR/*.jar
+ls -lh $LIB_DIR/*.jar $LIB_DIR/test/*.jar
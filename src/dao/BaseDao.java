@@ -4,10 +4,16 @@ import util.DBUtil;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 基础数据访问类
  * 封装通用的CRUD操作
+ * 查询方法使用DBUtil.getReadConnection()，配置了只读副本时会被路由到副本
  */
 public abstract class BaseDao<T> {
     
@@ -24,7 +30,10 @@ public abstract class BaseDao<T> {
             conn = DBUtil.getConnection();
             pstmt = conn.prepareStatement(sql);
             setParameters(pstmt, params);
-            return pstmt.executeUpdate();
+            int rows = pstmt.executeUpdate();
+            DBUtil.markWrite();
+            afterWrite();
+            return rows;
         } finally {
             DBUtil.close(null, pstmt, conn);
         }
@@ -42,6 +51,8 @@ public abstract class BaseDao<T> {
             pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             setParameters(pstmt, params);
             pstmt.executeUpdate();
+            DBUtil.markWrite();
+            afterWrite();
             
             rs = pstmt.getGeneratedKeys();
             if (rs.next()) {
@@ -53,6 +64,95 @@ public abstract class BaseDao<T> {
         }
     }
     
+    /**
+     * 批量执行更新（含INSERT ... ON DUPLICATE KEY UPDATE），使用默认分批大小，不取回生成的主键
+     * @param rows 每个元素是一行的参数
+     */
+    protected BatchResult executeBatch(String sql, List<Object[]> rows) throws SQLException {
+        return executeBatch(sql, rows, DBUtil.getBatchSize());
+    }
+    
+    /**
+     * 批量执行更新，不取回生成的主键
+     * 按唯一键插入或更新时MySQL对更新的行不返回主键或多返回一个，无法与行一一对应
+     * @param chunkSize 每次发送到服务器的行数
+     */
+    protected BatchResult executeBatch(String sql, List<Object[]> rows, int chunkSize) throws SQLException {
+        return executeBatch(sql, rows, chunkSize, false);
+    }
+    
+    /**
+     * 批量插入，使用默认分批大小，按行的顺序取回生成的主键
+     * @param rows 每个元素是一行的参数
+     */
+    protected BatchResult executeInsertBatch(String sql, List<Object[]> rows) throws SQLException {
+        return executeInsertBatch(sql, rows, DBUtil.getBatchSize());
+    }
+    
+    /**
+     * 批量插入，按行的顺序取回生成的主键
+     * @param chunkSize 每次发送到服务器的行数
+     */
+    protected BatchResult executeInsertBatch(String sql, List<Object[]> rows, int chunkSize) throws SQLException {
+        return executeBatch(sql, rows, chunkSize, true);
+    }
+    
+    /**
+     * 批量执行更新/插入
+     * 每chunkSize行发送一次，所有分批在同一事务中执行（已在事务中时加入当前事务）。
+     * 配合rewriteBatchedStatements，驱动会把一批INSERT改写为一条多值INSERT。
+     * @param rows 每个元素是一行的参数
+     * @param chunkSize 每次发送到服务器的行数
+     * @param returnKeys 是否取回生成的主键（仅用于纯INSERT语句）
+     * @return 每行的影响行数和生成的主键
+     */
+    private BatchResult executeBatch(String sql, List<Object[]> rows, int chunkSize, boolean returnKeys)
+            throws SQLException {
+        BatchResult result = new BatchResult(rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+        int batchSize = chunkSize > 0 ? chunkSize : rows.size();
+        
+        DBUtil.inTransaction(() -> {
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            try {
+                conn = DBUtil.getConnection();
+                pstmt = returnKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                        : conn.prepareStatement(sql);
+                for (int start = 0; start < rows.size(); start += batchSize) {
+                    int end = Math.min(start + batchSize, rows.size());
+                    for (int i = start; i < end; i++) {
+                        setParameters(pstmt, rows.get(i));
+                        pstmt.addBatch();
+                    }
+                    result.addUpdateCounts(pstmt.executeBatch());
+                    if (!returnKeys) {
+                        continue;
+                    }
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            result.addGeneratedKey(keys.getInt(1));
+                        }
+                    }
+                }
+                return null;
+            } finally {
+                DBUtil.close(null, pstmt, conn);
+            }
+        });
+        afterWrite();
+        return result;
+    }
+    
+    /**
+     * 写操作（executeUpdate/executeInsert/executeBatch）成功后调用
+     * 子类覆盖此方法使相关缓存失效
+     */
+    protected void afterWrite() {
+    }
+    
     /**
      * 查询单个对象
      */
@@ -70,12 +170,13 @@ public abstract class BaseDao<T> {
         ResultSet rs = null;
         List<T> list = new ArrayList<>();
         try {
-            conn = DBUtil.getConnection();
+            conn = DBUtil.getReadConnection();
             pstmt = conn.prepareStatement(sql);
             setParameters(pstmt, params);
             rs = pstmt.executeQuery();
+            RowMapper<T> mapper = createRowMapper(ColumnIndex.of(rs.getMetaData()));
             while (rs.next()) {
-                T entity = mapRow(rs);
+                T entity = mapper.mapRow(rs);
                 if (entity != null) {
                     list.add(entity);
                 }
@@ -86,6 +187,82 @@ public abstract class BaseDao<T> {
         }
     }
     
+    /**
+     * 逐行处理查询结果（游标读取，不把结果集整体加载到内存）
+     * @param callback 每映射出一行调用一次
+     * @return 处理的行数
+     */
+    protected int forEachRow(String sql, RowCallback<T> callback, Object... params) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        int count = 0;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(DBUtil.getFetchSize());
+            setParameters(pstmt, params);
+            rs = pstmt.executeQuery();
+            RowMapper<T> mapper = createRowMapper(ColumnIndex.of(rs.getMetaData()));
+            while (rs.next()) {
+                T entity = mapper.mapRow(rs);
+                if (entity != null) {
+                    callback.processRow(entity);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            DBUtil.close(rs, pstmt, conn);
+        }
+    }
+    
+    /**
+     * 以Stream形式游标读取查询结果
+     * 返回的Stream持有数据库连接，必须关闭（建议使用try-with-resources）
+     */
+    protected Stream<T> queryStream(String sql, Object... params) throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        RowMapper<T> mapper;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(DBUtil.getFetchSize());
+            setParameters(pstmt, params);
+            rs = pstmt.executeQuery();
+            mapper = createRowMapper(ColumnIndex.of(rs.getMetaData()));
+        } catch (SQLException | RuntimeException e) {
+            DBUtil.close(rs, pstmt, conn);
+            throw e;
+        }
+        
+        final Connection streamConn = conn;
+        final PreparedStatement streamStmt = pstmt;
+        final ResultSet streamRs = rs;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    while (streamRs.next()) {
+                        T entity = mapper.mapRow(streamRs);
+                        if (entity != null) {
+                            action.accept(entity);
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (SQLException e) {
+                    throw new RuntimeException("读取查询结果失败：" + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> DBUtil.close(streamRs, streamStmt, streamConn));
+    }
+    
     /**
      * 查询单个值
      */
@@ -94,7 +271,7 @@ public abstract class BaseDao<T> {
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            conn = DBUtil.getConnection();
+            conn = DBUtil.getReadConnection();
             pstmt = conn.prepareStatement(sql);
             setParameters(pstmt, params);
             rs = pstmt.executeQuery();
@@ -123,7 +300,7 @@ public abstract class BaseDao<T> {
     /**
      * 设置PreparedStatement参数
      */
-    private void setParameters(PreparedStatement pstmt, Object... params) throws SQLException {
+    protected void setParameters(PreparedStatement pstmt, Object... params) throws SQLException {
         if (params != null) {
             for (int i = 0; i < params.length; i++) {
                 pstmt.setObject(i + 1, params[i]);
@@ -132,8 +309,105 @@ public abstract class BaseDao<T> {
     }
     
     /**
-     * 将ResultSet的一行映射为实体对象
-     * 子类必须实现此方法
+     * 根据结果集的列位置表创建行映射器，每个结果集只调用一次
+     * 子类必须实现此方法：先解析出各列序号，再返回按序号读取的映射器，
+     * 查询中不存在的列（序号为0）应跳过
      */
-    protected abstract T mapRow(ResultSet rs) throws SQLException;
+    protected abstract RowMapper<T> createRowMapper(ColumnIndex columns) throws SQLException;
+    
+    /**
+     * 读取可为空的整数列，列不存在或值为NULL时返回null
+     */
+    protected static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        if (index == 0) return null;
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+    
+    /**
+     * 读取可为空的浮点列，列不存在或值为NULL时返回null
+     */
+    protected static Double getDouble(ResultSet rs, int index) throws SQLException {
+        if (index == 0) return null;
+        double value = rs.getDouble(index);
+        return rs.wasNull() ? null : value;
+    }
+    
+    /**
+     * 读取字符串列，列不存在时返回null
+     */
+    protected static String getString(ResultSet rs, int index) throws SQLException {
+        return index == 0 ? null : rs.getString(index);
+    }
+    
+    /**
+     * 读取日期列，列不存在时返回null
+     */
+    protected static java.util.Date getDate(ResultSet rs, int index) throws SQLException {
+        return index == 0 ? null : rs.getDate(index);
+    }
+    
+    /**
+     * 读取时间戳列，列不存在时返回null
+     */
+    protected static java.util.Date getTimestamp(ResultSet rs, int index) throws SQLException {
+        return index == 0 ? null : rs.getTimestamp(index);
+    }
+    
+    /**
+     * 批量执行结果
+     */
+    public static class BatchResult {
+        private final int[] updateCounts;
+        private final List<Integer> generatedKeys = new ArrayList<>();
+        private int position = 0;
+        
+        BatchResult(int rowCount) {
+            this.updateCounts = new int[rowCount];
+        }
+        
+        void addUpdateCounts(int[] counts) {
+            System.arraycopy(counts, 0, updateCounts, position, counts.length);
+            position += counts.length;
+        }
+        
+        void addGeneratedKey(int key) {
+            generatedKeys.add(key);
+        }
+        
+        /**
+         * 每行的影响行数，驱动改写批量语句时可能为Statement.SUCCESS_NO_INFO
+         */
+        public int[] getUpdateCounts() {
+            return updateCounts;
+        }
+        
+        /**
+         * 生成的主键，按行的顺序排列（仅executeInsertBatch，其他批量执行时为空）
+         */
+        public List<Integer> getGeneratedKeys() {
+            return generatedKeys;
+        }
+        
+        /**
+         * 执行成功的行数
+         */
+        public int getSuccessCount() {
+            int count = 0;
+            for (int c : updateCounts) {
+                if (c > 0 || c == Statement.SUCCESS_NO_INFO) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * 逐行处理回调
+     */
+    @FunctionalInterface
+    public interface RowCallback<T> {
+        void processRow(T row) throws SQLException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package dao;
+
+import util.DBUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 各班级学生人数
+ * 用一次按class_id分组的聚合查询加载到内存，班级列表直接从这里取人数，
+ * 不再对每个班级执行相关子查询。学生或班级发生写操作后（事务中则在事务提交后）失效，
+ * 下次使用时重新加载；另外每隔一段时间重新核对一次，纠正绕过DAO的修改。
+ */
+class ClassStudentCounter {
+
+    // 定期核对的间隔
+    private static final long RECONCILE_MILLIS = 5 * 60 * 1000;
+
+    private static final String COUNT_SQL =
+            "SELECT class_id, COUNT(*) FROM tb_student WHERE class_id IS NOT NULL GROUP BY class_id";
+
+    private static final ClassStudentCounter instance = new ClassStudentCounter();
+
+    private Map<Integer, Integer> counts;
+    private long loadedAt;
+    private long version;
+
+    private ClassStudentCounter() {
+    }
+
+    static ClassStudentCounter getInstance() {
+        return instance;
+    }
+
+    /**
+     * 获取班级学生人数
+     */
+    int getCount(Integer classId) throws SQLException {
+        if (classId == null) {
+            return 0;
+        }
+        return snapshot().getOrDefault(classId, 0);
+    }
+
+    /**
+     * 获取全部班级的学生人数
+     */
+    Map<Integer, Integer> snapshot() throws SQLException {
+        long loadVersion;
+        synchronized (this) {
+            if (counts != null && System.currentTimeMillis() - loadedAt < RECONCILE_MILLIS) {
+                return counts;
+            }
+            loadVersion = version;
+        }
+        Map<Integer, Integer> loaded = DBUtil.withPrimary(ClassStudentCounter::load);
+        // 事务中读到的可能是未提交的数据，回滚时不会失效，不放入缓存
+        if (DBUtil.isInTransaction()) {
+            return loaded;
+        }
+        synchronized (this) {
+            // 加载期间发生了写操作时不放入缓存，下次重新加载
+            if (version == loadVersion) {
+                counts = loaded;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 学生或班级数据发生变化
+     */
+    static void changed() {
+        DBUtil.afterTransaction(instance::invalidate);
+    }
+
+    private synchronized void invalidate() {
+        version++;
+        counts = null;
+    }
+
+    private static Map<Integer, Integer> load() throws SQLException {
+        Map<Integer, Integer> result = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement(COUNT_SQL);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                result.put(rs.getInt(1), rs.getInt(2));
+            }
+        } finally {
+            DBUtil.close(rs, pstmt, conn);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
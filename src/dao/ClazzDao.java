@@ -3,6 +3,7 @@ package dao;
 import entity.Clazz;
 import java.sql.*;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 班级数据访问类
@@ -10,39 +11,59 @@ import java.util.List;
 public class ClazzDao extends BaseDao<Clazz> {
     
     @Override
-    protected Clazz mapRow(ResultSet rs) throws SQLException {
-        Clazz clazz = new Clazz();
-        clazz.setId(rs.getInt("id"));
-        clazz.setClassName(rs.getString("class_name"));
-        clazz.setGrade(rs.getString("grade"));
-        clazz.setMajor(rs.getString("major"));
-        clazz.setDepartment(rs.getString("department"));
-        clazz.setCreateTime(rs.getTimestamp("create_time"));
-        
-        // 尝试获取学生数量
-        try {
-            clazz.setStudentCount(rs.getInt("student_count"));
-        } catch (SQLException ignored) {}
+    protected void afterWrite() {
+        // 使基础数据缓存失效；删除班级会清空学生的班级，人数一并失效
+        ReferenceDataCache.classesChanged();
+        ClassStudentCounter.changed();
+        // 缓存的学生带有班级名称，班级改名或删除后一并清空
+        StudentCache.getInstance().changed();
+        StudentDao.classesChanged();
+        ScoreDao.relatedDataChanged();
+        ScoreColumnStore.getInstance().dimensionsChanged();
+    }
+    
+    @Override
+    protected RowMapper<Clazz> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int className = columns.indexOf("class_name");
+        final int grade = columns.indexOf("grade");
+        final int major = columns.indexOf("major");
+        final int department = columns.indexOf("department");
+        final int createTime = columns.indexOf("create_time");
+        // 学生数量（列表查询中由ClassStudentCounter填充）
+        final int studentCount = columns.indexOf("student_count");
         
-        return clazz;
+        return rs -> {
+            Clazz clazz = new Clazz();
+            clazz.setId(getInteger(rs, id));
+            clazz.setClassName(getString(rs, className));
+            clazz.setGrade(getString(rs, grade));
+            clazz.setMajor(getString(rs, major));
+            clazz.setDepartment(getString(rs, department));
+            clazz.setCreateTime(getTimestamp(rs, createTime));
+            clazz.setStudentCount(getInteger(rs, studentCount));
+            return clazz;
+        };
     }
     
     /**
      * 查询所有班级
      */
     public List<Clazz> findAll() throws SQLException {
-        String sql = "SELECT c.*, (SELECT COUNT(*) FROM tb_student s WHERE s.class_id = c.id) AS student_count " +
-                     "FROM tb_class c ORDER BY c.grade DESC, c.class_name";
-        return queryList(sql);
+        String sql = "SELECT * FROM tb_class ORDER BY grade DESC, class_name";
+        return withStudentCounts(queryList(sql));
     }
     
     /**
      * 根据ID查询班级
      */
     public Clazz findById(Integer id) throws SQLException {
-        String sql = "SELECT c.*, (SELECT COUNT(*) FROM tb_student s WHERE s.class_id = c.id) AS student_count " +
-                     "FROM tb_class c WHERE c.id = ?";
-        return queryOne(sql, id);
+        String sql = "SELECT * FROM tb_class WHERE id = ?";
+        Clazz clazz = queryOne(sql, id);
+        if (clazz != null) {
+            clazz.setStudentCount(ClassStudentCounter.getInstance().getCount(clazz.getId()));
+        }
+        return clazz;
     }
     
     /**
@@ -57,18 +78,30 @@ public class ClazzDao extends BaseDao<Clazz> {
      * 按年级查询班级
      */
     public List<Clazz> findByGrade(String grade) throws SQLException {
-        String sql = "SELECT c.*, (SELECT COUNT(*) FROM tb_student s WHERE s.class_id = c.id) AS student_count " +
-                     "FROM tb_class c WHERE c.grade = ? ORDER BY c.class_name";
-        return queryList(sql, grade);
+        String sql = "SELECT * FROM tb_class WHERE grade = ? ORDER BY class_name";
+        return withStudentCounts(queryList(sql, grade));
     }
     
     /**
      * 按院系查询班级
      */
     public List<Clazz> findByDepartment(String department) throws SQLException {
-        String sql = "SELECT c.*, (SELECT COUNT(*) FROM tb_student s WHERE s.class_id = c.id) AS student_count " +
-                     "FROM tb_class c WHERE c.department = ? ORDER BY c.grade DESC, c.class_name";
-        return queryList(sql, department);
+        String sql = "SELECT * FROM tb_class WHERE department = ? ORDER BY grade DESC, class_name";
+        return withStudentCounts(queryList(sql, department));
+    }
+    
+    /**
+     * 从ClassStudentCounter填充学生人数，代替每行一次的COUNT子查询
+     */
+    private List<Clazz> withStudentCounts(List<Clazz> classes) throws SQLException {
+        if (classes.isEmpty()) {
+            return classes;
+        }
+        Map<Integer, Integer> counts = ClassStudentCounter.getInstance().snapshot();
+        for (Clazz clazz : classes) {
+            clazz.setStudentCount(counts.getOrDefault(clazz.getId(), 0));
+        }
+        return classes;
     }
     
     /**
@@ -0,0 +1,41 @@
+package dao;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 结果集列位置表
+ * 从ResultSetMetaData一次性读取列标签到列序号的对应关系，
+ * 查询中不存在的列返回0，行映射时据此跳过可选的关联字段。
+ */
+public class ColumnIndex {
+    
+    private final Map<String, Integer> indexes;
+    
+    private ColumnIndex(Map<String, Integer> indexes) {
+        this.indexes = indexes;
+    }
+    
+    /**
+     * 根据结果集元数据建立列位置表，列标签重复时保留第一个（与ResultSet.findColumn一致）
+     */
+    public static ColumnIndex of(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        Map<String, Integer> indexes = new HashMap<>(count * 2);
+        for (int i = 1; i <= count; i++) {
+            indexes.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        return new ColumnIndex(indexes);
+    }
+    
+    /**
+     * 获取列序号（从1开始），列不存在时返回0
+     */
+    public int indexOf(String label) {
+        Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+        return index != null ? index : 0;
+    }
+}
@@ -10,25 +10,51 @@ import java.util.List;
  */
 public class CourseDao extends BaseDao<Course> {
     
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_course (course_no, course_name, credit, hours, teacher_id, " +
+            "semester, course_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String UPDATE_SQL =
+            "UPDATE tb_course SET course_no = ?, course_name = ?, credit = ?, hours = ?, " +
+            "teacher_id = ?, semester = ?, course_type = ? WHERE id = ?";
+    
     @Override
-    protected Course mapRow(ResultSet rs) throws SQLException {
-        Course course = new Course();
-        course.setId(rs.getInt("id"));
-        course.setCourseNo(rs.getString("course_no"));
-        course.setCourseName(rs.getString("course_name"));
-        course.setCredit(rs.getObject("credit") != null ? rs.getDouble("credit") : null);
-        course.setHours(rs.getObject("hours") != null ? rs.getInt("hours") : null);
-        course.setTeacherId(rs.getObject("teacher_id") != null ? rs.getInt("teacher_id") : null);
-        course.setSemester(rs.getString("semester"));
-        course.setCourseType(rs.getString("course_type"));
-        course.setCreateTime(rs.getTimestamp("create_time"));
-        
-        // 尝试获取教师姓名
-        try {
-            course.setTeacherName(rs.getString("teacher_name"));
-        } catch (SQLException ignored) {}
+    protected void afterWrite() {
+        // 使基础数据缓存失效
+        ReferenceDataCache.coursesChanged();
+        // 成绩查询结果中带有课程和教师名称
+        ScoreDao.relatedDataChanged();
+        ScoreColumnStore.getInstance().dimensionsChanged();
+    }
+    
+    @Override
+    protected RowMapper<Course> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int courseNo = columns.indexOf("course_no");
+        final int courseName = columns.indexOf("course_name");
+        final int credit = columns.indexOf("credit");
+        final int hours = columns.indexOf("hours");
+        final int teacherId = columns.indexOf("teacher_id");
+        final int semester = columns.indexOf("semester");
+        final int courseType = columns.indexOf("course_type");
+        final int createTime = columns.indexOf("create_time");
+        // 教师姓名（仅联表查询中存在）
+        final int teacherName = columns.indexOf("teacher_name");
         
-        return course;
+        return rs -> {
+            Course course = new Course();
+            course.setId(getInteger(rs, id));
+            course.setCourseNo(getString(rs, courseNo));
+            course.setCourseName(getString(rs, courseName));
+            course.setCredit(getDouble(rs, credit));
+            course.setHours(getInteger(rs, hours));
+            course.setTeacherId(getInteger(rs, teacherId));
+            course.setSemester(getString(rs, semester));
+            course.setCourseType(getString(rs, courseType));
+            course.setCreateTime(getTimestamp(rs, createTime));
+            course.setTeacherName(getString(rs, teacherName));
+            return course;
+        };
     }
     
     /**
@@ -112,21 +138,56 @@ public class CourseDao extends BaseDao<Course> {
      * 添加课程
      */
     public int insert(Course course) throws SQLException {
-        String sql = "INSERT INTO tb_course (course_no, course_name, credit, hours, teacher_id, " +
-                     "semester, course_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        return executeInsert(sql, course.getCourseNo(), course.getCourseName(), course.getCredit(),
-                course.getHours(), course.getTeacherId(), course.getSemester(), course.getCourseType());
+        return executeInsert(INSERT_SQL, insertParams(course));
+    }
+    
+    /**
+     * 批量添加课程，生成的ID会回填到每个课程对象
+     * @return 插入的行数
+     */
+    public int insertBatch(List<Course> courses) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            rows.add(insertParams(course));
+        }
+        BatchResult result = executeInsertBatch(INSERT_SQL, rows);
+        List<Integer> keys = result.getGeneratedKeys();
+        if (keys.size() == courses.size()) {
+            for (int i = 0; i < courses.size(); i++) {
+                courses.get(i).setId(keys.get(i));
+            }
+        }
+        return result.getSuccessCount();
     }
     
     /**
      * 更新课程
      */
     public int update(Course course) throws SQLException {
-        String sql = "UPDATE tb_course SET course_no = ?, course_name = ?, credit = ?, hours = ?, " +
-                     "teacher_id = ?, semester = ?, course_type = ? WHERE id = ?";
-        return executeUpdate(sql, course.getCourseNo(), course.getCourseName(), course.getCredit(),
-                course.getHours(), course.getTeacherId(), course.getSemester(), 
-                course.getCourseType(), course.getId());
+        return executeUpdate(UPDATE_SQL, updateParams(course));
+    }
+    
+    /**
+     * 批量更新课程
+     * @return 更新成功的行数
+     */
+    public int updateBatch(List<Course> courses) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            rows.add(updateParams(course));
+        }
+        return executeBatch(UPDATE_SQL, rows).getSuccessCount();
+    }
+    
+    private Object[] insertParams(Course course) {
+        return new Object[]{course.getCourseNo(), course.getCourseName(), course.getCredit(),
+                course.getHours(), course.getTeacherId(), course.getSemester(), course.getCourseType()};
+    }
+    
+    private Object[] updateParams(Course course) {
+        return new Object[]{course.getCourseNo(), course.getCourseName(), course.getCredit(),
+                course.getHours(), course.getTeacherId(), course.getSemester(),
+                course.getCourseType(), course.getId()};
     }
     
     /**
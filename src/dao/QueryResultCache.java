@@ -0,0 +1,162 @@
+package dao;
+
+import util.DBUtil;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 查询结果缓存
+ * 以规范化的查询条件为键缓存多条件查询的结果，条数（db.cache.query.maxEntries，默认200）
+ * 和存活时间（db.cache.query.ttlSeconds，默认60秒）都有上限，超出条数时淘汰最久未使用的结果。
+ * 每条结果带有一个范围（如查询限定的课程、学生），写操作按范围只失效可能受影响的结果。
+ * 缓存的结果是共享实例，由DAO在返回前复制。
+ * @param <S> 范围类型
+ */
+public class QueryResultCache<S> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<Object, CachedResult<S>> entries;
+
+    // 任一失效时递增，加载期间版本变化的结果不放入缓存
+    private long version;
+    private long hits;
+    private long misses;
+
+    QueryResultCache(String name) {
+        this(name, DBUtil.getConfigInt("db.cache.query.maxEntries", 200),
+                DBUtil.getConfigInt("db.cache.query.ttlSeconds", 60) * 1000L);
+    }
+
+    QueryResultCache(String name, int maxEntries, long ttlMillis) {
+        this.name = name;
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Object, CachedResult<S>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult<S>> eldest) {
+                return size() > QueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的结果，未命中或已过期时通过loader查询并放入缓存
+     * loader按普通读操作路由（可能读副本），本进程刚写入、副本可能尚未同步时结果不放入缓存
+     * @param key 规范化的查询条件，需实现equals和hashCode
+     * @param scope 结果的范围，失效时据此判断是否受影响
+     */
+    @SuppressWarnings("unchecked")
+    <V> V get(Object key, S scope, Loader<V> loader) throws SQLException {
+        long loadVersion;
+        synchronized (this) {
+            CachedResult<S> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return (V) entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            loadVersion = version;
+        }
+        V loaded = loader.load();
+        // 事务中读到的可能是未提交的数据，不放入缓存
+        if (maxEntries > 0 && !DBUtil.isInTransaction() && !DBUtil.isReplicaCatchingUp()) {
+            synchronized (this) {
+                if (version == loadVersion) {
+                    entries.put(key, new CachedResult<>(loaded, scope, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 使范围满足条件的结果失效（事务中则在事务提交后再失效一次，防止期间被重新加载）
+     */
+    void invalidate(Predicate<S> affected) {
+        remove(affected);
+        DBUtil.afterTransaction(() -> remove(affected));
+    }
+
+    /**
+     * 使全部结果失效（事务中则在事务提交后再失效一次）
+     */
+    void invalidateAll() {
+        clear();
+        DBUtil.afterTransaction(this::clear);
+    }
+
+    private synchronized void remove(Predicate<S> affected) {
+        version++;
+        Iterator<CachedResult<S>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (affected.test(it.next().scope)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * 当前缓存的结果数（含已过期未清理的）
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * 命中率（百分比）
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits * 100.0 / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryResultCache[%s]{size=%d/%d, ttl=%ds, hits=%d, misses=%d, hitRate=%.1f%%}",
+                name, entries.size(), maxEntries, ttlMillis / 1000, hits, misses, getHitRate());
+    }
+
+    private static class CachedResult<S> {
+        final Object value;
+        final S scope;
+        final long expiresAt;
+
+        CachedResult(Object value, S scope, long expiresAt) {
+            this.value = value;
+            this.scope = scope;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 未命中时的查询
+     */
+    @FunctionalInterface
+    interface Loader<V> {
+        V load() throws SQLException;
+    }
+}
@@ -0,0 +1,196 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个范围内的排名，创建后不再改变
+ * 按值从高到低排列在基本类型数组中，值相同时按学生ID排列，名次、密集名次和百分位在创建时一次算出，
+ * 另有按学生ID排序的索引用于二分查找某个学生的名次。
+ * 值以定点整数保存（成绩为0.01分，GPA为百万分之一），避免浮点误差把相同的值排出不同名次。
+ */
+public class Ranking {
+
+    private final int scale;
+    private final int[] studentIds;    // 按名次排列
+    private final int[] values;
+    private final int[] ranks;         // 并列时名次相同，之后的名次跳过（1, 2, 2, 4）
+    private final int[] denseRanks;    // 并列时名次相同，之后的名次连续（1, 2, 2, 3）
+    private final int[] belowCounts;   // 值严格低于该学生的人数
+    private final int[] sortedIds;     // 学生ID升序
+    private final int[] positions;     // sortedIds对应的位置
+
+    private Ranking(int scale, int[] studentIds, int[] values) {
+        int size = studentIds.length;
+        this.scale = scale;
+        this.studentIds = studentIds;
+        this.values = values;
+        this.ranks = new int[size];
+        this.denseRanks = new int[size];
+        this.belowCounts = new int[size];
+        int dense = 0;
+        for (int start = 0, end; start < size; start = end) {
+            end = start + 1;
+            while (end < size && values[end] == values[start]) {
+                end++;
+            }
+            dense++;
+            for (int i = start; i < end; i++) {
+                ranks[i] = start + 1;
+                denseRanks[i] = dense;
+                belowCounts[i] = size - end;
+            }
+        }
+
+        long[] index = new long[size];
+        for (int i = 0; i < size; i++) {
+            index[i] = (long) studentIds[i] << 32 | i;
+        }
+        Arrays.sort(index);
+        this.sortedIds = new int[size];
+        this.positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = (int) (index[i] >>> 32);
+            positions[i] = (int) index[i];
+        }
+    }
+
+    /**
+     * 由学生ID和对应的值（前count个）创建排名
+     * @param scale 定点倍数，值乘以它后取整比较
+     */
+    static Ranking of(int[] studentIds, double[] values, int count, int scale) {
+        // 高32位为取反的值、低32位为学生ID，一次基本类型排序得到值降序、ID升序
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int fixed = (int) Math.round(values[i] * scale);
+            keys[i] = (long) (Integer.MAX_VALUE - fixed) << 32 | studentIds[i];
+        }
+        Arrays.sort(keys);
+        int[] sortedStudentIds = new int[count];
+        int[] sortedValues = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedStudentIds[i] = (int) keys[i];
+            sortedValues[i] = Integer.MAX_VALUE - (int) (keys[i] >>> 32);
+        }
+        return new Ranking(scale, sortedStudentIds, sortedValues);
+    }
+
+    /**
+     * 参与排名的人数
+     */
+    public int size() {
+        return studentIds.length;
+    }
+
+    /**
+     * 学生在排名中的位置（从0开始），不在排名中时返回-1
+     */
+    public int indexOf(int studentId) {
+        int i = Arrays.binarySearch(sortedIds, studentId);
+        return i >= 0 ? positions[i] : -1;
+    }
+
+    /**
+     * 学生的名次，不在排名中时返回null
+     */
+    public Entry find(int studentId) {
+        int position = indexOf(studentId);
+        return position >= 0 ? get(position) : null;
+    }
+
+    /**
+     * 第position个（从0开始）的名次
+     */
+    public Entry get(int position) {
+        double percentile = belowCounts[position] * 100.0 / studentIds.length;
+        return new Entry(studentIds[position], (double) values[position] / scale,
+                ranks[position], denseRanks[position], percentile);
+    }
+
+    /**
+     * 前n名，按名次排列
+     */
+    public List<Entry> top(int n) {
+        List<Entry> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, studentIds.length); i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 后n名，从最后一名往前排列
+     */
+    public List<Entry> bottom(int n) {
+        List<Entry> result = new ArrayList<>();
+        for (int i = studentIds.length - 1; i >= Math.max(studentIds.length - n, 0); i--) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 全部名次，按名次排列
+     */
+    public List<Entry> getEntries() {
+        return top(studentIds.length);
+    }
+
+    @Override
+    public String toString() {
+        return "Ranking{size=" + studentIds.length + "}";
+    }
+
+    /**
+     * 一个学生的名次
+     */
+    public static class Entry {
+        private final int studentId;
+        private final double value;
+        private final int rank;
+        private final int denseRank;
+        private final double percentile;
+
+        Entry(int studentId, double value, int rank, int denseRank, double percentile) {
+            this.studentId = studentId;
+            this.value = value;
+            this.rank = rank;
+            this.denseRank = denseRank;
+            this.percentile = percentile;
+        }
+
+        public int getStudentId() {
+            return studentId;
+        }
+
+        /**
+         * 参与排名的成绩或GPA
+         */
+        public double getValue() {
+            return value;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public int getDenseRank() {
+            return denseRank;
+        }
+
+        /**
+         * 百分位：值严格低于该学生的人数占参与排名人数的百分比
+         */
+        public double getPercentile() {
+            return percentile;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{studentId=" + studentId + ", value=" + value + ", rank=" + rank
+                    + ", denseRank=" + denseRank + ", percentile=" + String.format("%.1f", percentile) + "}";
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package dao;
+
+import entity.Score;
+import util.DBUtil;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 排名缓存
+ * 每个范围的排名在第一次查询时计算并缓存，条数（db.cache.ranking.maxEntries，默认100）
+ * 和存活时间（db.cache.ranking.ttlSeconds，缺省与db.cache.query.ttlSeconds相同）都有上限，
+ * 超出条数时淘汰最久未使用的，过期的排名下次查询时重新计算，纠正其他客户端直接写库造成的偏差。
+ * 写入成绩时只失效受影响的范围：成绩排名看课程，GPA排名看其中是否有该学生；
+ * 学生、班级、课程变化（换班、学分修改等）时全部失效。
+ */
+public class RankingCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<RankingScope, CachedRanking> entries;
+
+    // 任一失效时递增，计算期间版本变化的排名不放入缓存
+    private long version;
+    private long hits;
+    private long misses;
+
+    RankingCache() {
+        this(DBUtil.getConfigInt("db.cache.ranking.maxEntries", 100),
+                DBUtil.getConfigInt("db.cache.ranking.ttlSeconds",
+                        DBUtil.getConfigInt("db.cache.query.ttlSeconds", 60)) * 1000L);
+    }
+
+    RankingCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<RankingScope, CachedRanking>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RankingScope, CachedRanking> eldest) {
+                return size() > RankingCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的排名，未命中或已过期时通过loader从主库计算并放入缓存
+     */
+    Ranking get(RankingScope scope, QueryResultCache.Loader<Ranking> loader) throws SQLException {
+        long loadVersion;
+        synchronized (this) {
+            CachedRanking entry = entries.get(scope);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return entry.ranking;
+            }
+            if (entry != null) {
+                entries.remove(scope);
+            }
+            misses++;
+            loadVersion = version;
+        }
+        Ranking loaded = DBUtil.withPrimary(loader::load);
+        // 事务中读到的可能是未提交的数据，不放入缓存
+        if (maxEntries > 0 && !DBUtil.isInTransaction()) {
+            synchronized (this) {
+                if (version == loadVersion) {
+                    entries.put(scope, new CachedRanking(loaded, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 使包含这些成绩的排名失效（事务中则在事务提交后再失效一次，防止期间被重新计算）
+     */
+    void scoresChanged(Collection<Score> scores) {
+        Set<Integer> courseIds = new HashSet<>();
+        Set<Integer> studentIds = new HashSet<>();
+        for (Score score : scores) {
+            courseIds.add(score.getCourseId());
+            studentIds.add(score.getStudentId());
+        }
+        remove(courseIds, studentIds);
+        DBUtil.afterTransaction(() -> remove(courseIds, studentIds));
+    }
+
+    /**
+     * 使全部排名失效（事务中则在事务提交后再失效一次）
+     */
+    void invalidateAll() {
+        clear();
+        DBUtil.afterTransaction(this::clear);
+    }
+
+    private synchronized void remove(Set<Integer> courseIds, Set<Integer> studentIds) {
+        version++;
+        Iterator<Map.Entry<RankingScope, CachedRanking>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<RankingScope, CachedRanking> entry = it.next();
+            if (affected(entry.getKey(), entry.getValue().ranking, courseIds, studentIds)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean affected(RankingScope scope, Ranking ranking,
+                                    Set<Integer> courseIds, Set<Integer> studentIds) {
+        if (!scope.isGpa()) {
+            return courseIds.contains(scope.getCourseId());
+        }
+        for (Integer studentId : studentIds) {
+            if (studentId == null || ranking.indexOf(studentId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * 当前缓存的排名数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RankingCache{size=%d/%d, ttl=%ds, hits=%d, misses=%d}",
+                entries.size(), maxEntries, ttlMillis / 1000, hits, misses);
+    }
+
+    private static class CachedRanking {
+        final Ranking ranking;
+        final long expiresAt;
+
+        CachedRanking(Ranking ranking, long expiresAt) {
+            this.ranking = ranking;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
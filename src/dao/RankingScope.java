@@ -0,0 +1,109 @@
+package dao;
+
+import java.util.Objects;
+
+/**
+ * 排名的范围（分区）
+ * 按某课程某考试类型的成绩，或按GPA排名；参与排名的学生可限定为某班级或某年级，都不限定时为全部学生。
+ * 成绩排名的考试类型必须是具体的一种：同一学生各考试类型的成绩不在同一排名中比较，没有“全部考试类型”的范围。
+ * 用作排名缓存的键，写入成绩时只失效受影响的范围。
+ */
+public final class RankingScope {
+
+    private final Integer courseId;    // 为null表示按GPA排名
+    private final String examType;
+    private final Integer classId;
+    private final String grade;
+
+    private RankingScope(Integer courseId, String examType, Integer classId, String grade) {
+        this.courseId = courseId;
+        this.examType = examType;
+        this.classId = classId;
+        this.grade = grade;
+    }
+
+    /**
+     * 全部学生在某课程某考试类型中的成绩排名
+     */
+    public static RankingScope course(Integer courseId, String examType) {
+        return new RankingScope(Objects.requireNonNull(courseId), Objects.requireNonNull(examType), null, null);
+    }
+
+    /**
+     * 某班级学生在某课程某考试类型中的成绩排名
+     */
+    public static RankingScope courseInClass(Integer courseId, String examType, Integer classId) {
+        return new RankingScope(Objects.requireNonNull(courseId), Objects.requireNonNull(examType),
+                Objects.requireNonNull(classId), null);
+    }
+
+    /**
+     * 某年级学生在某课程某考试类型中的成绩排名
+     */
+    public static RankingScope courseInGrade(Integer courseId, String examType, String grade) {
+        return new RankingScope(Objects.requireNonNull(courseId), Objects.requireNonNull(examType),
+                null, Objects.requireNonNull(grade));
+    }
+
+    /**
+     * 全部有班级的学生的GPA排名
+     */
+    public static RankingScope gpa() {
+        return new RankingScope(null, null, null, null);
+    }
+
+    /**
+     * 某班级学生的GPA排名
+     */
+    public static RankingScope gpaInClass(Integer classId) {
+        return new RankingScope(null, null, Objects.requireNonNull(classId), null);
+    }
+
+    /**
+     * 某年级学生的GPA排名
+     */
+    public static RankingScope gpaInGrade(String grade) {
+        return new RankingScope(null, null, null, Objects.requireNonNull(grade));
+    }
+
+    public boolean isGpa() {
+        return courseId == null;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public String getExamType() {
+        return examType;
+    }
+
+    public Integer getClassId() {
+        return classId;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RankingScope)) return false;
+        RankingScope that = (RankingScope) o;
+        return Objects.equals(courseId, that.courseId) && Objects.equals(examType, that.examType)
+                && Objects.equals(classId, that.classId) && Objects.equals(grade, that.grade);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courseId, examType, classId, grade);
+    }
+
+    @Override
+    public String toString() {
+        return "RankingScope{" + (isGpa() ? "gpa" : "course=" + courseId + "/" + examType)
+                + (classId != null ? ", class=" + classId : "")
+                + (grade != null ? ", grade=" + grade : "") + "}";
+    }
+}
@@ -0,0 +1,218 @@
+package dao;
+
+import entity.Clazz;
+import entity.Course;
+import entity.Teacher;
+import util.DBUtil;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 基础数据缓存
+ * 班级、课程、教师三张表数据量小、变化少，却被各面板的下拉框反复查询。
+ * 这里在进程内各保存一份快照，首次使用时从主库加载，之后直接从内存返回；
+ * 对应DAO的增删改（事务中则在事务提交后）使快照失效，下次使用时重新加载。
+ * 返回的列表不可修改，其中的对象为共享实例，调用方不要修改。
+ */
+public class ReferenceDataCache {
+
+    private static final ReferenceDataCache instance = new ReferenceDataCache();
+
+    // 任一表失效时递增，调用方可据此判断数据是否变化
+    private final AtomicLong version = new AtomicLong();
+
+    private final TableCache<Clazz> classes = new TableCache<>(() -> new ClazzDao().findAll(), Clazz::getId);
+    private final TableCache<Course> courses = new TableCache<>(() -> new CourseDao().findAll(), Course::getId);
+    private final TableCache<Teacher> teachers = new TableCache<>(() -> new TeacherDao().findAll(), Teacher::getId);
+
+    private ReferenceDataCache() {
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * 所有班级，顺序同ClazzDao.findAll
+     */
+    public List<Clazz> getClasses() throws SQLException {
+        return classes.get().rows;
+    }
+
+    /**
+     * 根据ID获取班级，不存在时返回null
+     */
+    public Clazz getClassById(Integer id) throws SQLException {
+        return id == null ? null : classes.get().byId.get(id);
+    }
+
+    /**
+     * 所有年级，从高到低
+     */
+    public List<String> getGrades() throws SQLException {
+        TreeSet<String> grades = new TreeSet<>(Collections.reverseOrder());
+        for (Clazz clazz : getClasses()) {
+            if (clazz.getGrade() != null) {
+                grades.add(clazz.getGrade());
+            }
+        }
+        return new ArrayList<>(grades);
+    }
+
+    /**
+     * 所有课程（带教师姓名），顺序同CourseDao.findAll
+     */
+    public List<Course> getCourses() throws SQLException {
+        return courses.get().rows;
+    }
+
+    /**
+     * 根据ID获取课程，不存在时返回null
+     */
+    public Course getCourseById(Integer id) throws SQLException {
+        return id == null ? null : courses.get().byId.get(id);
+    }
+
+    /**
+     * 指定教师教授的课程
+     */
+    public List<Course> getCoursesByTeacherId(Integer teacherId) throws SQLException {
+        List<Course> result = new ArrayList<>();
+        for (Course course : getCourses()) {
+            if (teacherId != null && teacherId.equals(course.getTeacherId())) {
+                result.add(course);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有教师，顺序同TeacherDao.findAll
+     */
+    public List<Teacher> getTeachers() throws SQLException {
+        return teachers.get().rows;
+    }
+
+    /**
+     * 根据ID获取教师，不存在时返回null
+     */
+    public Teacher getTeacherById(Integer id) throws SQLException {
+        return id == null ? null : teachers.get().byId.get(id);
+    }
+
+    /**
+     * 当前版本号
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        classes.invalidate();
+        courses.invalidate();
+        teachers.invalidate();
+        version.incrementAndGet();
+    }
+
+    /**
+     * 班级数据变化（班级增删改，或学生增删改导致人数变化）
+     */
+    static void classesChanged() {
+        DBUtil.afterTransaction(() -> {
+            instance.classes.invalidate();
+            instance.version.incrementAndGet();
+        });
+    }
+
+    /**
+     * 课程数据变化
+     */
+    static void coursesChanged() {
+        DBUtil.afterTransaction(() -> {
+            instance.courses.invalidate();
+            instance.version.incrementAndGet();
+        });
+    }
+
+    /**
+     * 教师数据变化，课程中带有教师姓名，一并失效
+     */
+    static void teachersChanged() {
+        DBUtil.afterTransaction(() -> {
+            instance.teachers.invalidate();
+            instance.courses.invalidate();
+            instance.version.incrementAndGet();
+        });
+    }
+
+    /**
+     * 单表缓存
+     * 加载前记下版本号，加载完成时版本未变才放入缓存，避免并发失效时缓存旧数据；事务中加载的不放入缓存
+     */
+    private static class TableCache<T> {
+        private final Loader<T> loader;
+        private final Function<T, Integer> idOf;
+        private final AtomicLong version = new AtomicLong();
+        private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<>();
+
+        TableCache(Loader<T> loader, Function<T, Integer> idOf) {
+            this.loader = loader;
+            this.idOf = idOf;
+        }
+
+        Snapshot<T> get() throws SQLException {
+            Snapshot<T> current = snapshot.get();
+            if (current != null) {
+                return current;
+            }
+            long loadVersion = version.get();
+            // 从主库加载，避免把副本上复制延迟前的旧数据放进缓存
+            Snapshot<T> loaded = new Snapshot<>(DBUtil.withPrimary(loader::load), idOf);
+            // 事务中读到的可能是未提交的数据，回滚时不会失效，不放入缓存
+            if (DBUtil.isInTransaction()) {
+                return loaded;
+            }
+            if (version.get() == loadVersion && snapshot.compareAndSet(null, loaded)
+                    && version.get() != loadVersion) {
+                // 放入缓存的同时发生了失效
+                snapshot.compareAndSet(loaded, null);
+            }
+            return loaded;
+        }
+
+        void invalidate() {
+            version.incrementAndGet();
+            snapshot.set(null);
+        }
+    }
+
+    private static class Snapshot<T> {
+        final List<T> rows;
+        final Map<Integer, T> byId;
+
+        Snapshot(List<T> rows, Function<T, Integer> idOf) {
+            this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+            Map<Integer, T> map = new HashMap<>(rows.size() * 2);
+            for (T row : rows) {
+                map.put(idOf.apply(row), row);
+            }
+            this.byId = map;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Loader<T> {
+        List<T> load() throws SQLException;
+    }
+}
@@ -0,0 +1,17 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 行映射器
+ * 由BaseDao针对每个结果集创建一次，列位置已预先解析，映射每一行时不再按列名查找
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    
+    /**
+     * 将ResultSet的当前行映射为实体对象
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,895 @@
+package dao;
+
+import entity.Score;
+import util.DBUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 成绩列式内存存储
+ * 把tb_score按列加载为基本类型数组：学生、课程字典编码，分数以0.01分为单位存为int，
+ * 只保留统计用到的列。每门课程维护一个0.01分精度的分数直方图（0-100分之外的分数，
+ * 如其他客户端写入的旧数据，单独按值计数，统计结果仍与SQL一致），
+ * 每个班级×课程维护分数和与人数，每个学生维护绩点×学分之和与学分之和，
+ * 课程统计、分段人数、班级各科平均分和学生GPA都由这些聚合直接算出，不访问数据库。
+ * 首次查询时从主库加载（db.analytics.columnStore为0时不启用）。ScoreDao的写操作（包括批量插入、
+ * 批量更新和按唯一键插入或更新）按行增量更新：事务外立即应用，事务中先记在事务上，提交后一次应用；
+ * 只有无法逐行跟踪的修改才使存储过期，下次查询时重新加载。学生、班级、课程变化时
+ * 重新读取学生所属班级和课程学分，并剔除被级联删除的成绩。
+ * 其他客户端直接写库的修改跟踪不到，加载超过db.analytics.reloadSeconds（默认300秒，0表示不定期加载）后
+ * 下次查询时整体重新加载一次，学生GPA的累计值也随之核对。
+ */
+public class ScoreColumnStore {
+
+    private static final ScoreColumnStore instance = new ScoreColumnStore();
+
+    private static final boolean enabled = DBUtil.getConfigInt("db.analytics.columnStore", 1) != 0;
+
+    // 分数以0.01分为单位，直方图覆盖0-10000；tb_score.score为DECIMAL(5,2)，库中的值不超过±99999
+    private static final int SCALE = 100;
+    private static final int MAX_SCORE = 100 * SCALE;
+    private static final int SCORE_LIMIT = 1000 * SCALE;
+    private static final int PASS_SCORE = (int) Math.round(ScoreStatistics.PASS_SCORE * SCALE);
+    private static final int NULL_SCORE = Integer.MIN_VALUE;
+    // 课程未设置学分
+    private static final int NO_CREDIT = -1;
+
+    // 各分数（0.01分单位）对应的绩点×10，由Score.getGradePoint生成，保证与其完全一致
+    private static final byte[] GRADE_POINTS = new byte[MAX_SCORE + 1];
+
+    static {
+        Score probe = new Score();
+        for (int value = 0; value <= MAX_SCORE; value++) {
+            probe.setScore((double) value / SCALE);
+            GRADE_POINTS[value] = (byte) Math.round(probe.getGradePoint() * 10);
+        }
+    }
+
+    // 已删除行的学生编码，压缩时移除
+    private static final int DELETED = -1;
+    // 学生没有班级
+    private static final int NO_CLASS = -1;
+    // 重新读取维度时已不存在的学生
+    private static final int MISSING = -2;
+
+    private static final String SELECT_SCORES =
+            "SELECT id, student_id, course_id, score FROM tb_score ORDER BY id";
+
+    // 行，按成绩ID递增排列
+    private int size;
+    private int deletedCount;
+    private int[] ids;
+    private int[] studentCodes;
+    private short[] courseCodes;
+    private int[] scores;
+
+    // 维度
+    private IntDictionary students;
+    private IntDictionary courses;
+    private IntDictionary classes;
+    private int[] classOfStudent;
+    // 课程编码 → 学分×10
+    private int[] courseCredits;
+
+    // 聚合：课程编码 → 分数直方图（未录入分数的单独计数）；班级编码 × 课程数 + 课程编码 → 分数和、人数
+    private int[][] courseHistograms;
+    private int[] courseNullCounts;
+    // 课程编码 → 0-100分之外的分数 → 人数，只有存在这样的成绩的课程才有
+    private Map<Integer, TreeMap<Integer, Integer>> courseOutliers;
+    private int aggregateCourses;
+    private int aggregateClasses;
+    private long[] classCourseSums;
+    private int[] classCourseCounts;
+    // 学生编码 → 绩点×10 × 学分×10 之和、学分×10 之和（只计已录入分数且课程有学分的成绩）
+    private int aggregateStudents;
+    private long[] studentPoints;
+    private long[] studentCredits;
+
+    private boolean loaded;
+    private boolean stale;
+    private boolean dimensionsStale;
+    private boolean aggregatesStale;
+
+    private long loadCount;
+    private long lastLoadMillis;
+    private long loadedAt;
+
+    // 定期整体重新加载的间隔，0表示不定期加载
+    private final long reloadMillis;
+
+    private ScoreColumnStore() {
+        this(DBUtil.getConfigInt("db.analytics.reloadSeconds", 300) * 1000L);
+    }
+
+    ScoreColumnStore(long reloadMillis) {
+        this.reloadMillis = reloadMillis;
+    }
+
+    public static ScoreColumnStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * 是否启用列式存储（db.analytics.columnStore，默认启用）
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 课程成绩统计，语义与ScoreDao的统计SQL一致：记录数含未录入分数的，分段区间左闭右开
+     * @param boundaries 分段边界，严格递增
+     */
+    public synchronized ScoreStatistics getCourseStatistics(Integer courseId, double[] boundaries) throws SQLException {
+        ScoreStatistics.checkBoundaries(boundaries);
+        ensureReady();
+        ScoreStatistics stats = statistics(courses.codeOf(courseId), thresholds(boundaries), boundaries);
+        stats.setCourseId(courseId);
+        return stats;
+    }
+
+    /**
+     * 所有有成绩记录的课程的统计
+     * @return 课程ID到统计结果的映射，按课程ID排序
+     */
+    public synchronized Map<Integer, ScoreStatistics> getAllCourseStatistics(double[] boundaries) throws SQLException {
+        ScoreStatistics.checkBoundaries(boundaries);
+        ensureReady();
+        int[] thresholds = thresholds(boundaries);
+        Map<Integer, ScoreStatistics> result = new LinkedHashMap<>();
+        for (int code : courses.codesSortedById()) {
+            ScoreStatistics stats = statistics(code, thresholds, boundaries);
+            if (stats.getTotalCount() > 0) {
+                stats.setCourseId(courses.idOf(code));
+                result.put(stats.getCourseId(), stats);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 班级各科平均分（只计已录入分数的成绩）
+     * @return 课程ID到平均分的映射，按课程ID排序
+     */
+    public synchronized Map<Integer, Double> getClassCourseAverages(Integer classId) throws SQLException {
+        ensureReady();
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        int classCode = classes.codeOf(classId);
+        if (classCode < 0 || classCode >= aggregateClasses) {
+            return result;
+        }
+        for (int code : courses.codesSortedById()) {
+            if (code >= aggregateCourses) {
+                continue;
+            }
+            int index = classCode * aggregateCourses + code;
+            if (classCourseCounts[index] > 0) {
+                result.put(courses.idOf(code), (double) classCourseSums[index] / classCourseCounts[index] / SCALE);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 学生的GPA：Σ(绩点×学分) / Σ学分，计入所有已录入分数且课程有学分的成绩，没有时为0
+     */
+    public synchronized double getStudentGpa(Integer studentId) throws SQLException {
+        ensureReady();
+        return gpa(students.codeOf(studentId));
+    }
+
+    /**
+     * 一次得出若干班级全部学生的GPA，没有成绩的学生为0
+     * @return 学生ID到GPA的映射，按学生ID排序
+     */
+    public synchronized Map<Integer, Double> getStudentGpas(Collection<Integer> classIds) throws SQLException {
+        ensureReady();
+        boolean[] selected = new boolean[classes.size()];
+        for (Integer classId : classIds) {
+            int classCode = classes.codeOf(classId);
+            if (classCode >= 0) {
+                selected[classCode] = true;
+            }
+        }
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int code : students.codesSortedById()) {
+            int classCode = classOfStudent[code];
+            if (classCode >= 0 && selected[classCode]) {
+                result.put(students.idOf(code), gpa(code));
+            }
+        }
+        return result;
+    }
+
+    private double gpa(int studentCode) {
+        if (studentCode < 0 || studentCode >= aggregateStudents || studentCredits[studentCode] == 0) {
+            return 0.0;
+        }
+        return studentPoints[studentCode] / 100.0 / (studentCredits[studentCode] / 10.0);
+    }
+
+    private ScoreStatistics statistics(int courseCode, int[] thresholds, double[] boundaries) {
+        boolean present = courseCode >= 0 && courseCode < aggregateCourses;
+        int[] histogram = present ? courseHistograms[courseCode] : null;
+        int nullCount = present ? courseNullCounts[courseCode] : 0;
+        TreeMap<Integer, Integer> outliers = present ? courseOutliers.get(courseCode) : null;
+        // 按分数递增的顺序累计：低于0分的、直方图、高于100分的
+        Accumulator acc = new Accumulator(thresholds);
+        if (outliers != null) {
+            for (Map.Entry<Integer, Integer> entry : outliers.headMap(0).entrySet()) {
+                acc.add(entry.getKey(), entry.getValue());
+            }
+        }
+        if (histogram != null) {
+            for (int value = 0; value <= MAX_SCORE; value++) {
+                if (histogram[value] != 0) {
+                    acc.add(value, histogram[value]);
+                }
+            }
+        }
+        if (outliers != null) {
+            for (Map.Entry<Integer, Integer> entry : outliers.tailMap(MAX_SCORE, false).entrySet()) {
+                acc.add(entry.getKey(), entry.getValue());
+            }
+        }
+
+        ScoreStatistics stats = new ScoreStatistics();
+        stats.setTotalCount((int) acc.count + nullCount);
+        stats.setScoredCount((int) acc.count);
+        if (acc.count > 0) {
+            double mean = (double) acc.sum / acc.count;
+            stats.setAverageScore(mean / SCALE);
+            stats.setMaxScore((double) acc.max / SCALE);
+            stats.setMinScore((double) acc.min / SCALE);
+            stats.setStdDev(Math.sqrt(Math.max(acc.sumOfSquares / acc.count - mean * mean, 0)) / SCALE);
+        }
+        stats.setPassCount(acc.passCount);
+        stats.setBoundaries(boundaries.clone());
+        stats.setBucketCounts(acc.buckets);
+        return stats;
+    }
+
+    /**
+     * 分段边界换算为0.01分单位的下限：分数≥边界即分数单位值≥向上取整后的边界
+     */
+    private static int[] thresholds(double[] boundaries) {
+        int[] thresholds = new int[boundaries.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            double scaled = Math.ceil(boundaries[i] * SCALE - 1e-9);
+            thresholds[i] = (int) Math.max(Math.min(scaled, SCORE_LIMIT + 1), -SCORE_LIMIT);
+        }
+        return thresholds;
+    }
+
+    /**
+     * 新增了一条成绩
+     */
+    void inserted(Integer id, Score score) {
+        if (id == null || id < 0) {
+            changed();
+            return;
+        }
+        record(Collections.singletonList(new RowChange(id, score, false)));
+    }
+
+    /**
+     * 新增或覆盖了一批成绩（ID已回填，如批量插入、按唯一键插入或更新后读回的行），按ID插入或替换
+     */
+    void saved(Collection<Score> scores) {
+        List<RowChange> changes = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            if (score.getId() == null) {
+                changed();
+                return;
+            }
+            changes.add(new RowChange(score.getId(), score, false));
+        }
+        record(changes);
+    }
+
+    /**
+     * 更新了一条成绩
+     */
+    void updated(Score score) {
+        if (score.getId() == null) {
+            changed();
+            return;
+        }
+        record(Collections.singletonList(new RowChange(score.getId(), score, true)));
+    }
+
+    /**
+     * 删除了一条成绩
+     */
+    void deleted(Integer id) {
+        if (id == null) {
+            return;
+        }
+        record(Collections.singletonList(new RowChange(id)));
+    }
+
+    /**
+     * 记录行的修改：事务外立即应用；事务中先记在事务上，提交后一次应用，回滚时随事务丢弃
+     */
+    private void record(List<RowChange> changes) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+        List<RowChange> pending = DBUtil.getTransactionResource(this, () -> {
+            List<RowChange> list = new ArrayList<>();
+            DBUtil.afterTransaction(() -> apply(list));
+            return list;
+        });
+        if (pending != null) {
+            pending.addAll(changes);
+        } else {
+            apply(changes);
+        }
+    }
+
+    /**
+     * 应用已提交的修改。修改按ID写入行的最终状态，可以重复应用：
+     * 加载时已读到的行再次写入不改变结果，已不存在的行再次删除被忽略
+     */
+    private synchronized void apply(List<RowChange> changes) {
+        if (!loaded || stale) {
+            return;
+        }
+        for (RowChange change : changes) {
+            int row = Arrays.binarySearch(ids, 0, size, change.id);
+            boolean live = row >= 0 && studentCodes[row] != DELETED;
+            if (change.deleted) {
+                if (live) {
+                    aggregate(row, -1);
+                    studentCodes[row] = DELETED;
+                    deletedCount++;
+                }
+                continue;
+            }
+            if (live) {
+                aggregate(row, -1);
+            } else if (change.mustExist) {
+                // 要更新的行不在存储中（可能已被其他客户端删除），整体重新加载
+                stale = true;
+                return;
+            } else if (row >= 0) {
+                deletedCount--;
+            } else {
+                row = insertRow(-row - 1, change.id);
+            }
+            studentCodes[row] = encodeStudent(change.studentId);
+            courseCodes[row] = encodeCourse(change.courseId);
+            scores[row] = change.score;
+            aggregate(row, 1);
+        }
+    }
+
+    /**
+     * 无法逐行跟踪的修改，下次查询时重新加载（事务中则在事务提交后再标记一次）
+     */
+    void changed() {
+        markStale();
+        DBUtil.afterTransaction(this::markStale);
+    }
+
+    /**
+     * 学生、班级或课程变化，下次查询时重新读取学生所属班级并剔除被级联删除的成绩
+     */
+    void dimensionsChanged() {
+        markDimensionsStale();
+        DBUtil.afterTransaction(this::markDimensionsStale);
+    }
+
+    private synchronized void markStale() {
+        stale = true;
+    }
+
+    private synchronized void markDimensionsStale() {
+        dimensionsStale = true;
+    }
+
+    /**
+     * 清空存储，下次查询时重新加载
+     */
+    public synchronized void clear() {
+        loaded = false;
+        ids = null;
+        studentCodes = null;
+        courseCodes = null;
+        scores = null;
+        courseHistograms = null;
+        courseOutliers = null;
+        classCourseSums = null;
+        classCourseCounts = null;
+        studentPoints = null;
+        studentCredits = null;
+        size = 0;
+    }
+
+    private void ensureReady() throws SQLException {
+        if (!loaded || stale || reloadMillis > 0 && System.currentTimeMillis() - loadedAt >= reloadMillis) {
+            load();
+            return;
+        }
+        if (dimensionsStale) {
+            refreshDimensions();
+        }
+        if (aggregatesStale || deletedCount > size / 4) {
+            rebuildAggregates();
+        }
+    }
+
+    /**
+     * 从主库整体加载：先读学生所属班级和课程学分，再游标读取全部成绩
+     */
+    private void load() throws SQLException {
+        long start = System.currentTimeMillis();
+        clear();
+        stale = false;
+        students = new IntDictionary();
+        courses = new IntDictionary();
+        classes = new IntDictionary();
+        classOfStudent = new int[16];
+        courseCredits = new int[16];
+        ids = new int[1024];
+        studentCodes = new int[1024];
+        courseCodes = new short[1024];
+        scores = new int[1024];
+        deletedCount = 0;
+
+        DBUtil.withPrimary(() -> {
+            loadDimensions();
+            loadScores();
+            return null;
+        });
+        rebuildAggregates();
+        loaded = true;
+        loadCount++;
+        loadedAt = System.currentTimeMillis();
+        lastLoadMillis = loadedAt - start;
+    }
+
+    private void loadScores() throws SQLException {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement(SELECT_SCORES);
+            pstmt.setFetchSize(DBUtil.getFetchSize());
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                double score = rs.getDouble(4);
+                int scoreValue = rs.wasNull() ? NULL_SCORE : encodeScore(score);
+                append(rs.getInt(1), rs.getInt(2), rs.getInt(3), scoreValue);
+            }
+        } finally {
+            DBUtil.close(rs, pstmt, conn);
+        }
+    }
+
+    /**
+     * 读取全部学生所属的班级，原有学生中已不存在的标记为MISSING
+     */
+    private void loadStudentClasses() throws SQLException {
+        Arrays.fill(classOfStudent, 0, students.size(), MISSING);
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement("SELECT id, class_id FROM tb_student");
+            pstmt.setFetchSize(DBUtil.getFetchSize());
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                int studentCode = encodeStudent(rs.getInt(1));
+                int classId = rs.getInt(2);
+                classOfStudent[studentCode] = rs.wasNull() ? NO_CLASS : classes.encode(classId);
+            }
+        } finally {
+            DBUtil.close(rs, pstmt, conn);
+        }
+    }
+
+    /**
+     * 读取全部课程的学分
+     * @return 现有课程的ID
+     */
+    private Set<Integer> loadCourseCredits() throws SQLException {
+        Set<Integer> courseIds = new HashSet<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement("SELECT id, credit FROM tb_course");
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                int courseCode = encodeCourse(rs.getInt(1));
+                double credit = rs.getDouble(2);
+                courseCredits[courseCode] = rs.wasNull() ? NO_CREDIT : (int) Math.round(credit * 10);
+                courseIds.add(rs.getInt(1));
+            }
+        } finally {
+            DBUtil.close(rs, pstmt, conn);
+        }
+        return courseIds;
+    }
+
+    /**
+     * 读取学生所属班级和课程学分
+     * @return 现有课程的ID
+     */
+    private Set<Integer> loadDimensions() throws SQLException {
+        loadStudentClasses();
+        Set<Integer> courseIds = loadCourseCredits();
+        dimensionsStale = false;
+        return courseIds;
+    }
+
+    /**
+     * 重新读取学生所属班级和课程学分，删除已不存在的学生或课程的成绩（外键级联删除），然后重建聚合
+     */
+    private void refreshDimensions() throws SQLException {
+        Set<Integer> courseIds = DBUtil.withPrimary(this::loadDimensions);
+        boolean[] courseExists = new boolean[courses.size()];
+        for (int code = 0; code < courseExists.length; code++) {
+            courseExists[code] = courseIds.contains(courses.idOf(code));
+        }
+        for (int row = 0; row < size; row++) {
+            int studentCode = studentCodes[row];
+            if (studentCode != DELETED
+                    && (classOfStudent[studentCode] == MISSING || !courseExists[courseCodes[row]])) {
+                studentCodes[row] = DELETED;
+                deletedCount++;
+            }
+        }
+        rebuildAggregates();
+    }
+
+    /**
+     * 移除已删除的行，按当前维度重建全部聚合
+     */
+    private void rebuildAggregates() {
+        compact();
+        aggregateCourses = courses.size();
+        aggregateClasses = classes.size();
+        courseHistograms = new int[aggregateCourses][];
+        courseNullCounts = new int[aggregateCourses];
+        courseOutliers = new HashMap<>();
+        classCourseSums = new long[aggregateClasses * aggregateCourses];
+        classCourseCounts = new int[aggregateClasses * aggregateCourses];
+        aggregateStudents = students.size();
+        studentPoints = new long[aggregateStudents];
+        studentCredits = new long[aggregateStudents];
+        aggregatesStale = false;
+        for (int row = 0; row < size; row++) {
+            aggregate(row, 1);
+        }
+    }
+
+    /**
+     * 把一行计入（delta=1）或移出（delta=-1）聚合，涉及聚合建立后新出现的课程或班级时改为下次查询前重建
+     */
+    private void aggregate(int row, int delta) {
+        if (aggregatesStale) {
+            return;
+        }
+        int studentCode = studentCodes[row];
+        int courseCode = courseCodes[row];
+        int classCode = classOfStudent[studentCode];
+        if (courseCode >= aggregateCourses || classCode >= aggregateClasses || studentCode >= aggregateStudents) {
+            aggregatesStale = true;
+            return;
+        }
+        int score = scores[row];
+        if (score == NULL_SCORE) {
+            courseNullCounts[courseCode] += delta;
+            return;
+        }
+        if (score >= 0 && score <= MAX_SCORE) {
+            int[] histogram = courseHistograms[courseCode];
+            if (histogram == null) {
+                histogram = new int[MAX_SCORE + 1];
+                courseHistograms[courseCode] = histogram;
+            }
+            histogram[score] += delta;
+        } else {
+            TreeMap<Integer, Integer> outliers = courseOutliers.computeIfAbsent(courseCode, code -> new TreeMap<>());
+            if (outliers.merge(score, delta, Integer::sum) == 0) {
+                outliers.remove(score);
+            }
+        }
+        if (classCode >= 0) {
+            int index = classCode * aggregateCourses + courseCode;
+            classCourseSums[index] += (long) delta * score;
+            classCourseCounts[index] += delta;
+        }
+        int credit = courseCredits[courseCode];
+        if (credit != NO_CREDIT) {
+            // 低于0分的绩点为0，高于100分的与100分相同
+            int gradePoint = GRADE_POINTS[Math.max(Math.min(score, MAX_SCORE), 0)];
+            studentPoints[studentCode] += (long) delta * gradePoint * credit;
+            studentCredits[studentCode] += (long) delta * credit;
+        }
+    }
+
+    private void compact() {
+        if (deletedCount == 0) {
+            return;
+        }
+        int live = 0;
+        for (int row = 0; row < size; row++) {
+            if (studentCodes[row] == DELETED) {
+                continue;
+            }
+            ids[live] = ids[row];
+            studentCodes[live] = studentCodes[row];
+            courseCodes[live] = courseCodes[row];
+            scores[live] = scores[row];
+            live++;
+        }
+        size = live;
+        deletedCount = 0;
+    }
+
+    private void append(int id, Integer studentId, Integer courseId, int score) {
+        ensureCapacity();
+        ids[size] = id;
+        studentCodes[size] = encodeStudent(studentId);
+        courseCodes[size] = encodeCourse(courseId);
+        scores[size] = score;
+        size++;
+    }
+
+    /**
+     * 在指定位置插入一个空行，保持ID递增；其他事务先提交了较大的ID时才需要移动后面的行
+     * @return 插入的行
+     */
+    private int insertRow(int row, int id) {
+        ensureCapacity();
+        if (row < size) {
+            int moved = size - row;
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(studentCodes, row, studentCodes, row + 1, moved);
+            System.arraycopy(courseCodes, row, courseCodes, row + 1, moved);
+            System.arraycopy(scores, row, scores, row + 1, moved);
+        }
+        ids[row] = id;
+        size++;
+        return row;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            studentCodes = Arrays.copyOf(studentCodes, capacity);
+            courseCodes = Arrays.copyOf(courseCodes, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+    }
+
+    /**
+     * 学生编码；新出现的学生所属班级未知，下次查询前重新读取
+     */
+    private int encodeStudent(int studentId) {
+        int before = students.size();
+        int code = students.encode(studentId);
+        if (students.size() > before) {
+            if (code >= classOfStudent.length) {
+                classOfStudent = Arrays.copyOf(classOfStudent, Math.max(code + 1, classOfStudent.length * 2));
+            }
+            classOfStudent[code] = NO_CLASS;
+            dimensionsStale = true;
+        }
+        return code;
+    }
+
+    /**
+     * 课程编码；新出现的课程学分未知，下次查询前重新读取
+     */
+    private short encodeCourse(int courseId) {
+        int before = courses.size();
+        int code = courses.encode(courseId);
+        if (code > Short.MAX_VALUE) {
+            throw new IllegalStateException("课程数超出列式存储的上限");
+        }
+        if (courses.size() > before) {
+            if (code >= courseCredits.length) {
+                courseCredits = Arrays.copyOf(courseCredits, Math.max(code + 1, courseCredits.length * 2));
+            }
+            courseCredits[code] = NO_CREDIT;
+            dimensionsStale = true;
+        }
+        return (short) code;
+    }
+
+    private static int encodeScore(Double score) {
+        if (score == null) {
+            return NULL_SCORE;
+        }
+        return (int) Math.max(Math.min(Math.round(score * SCALE), SCORE_LIMIT), -SCORE_LIMIT);
+    }
+
+    /**
+     * 当前的成绩行数（不含已删除未压缩的）
+     */
+    public synchronized int size() {
+        return size - deletedCount;
+    }
+
+    /**
+     * 列数组、聚合和维度字典占用的内存估算（字节）
+     */
+    public synchronized long getMemoryBytes() {
+        if (!loaded) {
+            return 0;
+        }
+        // 每行：ID、学生编码、分数各4字节，课程编码2字节
+        long bytes = (long) ids.length * (4 + 4 + 2 + 4);
+        bytes += (long) classOfStudent.length * 4 + (long) courseCredits.length * 4;
+        for (int[] histogram : courseHistograms) {
+            if (histogram != null) {
+                bytes += (long) histogram.length * 4;
+            }
+        }
+        bytes += (long) courseNullCounts.length * 4 + (long) classCourseSums.length * 8 + (long) classCourseCounts.length * 4;
+        bytes += (long) studentPoints.length * 8 + (long) studentCredits.length * 8;
+        bytes += students.estimateBytes() + courses.estimateBytes() + classes.estimateBytes();
+        return bytes;
+    }
+
+    public synchronized long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * 最近一次整体加载的耗时（毫秒）
+     */
+    public synchronized long getLastLoadMillis() {
+        return lastLoadMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ScoreColumnStore{rows=%d, students=%d, courses=%d, classes=%d, memory=%.1fMB, loads=%d, lastLoad=%dms}",
+                size(), loaded ? students.size() : 0, loaded ? courses.size() : 0, loaded ? classes.size() : 0,
+                getMemoryBytes() / 1024.0 / 1024.0, loadCount, lastLoadMillis);
+    }
+
+    /**
+     * 一行的修改：写入ID对应行的学生、课程和分数，或删除该行
+     */
+    private static final class RowChange {
+        final int id;
+        final boolean deleted;
+        // 更新时要求行已存在
+        final boolean mustExist;
+        final int studentId;
+        final int courseId;
+        final int score;
+
+        RowChange(int id, Score score, boolean mustExist) {
+            this.id = id;
+            this.deleted = false;
+            this.mustExist = mustExist;
+            this.studentId = score.getStudentId();
+            this.courseId = score.getCourseId();
+            this.score = encodeScore(score.getScore());
+        }
+
+        RowChange(int id) {
+            this.id = id;
+            this.deleted = true;
+            this.mustExist = false;
+            this.studentId = 0;
+            this.courseId = 0;
+            this.score = NULL_SCORE;
+        }
+    }
+
+    /**
+     * 按分数递增的顺序累计一门课程的人数、分数和、平方和、最值、及格人数和分段人数
+     */
+    private static final class Accumulator {
+        final int[] thresholds;
+        final int[] buckets;
+        int bucket;
+        long count;
+        long sum;
+        double sumOfSquares;
+        int min;
+        int max;
+        int passCount;
+
+        Accumulator(int[] thresholds) {
+            this.thresholds = thresholds;
+            this.buckets = new int[thresholds.length + 1];
+        }
+
+        void add(int value, int n) {
+            while (bucket < thresholds.length && value >= thresholds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket] += n;
+            if (count == 0) {
+                min = value;
+            }
+            max = value;
+            count += n;
+            sum += (long) value * n;
+            sumOfSquares += (double) value * value * n;
+            if (value >= PASS_SCORE) {
+                passCount += n;
+            }
+        }
+    }
+
+    /**
+     * ID到连续编码的字典
+     */
+    private static class IntDictionary {
+        private final Map<Integer, Integer> codes = new HashMap<>();
+        private int[] ids = new int[16];
+
+        int encode(int id) {
+            Integer code = codes.get(id);
+            if (code != null) {
+                return code;
+            }
+            int newCode = codes.size();
+            if (newCode == ids.length) {
+                ids = Arrays.copyOf(ids, newCode * 2);
+            }
+            ids[newCode] = id;
+            codes.put(id, newCode);
+            return newCode;
+        }
+
+        /**
+         * ID的编码，不存在时返回-1
+         */
+        int codeOf(Integer id) {
+            Integer code = id != null ? codes.get(id) : null;
+            return code != null ? code : -1;
+        }
+
+        int idOf(int code) {
+            return ids[code];
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        /**
+         * 全部编码，按ID排序
+         */
+        List<Integer> codesSortedById() {
+            List<Integer> result = new ArrayList<>(codes.values());
+            result.sort((a, b) -> Integer.compare(ids[a], ids[b]));
+            return result;
+        }
+
+        /**
+         * 内存估算：编码数组加上HashMap条目及装箱的键值（每条约64字节）
+         */
+        long estimateBytes() {
+            return (long) ids.length * 4 + (long) codes.size() * 64;
+        }
+    }
+}
@@ -1,70 +1,156 @@
 package dao;
 
+import entity.Clazz;
+import entity.Course;
 import entity.Score;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.stream.Stream;
 
 /**
  * 成绩数据访问类
  */
 public class ScoreDao extends BaseDao<Score> {
     
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_score (student_id, course_id, score, exam_type, exam_date, recorder_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    
+    // 按uk_student_course_type去重：已有同一学生、课程、考试类型的记录时更新分数、考试日期和录入人，
+    // 新值为空的分数和考试日期保留原值，不会被清空
+    private static final String UPSERT_SQL = INSERT_SQL +
+            " ON DUPLICATE KEY UPDATE score = COALESCE(VALUES(score), score), " +
+            "exam_date = COALESCE(VALUES(exam_date), exam_date), recorder_id = VALUES(recorder_id)";
+    
+    private static final String UPDATE_SQL =
+            "UPDATE tb_score SET student_id = ?, course_id = ?, score = ?, " +
+            "exam_type = ?, exam_date = ?, recorder_id = ? WHERE id = ?";
+    
+    // 成绩详细信息查询（关联学生、班级、课程、教师）
+    private static final String SELECT_WITH_DETAILS =
+            "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
+            "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
+            "FROM tb_score sc " +
+            "JOIN tb_student s ON sc.student_id = s.id " +
+            "JOIN tb_course co ON sc.course_id = co.id " +
+            "LEFT JOIN tb_class c ON s.class_id = c.id " +
+            "LEFT JOIN tb_teacher t ON co.teacher_id = t.id ";
+    
+    // 多条件查询的结果缓存，所有实例共享
+    private static final QueryResultCache<SearchScope> searchCache = new QueryResultCache<>("score");
+    
+    // 各范围的成绩和GPA排名，写入成绩时按课程、学生失效
+    private static final RankingCache rankingCache = new RankingCache();
+    
+    // 课程统计和班级平均分由列式内存存储回答（db.analytics.columnStore为0时直接执行SQL）
+    private static final ScoreColumnStore columnStore = ScoreColumnStore.getInstance();
+    
+    /**
+     * 成绩多条件查询的结果缓存，可查看命中率
+     */
+    public static QueryResultCache<?> getSearchCache() {
+        return searchCache;
+    }
+    
+    /**
+     * 排名缓存，可查看命中情况
+     */
+    public static RankingCache getRankingCache() {
+        return rankingCache;
+    }
+    
+    /**
+     * 学生、班级、课程或教师数据变化，查询结果中带有它们的名称，全部失效；
+     * 换班、学分修改会改变排名的范围和GPA，排名也全部失效
+     */
+    static void relatedDataChanged() {
+        searchCache.invalidateAll();
+        rankingCache.invalidateAll();
+    }
+    
     @Override
-    protected Score mapRow(ResultSet rs) throws SQLException {
-        Score score = new Score();
-        score.setId(rs.getInt("id"));
-        score.setStudentId(rs.getInt("student_id"));
-        score.setCourseId(rs.getInt("course_id"));
-        score.setScore(rs.getObject("score") != null ? rs.getDouble("score") : null);
-        score.setExamType(rs.getString("exam_type"));
-        score.setExamDate(rs.getDate("exam_date"));
-        score.setRecorderId(rs.getObject("recorder_id") != null ? rs.getInt("recorder_id") : null);
-        score.setCreateTime(rs.getTimestamp("create_time"));
-        score.setUpdateTime(rs.getTimestamp("update_time"));
-        
-        // 尝试获取关联字段
-        try {
-            score.setStudentNo(rs.getString("student_no"));
-            score.setStudentName(rs.getString("student_name"));
-            score.setClassName(rs.getString("class_name"));
-            score.setCourseNo(rs.getString("course_no"));
-            score.setCourseName(rs.getString("course_name"));
-            score.setCredit(rs.getObject("credit") != null ? rs.getDouble("credit") : null);
-            score.setTeacherName(rs.getString("teacher_name"));
-        } catch (SQLException ignored) {}
+    protected RowMapper<Score> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int studentId = columns.indexOf("student_id");
+        final int courseId = columns.indexOf("course_id");
+        final int score = columns.indexOf("score");
+        final int examType = columns.indexOf("exam_type");
+        final int examDate = columns.indexOf("exam_date");
+        final int recorderId = columns.indexOf("recorder_id");
+        final int createTime = columns.indexOf("create_time");
+        final int updateTime = columns.indexOf("update_time");
+        // 关联字段（仅联表查询中存在）
+        final int studentNo = columns.indexOf("student_no");
+        final int studentName = columns.indexOf("student_name");
+        final int className = columns.indexOf("class_name");
+        final int courseNo = columns.indexOf("course_no");
+        final int courseName = columns.indexOf("course_name");
+        final int credit = columns.indexOf("credit");
+        final int teacherName = columns.indexOf("teacher_name");
         
-        return score;
+        return rs -> {
+            Score s = new Score();
+            s.setId(getInteger(rs, id));
+            s.setStudentId(getInteger(rs, studentId));
+            s.setCourseId(getInteger(rs, courseId));
+            s.setScore(getDouble(rs, score));
+            s.setExamType(getString(rs, examType));
+            s.setExamDate(getDate(rs, examDate));
+            s.setRecorderId(getInteger(rs, recorderId));
+            s.setCreateTime(getTimestamp(rs, createTime));
+            s.setUpdateTime(getTimestamp(rs, updateTime));
+            s.setStudentNo(getString(rs, studentNo));
+            s.setStudentName(getString(rs, studentName));
+            s.setClassName(getString(rs, className));
+            s.setCourseNo(getString(rs, courseNo));
+            s.setCourseName(getString(rs, courseName));
+            s.setCredit(getDouble(rs, credit));
+            s.setTeacherName(getString(rs, teacherName));
+            return s;
+        };
     }
     
     /**
      * 查询所有成绩（带详细信息）
      */
     public List<Score> findAll() throws SQLException {
-        String sql = "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
-                     "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
-                     "FROM tb_score sc " +
-                     "JOIN tb_student s ON sc.student_id = s.id " +
-                     "JOIN tb_course co ON sc.course_id = co.id " +
-                     "LEFT JOIN tb_class c ON s.class_id = c.id " +
-                     "LEFT JOIN tb_teacher t ON co.teacher_id = t.id " +
+        String sql = SELECT_WITH_DETAILS +
                      "ORDER BY s.student_no, co.course_no";
         return queryList(sql);
     }
     
+    /**
+     * 游标方式逐行处理所有成绩（带详细信息），内存占用与总行数无关
+     * @return 处理的行数
+     */
+    public int forEachAll(RowCallback<Score> callback) throws SQLException {
+        String sql = SELECT_WITH_DETAILS +
+                     "ORDER BY s.student_no, co.course_no";
+        return forEachRow(sql, callback);
+    }
+    
+    /**
+     * 以Stream形式游标读取所有成绩（带详细信息），使用完毕必须关闭
+     */
+    public Stream<Score> streamAll() throws SQLException {
+        String sql = SELECT_WITH_DETAILS +
+                     "ORDER BY s.student_no, co.course_no";
+        return queryStream(sql);
+    }
+    
     /**
      * 根据ID查询成绩
      */
     public Score findById(Integer id) throws SQLException {
-        String sql = "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
-                     "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
-                     "FROM tb_score sc " +
-                     "JOIN tb_student s ON sc.student_id = s.id " +
-                     "JOIN tb_course co ON sc.course_id = co.id " +
-                     "LEFT JOIN tb_class c ON s.class_id = c.id " +
-                     "LEFT JOIN tb_teacher t ON co.teacher_id = t.id " +
+        String sql = SELECT_WITH_DETAILS +
                      "WHERE sc.id = ?";
         return queryOne(sql, id);
     }
@@ -73,13 +159,7 @@ public class ScoreDao extends BaseDao<Score> {
      * 根据学生ID查询成绩
      */
     public List<Score> findByStudentId(Integer studentId) throws SQLException {
-        String sql = "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
-                     "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
-                     "FROM tb_score sc " +
-                     "JOIN tb_student s ON sc.student_id = s.id " +
-                     "JOIN tb_course co ON sc.course_id = co.id " +
-                     "LEFT JOIN tb_class c ON s.class_id = c.id " +
-                     "LEFT JOIN tb_teacher t ON co.teacher_id = t.id " +
+        String sql = SELECT_WITH_DETAILS +
                      "WHERE sc.student_id = ? ORDER BY co.course_no";
         return queryList(sql, studentId);
     }
@@ -88,13 +168,7 @@ public class ScoreDao extends BaseDao<Score> {
      * 根据课程ID查询成绩
      */
     public List<Score> findByCourseId(Integer courseId) throws SQLException {
-        String sql = "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
-                     "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
-                     "FROM tb_score sc " +
-                     "JOIN tb_student s ON sc.student_id = s.id " +
-                     "JOIN tb_course co ON sc.course_id = co.id " +
-                     "LEFT JOIN tb_class c ON s.class_id = c.id " +
-                     "LEFT JOIN tb_teacher t ON co.teacher_id = t.id " +
+        String sql = SELECT_WITH_DETAILS +
                      "WHERE sc.course_id = ? ORDER BY s.student_no";
         return queryList(sql, courseId);
     }
@@ -103,13 +177,7 @@ public class ScoreDao extends BaseDao<Score> {
      * 根据教师ID查询其授课的成绩
      */
     public List<Score> findByTeacherId(Integer teacherId) throws SQLException {
-        String sql = "SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, " +
-                     "co.course_no, co.course_name, co.credit, t.name AS teacher_name " +
-                     "FROM tb_score sc " +
-                     "JOIN tb_student s ON sc.student_id = s.id " +
-                     "JOIN tb_course co ON sc.course_id = co.id " +
-                     "LEFT JOIN tb_class c ON s.class_id = c.id " +
-                     "LEFT JOIN tb_teacher t ON co.teacher_id = t.id " +
+        String sql = SELECT_WITH_DETAILS +
                      "WHERE co.teacher_id = ? ORDER BY co.course_no, s.student_no";
         return queryList(sql, teacherId);
     }
@@ -119,68 +187,275 @@ public class ScoreDao extends BaseDao<Score> {
      */
     public List<Score> search(String studentNo, String studentName, Integer classId,
                               Integer courseId, String examType, Double minScore, Double maxScore) throws SQLException {
+        return search(new ScoreQuery(studentNo, studentName, classId, courseId, examType, minScore, maxScore));
+    }
+    
+    /**
+     * 多条件查询成绩
+     */
+    public List<Score> search(ScoreQuery query) throws SQLException {
+        ScoreQuery key = query.normalized();
+        StringBuilder sql = new StringBuilder(SELECT_WITH_DETAILS);
+        sql.append("WHERE 1=1 ");
+        
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
+        
+        sql.append("ORDER BY s.student_no, co.course_no");
+        
+        List<Score> list = searchCache.get(Arrays.asList("search", key), new SearchScope(key),
+                () -> queryList(sql.toString(), params.toArray()));
+        return copyScores(list);
+    }
+    
+    /**
+     * 游标方式逐行处理符合条件的成绩（带详细信息），用于大批量导出，不经过结果缓存
+     * @return 处理的行数
+     */
+    public int forEachMatching(ScoreQuery query, RowCallback<Score> callback) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_WITH_DETAILS);
+        sql.append("WHERE 1=1 ");
+        
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, query.normalized());
+        
+        sql.append("ORDER BY s.student_no, co.course_no");
+        
+        return forEachRow(sql.toString(), callback, params.toArray());
+    }
+    
+    /**
+     * 分页查询成绩（键集分页，按学号、课程编号、成绩ID排序）
+     * @param cursor 翻页起点：当前页最后一行（向后翻）或第一行（向前翻），为null时取第一页
+     * @param forward true向后翻页，false向前翻页
+     * @param pageSize 每页行数
+     * @return 当前页数据，始终按升序排列
+     */
+    public List<Score> searchPage(ScoreQuery query, Score cursor, boolean forward, int pageSize) throws SQLException {
+        ScoreQuery key = query.normalized();
+        StringBuilder sql = new StringBuilder(SELECT_WITH_DETAILS);
+        sql.append("WHERE 1=1 ");
+        
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
+        
+        if (cursor != null) {
+            String op = forward ? ">" : "<";
+            sql.append("AND (s.student_no ").append(op).append(" ? ");
+            sql.append("OR (s.student_no = ? AND (co.course_no ").append(op).append(" ? ");
+            sql.append("OR (co.course_no = ? AND sc.id ").append(op).append(" ?)))) ");
+            params.add(cursor.getStudentNo());
+            params.add(cursor.getStudentNo());
+            params.add(cursor.getCourseNo());
+            params.add(cursor.getCourseNo());
+            params.add(cursor.getId());
+        }
+        
+        sql.append(forward ? "ORDER BY s.student_no, co.course_no, sc.id "
+                           : "ORDER BY s.student_no DESC, co.course_no DESC, sc.id DESC ");
+        sql.append("LIMIT ?");
+        params.add(pageSize);
+        
+        List<Object> cacheKey = cursor == null
+                ? Arrays.asList("page", key, forward, pageSize)
+                : Arrays.asList("page", key, forward, pageSize, cursor.getStudentNo(), cursor.getCourseNo(), cursor.getId());
+        List<Score> page = searchCache.get(cacheKey, new SearchScope(key), () -> {
+            List<Score> list = queryList(sql.toString(), params.toArray());
+            if (!forward) {
+                Collections.reverse(list);
+            }
+            return list;
+        });
+        return copyScores(page);
+    }
+    
+    /**
+     * 统计符合条件的成绩数量
+     */
+    public int searchCount(ScoreQuery query) throws SQLException {
+        ScoreQuery key = query.normalized();
         StringBuilder sql = new StringBuilder();
-        sql.append("SELECT sc.*, s.student_no, s.name AS student_name, c.class_name, ");
-        sql.append("co.course_no, co.course_name, co.credit, t.name AS teacher_name ");
-        sql.append("FROM tb_score sc ");
+        sql.append("SELECT COUNT(*) FROM tb_score sc ");
         sql.append("JOIN tb_student s ON sc.student_id = s.id ");
         sql.append("JOIN tb_course co ON sc.course_id = co.id ");
-        sql.append("LEFT JOIN tb_class c ON s.class_id = c.id ");
-        sql.append("LEFT JOIN tb_teacher t ON co.teacher_id = t.id ");
         sql.append("WHERE 1=1 ");
         
         List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
         
-        if (studentNo != null && !studentNo.trim().isEmpty()) {
+        return searchCache.get(Arrays.asList("count", key), new SearchScope(key),
+                () -> queryCount(sql.toString(), params.toArray()));
+    }
+    
+    /**
+     * 拼接查询条件
+     */
+    private void appendConditions(StringBuilder sql, List<Object> params, ScoreQuery query) {
+        if (query.getStudentNo() != null && !query.getStudentNo().trim().isEmpty()) {
             sql.append("AND s.student_no LIKE ? ");
-            params.add("%" + studentNo.trim() + "%");
+            params.add("%" + query.getStudentNo().trim() + "%");
         }
-        if (studentName != null && !studentName.trim().isEmpty()) {
+        if (query.getStudentName() != null && !query.getStudentName().trim().isEmpty()) {
             sql.append("AND s.name LIKE ? ");
-            params.add("%" + studentName.trim() + "%");
+            params.add("%" + query.getStudentName().trim() + "%");
         }
-        if (classId != null) {
+        if (query.getClassId() != null) {
             sql.append("AND s.class_id = ? ");
-            params.add(classId);
+            params.add(query.getClassId());
         }
-        if (courseId != null) {
+        if (query.getCourseId() != null) {
             sql.append("AND sc.course_id = ? ");
-            params.add(courseId);
+            params.add(query.getCourseId());
         }
-        if (examType != null && !examType.trim().isEmpty()) {
+        if (query.getExamType() != null && !query.getExamType().trim().isEmpty()) {
             sql.append("AND sc.exam_type = ? ");
-            params.add(examType);
+            params.add(query.getExamType());
         }
-        if (minScore != null) {
+        if (query.getMinScore() != null) {
             sql.append("AND sc.score >= ? ");
-            params.add(minScore);
+            params.add(query.getMinScore());
         }
-        if (maxScore != null) {
+        if (query.getMaxScore() != null) {
             sql.append("AND sc.score <= ? ");
-            params.add(maxScore);
+            params.add(query.getMaxScore());
+        }
+        if (query.getStudentId() != null) {
+            sql.append("AND sc.student_id = ? ");
+            params.add(query.getStudentId());
+        }
+        if (query.getTeacherId() != null) {
+            sql.append("AND co.teacher_id = ? ");
+            params.add(query.getTeacherId());
+        }
+        if (query.getSemester() != null && !query.getSemester().trim().isEmpty()) {
+            sql.append("AND co.semester = ? ");
+            params.add(query.getSemester());
         }
-        
-        sql.append("ORDER BY s.student_no, co.course_no");
-        
-        return queryList(sql.toString(), params.toArray());
     }
     
     /**
      * 添加成绩
      */
     public int insert(Score score) throws SQLException {
-        String sql = "INSERT INTO tb_score (student_id, course_id, score, exam_type, exam_date, recorder_id) " + "VALUES (?, ?, ?, ?, ?, ?)";
-        return executeInsert(sql, score.getStudentId(), score.getCourseId(), score.getScore(),
-                score.getExamType(), score.getExamDate(), score.getRecorderId());
+        int id = executeInsert(INSERT_SQL, insertParams(score));
+        scoresChanged(Collections.singletonList(score));
+        columnStore.inserted(id, score);
+        return id;
+    }
+    
+    /**
+     * 批量添加成绩，生成的ID会回填到每个成绩对象
+     * @return 插入的行数
+     */
+    public int insertBatch(List<Score> scores) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            rows.add(insertParams(score));
+        }
+        BatchResult result = executeInsertBatch(INSERT_SQL, rows);
+        List<Integer> keys = result.getGeneratedKeys();
+        if (keys.size() == scores.size()) {
+            for (int i = 0; i < scores.size(); i++) {
+                scores.get(i).setId(keys.get(i));
+            }
+            columnStore.saved(scores);
+        } else {
+            columnStore.changed();
+        }
+        scoresChanged(scores);
+        return result.getSuccessCount();
+    }
+    
+    /**
+     * 批量插入或更新成绩（INSERT ... ON DUPLICATE KEY UPDATE）
+     * 同一学生、课程、考试类型已有记录时覆盖分数、考试日期和录入人，分数或考试日期为空时保留原值
+     * @return 执行成功的行数（插入和更新都计入）
+     */
+    public int upsertBatch(List<Score> scores) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            rows.add(insertParams(score));
+        }
+        int count = executeBatch(UPSERT_SQL, rows).getSuccessCount();
+        scoresChanged(scores);
+        if (ScoreColumnStore.isEnabled()) {
+            // 不区分插入和更新的行，按唯一键读回写入后的ID和分数交给列式存储
+            columnStore.saved(findByUniqueKeys(scores));
+        }
+        return count;
+    }
+    
+    /**
+     * 按uk_student_course_type读回成绩的ID、学生、课程和分数（主库，事务中读到本事务的写入）
+     * 每批一次行值IN查询；考试类型为空的成绩无法按键匹配，改为让列式存储整体重新加载
+     */
+    private List<Score> findByUniqueKeys(List<Score> scores) throws SQLException {
+        List<Score> result = new ArrayList<>(scores.size());
+        int batchSize = Math.max(util.DBUtil.getBatchSize(), 1);
+        for (int start = 0; start < scores.size(); start += batchSize) {
+            List<Score> chunk = scores.subList(start, Math.min(start + batchSize, scores.size()));
+            StringBuilder sql = new StringBuilder(
+                    "SELECT id, student_id, course_id, score FROM tb_score " +
+                    "WHERE (student_id, course_id, exam_type) IN (");
+            List<Object> params = new ArrayList<>(chunk.size() * 3);
+            for (Score score : chunk) {
+                if (score.getExamType() == null) {
+                    columnStore.changed();
+                    continue;
+                }
+                sql.append(params.isEmpty() ? "" : ",").append("(?, ?, ?)");
+                params.add(score.getStudentId());
+                params.add(score.getCourseId());
+                params.add(score.getExamType());
+            }
+            if (params.isEmpty()) {
+                continue;
+            }
+            sql.append(")");
+            util.DBUtil.withPrimary(() -> forEachRow(sql.toString(), result::add, params.toArray()));
+        }
+        return result;
     }
     
     /**
      * 更新成绩
      */
     public int update(Score score) throws SQLException {
-        String sql = "UPDATE tb_score SET student_id = ?, course_id = ?, score = ?, " + "exam_type = ?, exam_date = ?, recorder_id = ? WHERE id = ?";
-        return executeUpdate(sql, score.getStudentId(), score.getCourseId(), score.getScore(),
-                score.getExamType(), score.getExamDate(), score.getRecorderId(), score.getId());
+        // 修改了学生或课程时，原来所属的查询结果也要失效
+        Score previous = findOwner(score.getId());
+        int rows = executeUpdate(UPDATE_SQL, updateParams(score));
+        scoresChanged(previous != null ? Arrays.asList(previous, score) : Collections.singletonList(score));
+        columnStore.updated(score);
+        return rows;
+    }
+    
+    /**
+     * 批量更新成绩
+     * @return 更新成功的行数
+     */
+    public int updateBatch(List<Score> scores) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            rows.add(updateParams(score));
+        }
+        int count = executeBatch(UPDATE_SQL, rows).getSuccessCount();
+        // 不逐条查询修改前的学生和课程，全部失效
+        searchCache.invalidateAll();
+        rankingCache.invalidateAll();
+        for (Score score : scores) {
+            columnStore.updated(score);
+        }
+        return count;
+    }
+    
+    private Object[] insertParams(Score score) {
+        return new Object[]{score.getStudentId(), score.getCourseId(), score.getScore(),
+                score.getExamType(), score.getExamDate(), score.getRecorderId()};
+    }
+    
+    private Object[] updateParams(Score score) {
+        return new Object[]{score.getStudentId(), score.getCourseId(), score.getScore(),
+                score.getExamType(), score.getExamDate(), score.getRecorderId(), score.getId()};
     }
     
     /**
@@ -188,7 +463,79 @@ public class ScoreDao extends BaseDao<Score> {
      */
     public int delete(Integer id) throws SQLException {
         String sql = "DELETE FROM tb_score WHERE id = ?";
-        return executeUpdate(sql, id);
+        Score previous = findOwner(id);
+        int rows = executeUpdate(sql, id);
+        if (previous != null) {
+            scoresChanged(Collections.singletonList(previous));
+        }
+        columnStore.deleted(id);
+        return rows;
+    }
+    
+    /**
+     * 查询成绩所属的学生和课程（主库），用于失效查询结果
+     */
+    private Score findOwner(Integer id) throws SQLException {
+        String sql = "SELECT id, student_id, course_id FROM tb_score WHERE id = ?";
+        return util.DBUtil.withPrimary(() -> queryOne(sql, id));
+    }
+    
+    /**
+     * 使可能包含这些成绩的查询结果和排名失效
+     */
+    private static void scoresChanged(Collection<Score> scores) {
+        searchCache.invalidate(scope -> {
+            for (Score score : scores) {
+                if (scope.affectedBy(score.getStudentId(), score.getCourseId())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        rankingCache.scoresChanged(scores);
+    }
+    
+    private static List<Score> copyScores(List<Score> scores) {
+        List<Score> copies = new ArrayList<>(scores.size());
+        for (Score s : scores) {
+            Score copy = new Score();
+            copy.setId(s.getId());
+            copy.setStudentId(s.getStudentId());
+            copy.setCourseId(s.getCourseId());
+            copy.setScore(s.getScore());
+            copy.setExamType(s.getExamType());
+            copy.setExamDate(s.getExamDate());
+            copy.setRecorderId(s.getRecorderId());
+            copy.setCreateTime(s.getCreateTime());
+            copy.setUpdateTime(s.getUpdateTime());
+            copy.setStudentNo(s.getStudentNo());
+            copy.setStudentName(s.getStudentName());
+            copy.setClassName(s.getClassName());
+            copy.setCourseNo(s.getCourseNo());
+            copy.setCourseName(s.getCourseName());
+            copy.setCredit(s.getCredit());
+            copy.setTeacherName(s.getTeacherName());
+            copies.add(copy);
+        }
+        return copies;
+    }
+    
+    /**
+     * 查询结果的范围：查询限定的学生和课程，为null表示不限
+     */
+    private static class SearchScope {
+        private final Integer studentId;
+        private final Integer courseId;
+        
+        SearchScope(ScoreQuery query) {
+            this.studentId = query.getStudentId();
+            this.courseId = query.getCourseId();
+        }
+        
+        boolean affectedBy(Integer changedStudentId, Integer changedCourseId) {
+            return (studentId == null || studentId.equals(changedStudentId))
+                    && (courseId == null || courseId.equals(changedCourseId));
+        }
     }
     
     /**
@@ -207,6 +554,31 @@ public class ScoreDao extends BaseDao<Score> {
         return queryCount(sql, studentId, courseId, examType, excludeId) > 0;
     }
     
+    /**
+     * 在给定学生中查询某课程某考试类型已有成绩的学生ID（主库，一次IN查询）
+     */
+    public Set<Integer> findStudentIdsWithScore(Integer courseId, String examType, List<Integer> studentIds)
+            throws SQLException {
+        Set<Integer> result = new HashSet<>();
+        if (studentIds == null || studentIds.isEmpty()) return result;
+        
+        StringBuilder sql = new StringBuilder(
+                "SELECT student_id FROM tb_score WHERE course_id = ? AND exam_type = ? AND student_id IN (");
+        List<Object> params = new ArrayList<>(studentIds.size() + 2);
+        params.add(courseId);
+        params.add(examType);
+        for (int i = 0; i < studentIds.size(); i++) {
+            sql.append("?");
+            if (i < studentIds.size() - 1) sql.append(",");
+            params.add(studentIds.get(i));
+        }
+        sql.append(")");
+        
+        util.DBUtil.withPrimary(() -> forEachRow(sql.toString(),
+                score -> result.add(score.getStudentId()), params.toArray()));
+        return result;
+    }
+    
     /**
      * 获取学生的平均成绩
      */
@@ -220,6 +592,9 @@ public class ScoreDao extends BaseDao<Score> {
      * 获取课程的平均成绩
      */
     public Double getAverageScoreByCourseId(Integer courseId) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            return getCourseStatistics(courseId).getAverageScore();
+        }
         String sql = "SELECT AVG(score) FROM tb_score WHERE course_id = ? AND score IS NOT NULL";
         Object result = queryScalar(sql, courseId);
         return result != null ? ((Number) result).doubleValue() : null;
@@ -229,6 +604,9 @@ public class ScoreDao extends BaseDao<Score> {
      * 获取课程的最高分
      */
     public Double getMaxScoreByCourseId(Integer courseId) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            return getCourseStatistics(courseId).getMaxScore();
+        }
         String sql = "SELECT MAX(score) FROM tb_score WHERE course_id = ? AND score IS NOT NULL";
         Object result = queryScalar(sql, courseId);
         return result != null ? ((Number) result).doubleValue() : null;
@@ -238,6 +616,9 @@ public class ScoreDao extends BaseDao<Score> {
      * 获取课程的最低分
      */
     public Double getMinScoreByCourseId(Integer courseId) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            return getCourseStatistics(courseId).getMinScore();
+        }
         String sql = "SELECT MIN(score) FROM tb_score WHERE course_id = ? AND score IS NOT NULL";
         Object result = queryScalar(sql, courseId);
         return result != null ? ((Number) result).doubleValue() : null;
@@ -247,40 +628,214 @@ public class ScoreDao extends BaseDao<Score> {
      * 获取课程的成绩分布统计
      */
     public Map<String, Integer> getScoreDistributionByCourseId(Integer courseId) throws SQLException {
-        Map<String, Integer> distribution = new HashMap<>();
-        String sql = "SELECT " +
-                     "SUM(CASE WHEN score >= 90 THEN 1 ELSE 0 END) AS excellent, " +
-                     "SUM(CASE WHEN score >= 80 AND score < 90 THEN 1 ELSE 0 END) AS good, " +
-                     "SUM(CASE WHEN score >= 70 AND score < 80 THEN 1 ELSE 0 END) AS medium, " +
-                     "SUM(CASE WHEN score >= 60 AND score < 70 THEN 1 ELSE 0 END) AS pass, " +
-                     "SUM(CASE WHEN score < 60 THEN 1 ELSE 0 END) AS fail " +
-                     "FROM tb_score WHERE course_id = ? AND score IS NOT NULL";
+        return getCourseStatistics(courseId, ScoreStatistics.DEFAULT_BOUNDARIES).getDistribution();
+    }
+    
+    /**
+     * 按任意分段边界统计符合条件的成绩（课程、班级、考试类型、学期等任意组合），只计已录入分数的成绩
+     * 分段在数据库中一次分组查询得出，结果按条件和边界缓存，写入相关成绩后失效
+     */
+    public ScoreHistogram getScoreHistogram(ScoreQuery query, double[] boundaries) throws SQLException {
+        ScoreHistogram.checkBoundaries(boundaries);
+        ScoreQuery key = query.normalized();
+        double[] bounds = boundaries.clone();
+        
+        // 分段号：低于第i个边界的最小i，都不低于时为最后一段
+        StringBuilder sql = new StringBuilder("SELECT CASE");
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i++) {
+            sql.append(" WHEN sc.score < ? THEN ").append(i);
+            params.add(bounds[i]);
+        }
+        sql.append(" ELSE ").append(bounds.length).append(" END AS bucket, COUNT(*), SUM(sc.score) ");
+        sql.append("FROM tb_score sc ");
+        sql.append("JOIN tb_student s ON sc.student_id = s.id ");
+        sql.append("JOIN tb_course co ON sc.course_id = co.id ");
+        sql.append("WHERE sc.score IS NOT NULL ");
+        appendConditions(sql, params, key);
+        sql.append("GROUP BY bucket");
+        
+        List<Object> cacheKey = new ArrayList<>();
+        cacheKey.add("histogram");
+        cacheKey.add(key);
+        for (double bound : bounds) {
+            cacheKey.add(bound);
+        }
+        return searchCache.get(cacheKey, new SearchScope(key), () -> {
+            int[] counts = new int[bounds.length + 1];
+            double[] sums = new double[bounds.length + 1];
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+            try {
+                conn = util.DBUtil.getReadConnection();
+                pstmt = conn.prepareStatement(sql.toString());
+                setParameters(pstmt, params.toArray());
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int bucket = rs.getInt(1);
+                    counts[bucket] = rs.getInt(2);
+                    sums[bucket] = rs.getDouble(3);
+                }
+            } finally {
+                util.DBUtil.close(rs, pstmt, conn);
+            }
+            return new ScoreHistogram(bounds, counts, sums);
+        });
+    }
+    
+    /**
+     * 获取课程成绩统计（默认分段）
+     */
+    public ScoreStatistics getCourseStatistics(Integer courseId) throws SQLException {
+        return getCourseStatistics(courseId, ScoreStatistics.DEFAULT_BOUNDARIES);
+    }
+    
+    /**
+     * 获取课程成绩统计
+     * 一次扫描得到记录数、平均分、最高/最低分、标准差、及格人数和各分段人数
+     * @param boundaries 分段边界，严格递增，n个边界划分出n+1段，区间左闭右开
+     */
+    public ScoreStatistics getCourseStatistics(Integer courseId, double[] boundaries) throws SQLException {
+        ScoreStatistics.checkBoundaries(boundaries);
+        if (ScoreColumnStore.isEnabled()) {
+            return columnStore.getCourseStatistics(courseId, boundaries);
+        }
+        String sql = buildStatisticsSql(boundaries, false);
+        
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = util.DBUtil.getReadConnection();
+            pstmt = conn.prepareStatement(sql);
+            int index = bindStatisticsParameters(pstmt, boundaries);
+            pstmt.setInt(index, courseId);
+            rs = pstmt.executeQuery();
+            rs.next();
+            ScoreStatistics stats = readStatistics(rs, 1, boundaries);
+            stats.setCourseId(courseId);
+            return stats;
+        } finally {
+            util.DBUtil.close(rs, pstmt, conn);
+        }
+    }
+    
+    /**
+     * 一次查询获取所有课程的成绩统计（默认分段）
+     */
+    public Map<Integer, ScoreStatistics> getAllCourseStatistics() throws SQLException {
+        return getAllCourseStatistics(ScoreStatistics.DEFAULT_BOUNDARIES);
+    }
+    
+    /**
+     * 一次查询获取所有课程的成绩统计，按course_id分组，没有成绩记录的课程不在结果中
+     * @param boundaries 分段边界，严格递增
+     * @return 课程ID到统计结果的映射，按课程ID排序
+     */
+    public Map<Integer, ScoreStatistics> getAllCourseStatistics(double[] boundaries) throws SQLException {
+        ScoreStatistics.checkBoundaries(boundaries);
+        if (ScoreColumnStore.isEnabled()) {
+            return columnStore.getAllCourseStatistics(boundaries);
+        }
+        String sql = buildStatisticsSql(boundaries, true);
         
+        Map<Integer, ScoreStatistics> result = new LinkedHashMap<>();
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            conn = util.DBUtil.getConnection();
+            conn = util.DBUtil.getReadConnection();
             pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, courseId);
+            bindStatisticsParameters(pstmt, boundaries);
             rs = pstmt.executeQuery();
-            if (rs.next()) {
-                distribution.put("优秀(90-100)", rs.getInt("excellent"));
-                distribution.put("良好(80-89)", rs.getInt("good"));
-                distribution.put("中等(70-79)", rs.getInt("medium"));
-                distribution.put("及格(60-69)", rs.getInt("pass"));
-                distribution.put("不及格(<60)", rs.getInt("fail"));
+            while (rs.next()) {
+                ScoreStatistics stats = readStatistics(rs, 2, boundaries);
+                stats.setCourseId(rs.getInt(1));
+                result.put(stats.getCourseId(), stats);
             }
         } finally {
             util.DBUtil.close(rs, pstmt, conn);
         }
-        return distribution;
+        return result;
+    }
+    
+    /**
+     * 构造统计SQL，分段边界作为参数绑定，相同段数的SQL文本相同，可复用语句缓存
+     */
+    private static String buildStatisticsSql(double[] boundaries, boolean groupByCourse) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (groupByCourse) {
+            sql.append("course_id, ");
+        }
+        sql.append("COUNT(*), COUNT(score), AVG(score), MAX(score), MIN(score), STDDEV_POP(score), ")
+           .append("SUM(CASE WHEN score >= ? THEN 1 ELSE 0 END), ")
+           .append("SUM(CASE WHEN score < ? THEN 1 ELSE 0 END)");
+        for (int i = 1; i < boundaries.length; i++) {
+            sql.append(", SUM(CASE WHEN score >= ? AND score < ? THEN 1 ELSE 0 END)");
+        }
+        sql.append(", SUM(CASE WHEN score >= ? THEN 1 ELSE 0 END) FROM tb_score");
+        if (groupByCourse) {
+            sql.append(" GROUP BY course_id ORDER BY course_id");
+        } else {
+            sql.append(" WHERE course_id = ?");
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * 绑定及格线和分段边界参数，返回下一个参数位置
+     */
+    private static int bindStatisticsParameters(PreparedStatement pstmt, double[] boundaries) throws SQLException {
+        int index = 1;
+        pstmt.setDouble(index++, ScoreStatistics.PASS_SCORE);
+        pstmt.setDouble(index++, boundaries[0]);
+        for (int i = 1; i < boundaries.length; i++) {
+            pstmt.setDouble(index++, boundaries[i - 1]);
+            pstmt.setDouble(index++, boundaries[i]);
+        }
+        pstmt.setDouble(index++, boundaries[boundaries.length - 1]);
+        return index;
+    }
+    
+    /**
+     * 从统计SQL的结果行读取统计值
+     * @param offset COUNT(*)所在的列
+     */
+    private static ScoreStatistics readStatistics(ResultSet rs, int offset, double[] boundaries) throws SQLException {
+        ScoreStatistics stats = new ScoreStatistics();
+        stats.setTotalCount(rs.getInt(offset));
+        stats.setScoredCount(rs.getInt(offset + 1));
+        stats.setAverageScore(getDouble(rs, offset + 2));
+        stats.setMaxScore(getDouble(rs, offset + 3));
+        stats.setMinScore(getDouble(rs, offset + 4));
+        stats.setStdDev(getDouble(rs, offset + 5));
+        stats.setPassCount(rs.getInt(offset + 6));
+        int[] buckets = new int[boundaries.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = rs.getInt(offset + 7 + i);
+        }
+        stats.setBoundaries(boundaries.clone());
+        stats.setBucketCounts(buckets);
+        return stats;
     }
     
     /**
      * 获取班级各科平均分
      */
     public List<Object[]> getClassCourseAverages(Integer classId) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            List<Object[]> result = new ArrayList<>();
+            for (Map.Entry<Integer, Double> entry : columnStore.getClassCourseAverages(classId).entrySet()) {
+                Course course = ReferenceDataCache.getInstance().getCourseById(entry.getKey());
+                if (course != null) {
+                    result.add(new Object[]{course.getCourseName(), entry.getValue()});
+                }
+            }
+            result.sort((a, b) -> ((String) a[0]).compareTo((String) b[0]));
+            return result;
+        }
+        
         String sql = "SELECT co.course_name, AVG(sc.score) AS avg_score " +
                      "FROM tb_score sc " +
                      "JOIN tb_student s ON sc.student_id = s.id " +
@@ -294,14 +849,14 @@ public class ScoreDao extends BaseDao<Score> {
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            conn = util.DBUtil.getConnection();
+            conn = util.DBUtil.getReadConnection();
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, classId);
             rs = pstmt.executeQuery();
             while (rs.next()) {
                 result.add(new Object[]{
-                    rs.getString("course_name"),
-                    rs.getDouble("avg_score")
+                    rs.getString(1),
+                    rs.getDouble(2)
                 });
             }
         } finally {
@@ -309,4 +864,132 @@ public class ScoreDao extends BaseDao<Score> {
         }
         return result;
     }
+    
+    /**
+     * 学生的GPA：Σ(绩点×学分) / Σ学分，计入所有已录入分数且课程有学分的成绩，没有时为0
+     */
+    public double getStudentGpa(Integer studentId) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            return columnStore.getStudentGpa(studentId);
+        }
+        
+        double[] totals = new double[2];
+        for (Score score : findByStudentId(studentId)) {
+            accumulateGpa(score, totals);
+        }
+        return totals[1] > 0 ? totals[0] / totals[1] : 0.0;
+    }
+    
+    /**
+     * 一次查询若干班级全部学生的GPA，没有成绩的学生为0
+     * @return 学生ID到GPA的映射，按学生ID排序
+     */
+    public Map<Integer, Double> getStudentGpas(List<Integer> classIds) throws SQLException {
+        if (ScoreColumnStore.isEnabled()) {
+            return columnStore.getStudentGpas(classIds);
+        }
+        
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        if (classIds == null || classIds.isEmpty()) return result;
+        
+        StringBuilder sql = new StringBuilder(
+                "SELECT s.id AS student_id, sc.score, co.credit " +
+                "FROM tb_student s " +
+                "LEFT JOIN tb_score sc ON sc.student_id = s.id " +
+                "LEFT JOIN tb_course co ON sc.course_id = co.id " +
+                "WHERE s.class_id IN (");
+        for (int i = 0; i < classIds.size(); i++) {
+            sql.append("?");
+            if (i < classIds.size() - 1) sql.append(",");
+        }
+        sql.append(") ORDER BY s.id");
+        
+        Map<Integer, double[]> totals = new LinkedHashMap<>();
+        forEachRow(sql.toString(),
+                score -> accumulateGpa(score, totals.computeIfAbsent(score.getStudentId(), id -> new double[2])),
+                classIds.toArray());
+        for (Map.Entry<Integer, double[]> entry : totals.entrySet()) {
+            double[] total = entry.getValue();
+            result.put(entry.getKey(), total[1] > 0 ? total[0] / total[1] : 0.0);
+        }
+        return result;
+    }
+    
+    /**
+     * 累加一条成绩的绩点×学分与学分
+     */
+    private static void accumulateGpa(Score score, double[] totals) {
+        if (score.getScore() != null && score.getCredit() != null) {
+            totals[0] += score.getGradePoint() * score.getCredit();
+            totals[1] += score.getCredit();
+        }
+    }
+    
+    /**
+     * 某范围的排名，按范围缓存，只在写入了该范围的成绩后重新计算
+     */
+    public Ranking getRanking(RankingScope scope) throws SQLException {
+        return rankingCache.get(scope, () -> scope.isGpa() ? loadGpaRanking(scope) : loadScoreRanking(scope));
+    }
+    
+    /**
+     * 一次查询范围内某课程某考试类型已录入的全部分数
+     */
+    private Ranking loadScoreRanking(RankingScope scope) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT sc.student_id, sc.score FROM tb_score sc " +
+                "JOIN tb_student s ON sc.student_id = s.id " +
+                "LEFT JOIN tb_class c ON s.class_id = c.id " +
+                "WHERE sc.course_id = ? AND sc.exam_type = ? AND sc.score IS NOT NULL ");
+        List<Object> params = new ArrayList<>();
+        params.add(scope.getCourseId());
+        params.add(scope.getExamType());
+        if (scope.getClassId() != null) {
+            sql.append("AND s.class_id = ? ");
+            params.add(scope.getClassId());
+        }
+        if (scope.getGrade() != null) {
+            sql.append("AND c.grade = ? ");
+            params.add(scope.getGrade());
+        }
+        
+        int[][] studentIds = {new int[256]};
+        double[][] values = {new double[256]};
+        int[] count = {0};
+        forEachRow(sql.toString(), score -> {
+            if (count[0] == studentIds[0].length) {
+                studentIds[0] = Arrays.copyOf(studentIds[0], count[0] * 2);
+                values[0] = Arrays.copyOf(values[0], count[0] * 2);
+            }
+            studentIds[0][count[0]] = score.getStudentId();
+            values[0][count[0]++] = score.getScore();
+        }, params.toArray());
+        return Ranking.of(studentIds[0], values[0], count[0], 100);
+    }
+    
+    /**
+     * 范围内全部学生的GPA（没有成绩的学生为0）
+     */
+    private Ranking loadGpaRanking(RankingScope scope) throws SQLException {
+        List<Integer> classIds = new ArrayList<>();
+        if (scope.getClassId() != null) {
+            classIds.add(scope.getClassId());
+        } else {
+            for (Clazz clazz : ReferenceDataCache.getInstance().getClasses()) {
+                if (scope.getGrade() == null || scope.getGrade().equals(clazz.getGrade())) {
+                    classIds.add(clazz.getId());
+                }
+            }
+        }
+        Map<Integer, Double> gpas = getStudentGpas(classIds);
+        int[] studentIds = new int[gpas.size()];
+        double[] values = new double[gpas.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : gpas.entrySet()) {
+            studentIds[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        return Ranking.of(studentIds, values, i, 1000000);
+    }
 }
\ No newline at end of file
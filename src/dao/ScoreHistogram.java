@@ -0,0 +1,144 @@
+package dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 成绩直方图
+ * 由ScoreDao按任意分段边界一次分组查询得到，只计已录入分数的成绩，
+ * 每段有人数、段内平均分、占比和累计占比。分段规则与ScoreStatistics相同：
+ * 第0段为低于第一个边界，第i段为[boundaries[i-1], boundaries[i])，最后一段为不低于最后一个边界。
+ * 创建后不再改变，可被查询结果缓存共享。
+ */
+public class ScoreHistogram {
+
+    /** 分段数上限（按组距分段时组距不能小于1分） */
+    public static final int MAX_BUCKETS = 100;
+
+    private final double[] boundaries;
+    private final String[] labels;
+    private final int[] counts;
+    private final double[] sums;
+    private final int[] cumulativeCounts;
+    private final int totalCount;
+    private final double totalSum;
+
+    ScoreHistogram(double[] boundaries, int[] counts, double[] sums) {
+        this.boundaries = boundaries.clone();
+        this.labels = ScoreStatistics.bucketLabels(boundaries);
+        this.counts = counts;
+        this.sums = sums;
+        this.cumulativeCounts = new int[counts.length];
+        int total = 0;
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            sum += sums[i];
+            cumulativeCounts[i] = total;
+        }
+        this.totalCount = total;
+        this.totalSum = sum;
+    }
+
+    /**
+     * 校验分段边界，并限制分段数
+     */
+    static void checkBoundaries(double[] boundaries) {
+        ScoreStatistics.checkBoundaries(boundaries);
+        if (boundaries.length + 1 > MAX_BUCKETS) {
+            throw new IllegalArgumentException("分段数不能超过" + MAX_BUCKETS);
+        }
+    }
+
+    /**
+     * 按固定组距从0分开始分段，如组距10得到边界10, 20, ..., 90，最后一段为90-100
+     */
+    public static double[] boundariesOfWidth(double width) {
+        if (!(width >= 1) || width > 100) {
+            throw new IllegalArgumentException("组距必须在1-100之间");
+        }
+        int count = (int) Math.ceil(100 / width - 1e-9) - 1;
+        if (count == 0) {
+            // 组距不小于100时只有一段，用满分作为唯一边界
+            return new double[]{100};
+        }
+        double[] boundaries = new double[count];
+        for (int i = 0; i < count; i++) {
+            boundaries[i] = (i + 1) * width;
+        }
+        return boundaries;
+    }
+
+    /**
+     * 分段数
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    public double[] getBoundaries() {
+        return boundaries.clone();
+    }
+
+    /**
+     * 第index段的标签，默认分段为等级名称，否则形如"<60"、"60-70"、"≥90"
+     */
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * 第index段的平均分，该段没有成绩时为null
+     */
+    public Double getMean(int index) {
+        return counts[index] == 0 ? null : sums[index] / counts[index];
+    }
+
+    /**
+     * 第index段人数占总人数的百分比
+     */
+    public double getPercent(int index) {
+        return totalCount == 0 ? 0 : counts[index] * 100.0 / totalCount;
+    }
+
+    /**
+     * 从第0段到第index段累计人数占总人数的百分比
+     */
+    public double getCumulativePercent(int index) {
+        return totalCount == 0 ? 0 : cumulativeCounts[index] * 100.0 / totalCount;
+    }
+
+    /**
+     * 已录入分数的成绩数
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 全部成绩的平均分，没有成绩时为null
+     */
+    public Double getAverageScore() {
+        return totalCount == 0 ? null : totalSum / totalCount;
+    }
+
+    /**
+     * 分段人数，按分数从低到高排列
+     */
+    public Map<String, Integer> getDistribution() {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            distribution.put(labels[i], counts[i]);
+        }
+        return distribution;
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreHistogram{total=" + totalCount + ", distribution=" + getDistribution() + "}";
+    }
+}
@@ -0,0 +1,152 @@
+package dao;
+
+import java.util.Objects;
+
+/**
+ * 成绩查询条件
+ * 为空的条件不参与过滤
+ */
+public class ScoreQuery {
+    private String studentNo;   // 学号（模糊匹配）
+    private String studentName; // 姓名（模糊匹配）
+    private Integer classId;
+    private Integer courseId;
+    private String examType;
+    private Double minScore;
+    private Double maxScore;
+    private Integer studentId;  // 限定某个学生（学生本人查看）
+    private Integer teacherId;  // 限定某个教师的课程（教师查看）
+    private String semester;    // 课程所在学期
+    
+    public ScoreQuery() {}
+    
+    public ScoreQuery(String studentNo, String studentName, Integer classId,
+                      Integer courseId, String examType, Double minScore, Double maxScore) {
+        this.studentNo = studentNo;
+        this.studentName = studentName;
+        this.classId = classId;
+        this.courseId = courseId;
+        this.examType = examType;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+    }
+    
+    public String getStudentNo() {
+        return studentNo;
+    }
+    
+    public void setStudentNo(String studentNo) {
+        this.studentNo = studentNo;
+    }
+    
+    public String getStudentName() {
+        return studentName;
+    }
+    
+    public void setStudentName(String studentName) {
+        this.studentName = studentName;
+    }
+    
+    public Integer getClassId() {
+        return classId;
+    }
+    
+    public void setClassId(Integer classId) {
+        this.classId = classId;
+    }
+    
+    public Integer getCourseId() {
+        return courseId;
+    }
+    
+    public void setCourseId(Integer courseId) {
+        this.courseId = courseId;
+    }
+    
+    public String getExamType() {
+        return examType;
+    }
+    
+    public void setExamType(String examType) {
+        this.examType = examType;
+    }
+    
+    public Double getMinScore() {
+        return minScore;
+    }
+    
+    public void setMinScore(Double minScore) {
+        this.minScore = minScore;
+    }
+    
+    public Double getMaxScore() {
+        return maxScore;
+    }
+    
+    public void setMaxScore(Double maxScore) {
+        this.maxScore = maxScore;
+    }
+    
+    public Integer getStudentId() {
+        return studentId;
+    }
+    
+    public void setStudentId(Integer studentId) {
+        this.studentId = studentId;
+    }
+    
+    public Integer getTeacherId() {
+        return teacherId;
+    }
+    
+    public void setTeacherId(Integer teacherId) {
+        this.teacherId = teacherId;
+    }
+    
+    public String getSemester() {
+        return semester;
+    }
+    
+    public void setSemester(String semester) {
+        this.semester = semester;
+    }
+    
+    /**
+     * 规范化的副本，用作查询结果缓存的键
+     * 模糊匹配条件去掉两端空白，空白条件视为不过滤，与拼接SQL时的处理一致
+     */
+    ScoreQuery normalized() {
+        ScoreQuery copy = new ScoreQuery(trimToNull(studentNo), trimToNull(studentName), classId,
+                courseId, blankToNull(examType), minScore, maxScore);
+        copy.setStudentId(studentId);
+        copy.setTeacherId(teacherId);
+        copy.setSemester(blankToNull(semester));
+        return copy;
+    }
+    
+    static String trimToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+    
+    static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScoreQuery)) return false;
+        ScoreQuery that = (ScoreQuery) o;
+        return Objects.equals(studentNo, that.studentNo) && Objects.equals(studentName, that.studentName)
+                && Objects.equals(classId, that.classId) && Objects.equals(courseId, that.courseId)
+                && Objects.equals(examType, that.examType) && Objects.equals(minScore, that.minScore)
+                && Objects.equals(maxScore, that.maxScore) && Objects.equals(studentId, that.studentId)
+                && Objects.equals(teacherId, that.teacherId) && Objects.equals(semester, that.semester);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(studentNo, studentName, classId, courseId, examType, minScore, maxScore,
+                studentId, teacherId, semester);
+    }
+}
@@ -0,0 +1,125 @@
+package dao;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 课程成绩统计结果
+ * 由ScoreDao一次扫描tb_score得到：记录数、平均分、最高/最低分、标准差、及格率和分段人数
+ */
+public class ScoreStatistics {
+
+    /** 及格线 */
+    public static final double PASS_SCORE = 60;
+
+    /** 默认分段边界，对应不及格/及格/中等/良好/优秀 */
+    public static final double[] DEFAULT_BOUNDARIES = {60, 70, 80, 90};
+
+    private static final String[] DEFAULT_LABELS = {
+        "不及格(<60)", "及格(60-69)", "中等(70-79)", "良好(80-89)", "优秀(90-100)"
+    };
+
+    private Integer courseId;
+    private int totalCount;          // 成绩记录数（含未录入分数的）
+    private int scoredCount;         // 已录入分数的记录数
+    private Double averageScore;
+    private Double maxScore;
+    private Double minScore;
+    private Double stdDev;           // 总体标准差
+    private int passCount;
+    private double[] boundaries;
+    private int[] bucketCounts;      // 长度为boundaries.length + 1
+
+    /**
+     * 校验分段边界：不能为空且必须严格递增
+     */
+    static void checkBoundaries(double[] boundaries) {
+        if (boundaries == null || boundaries.length == 0) {
+            throw new IllegalArgumentException("分段边界不能为空");
+        }
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException("分段边界必须严格递增");
+            }
+        }
+    }
+
+    /**
+     * 及格率（百分比），以全部成绩记录为分母，未录入分数的视为不及格
+     */
+    public double getPassRate() {
+        return totalCount == 0 ? 0 : passCount * 100.0 / totalCount;
+    }
+
+    /**
+     * 分段人数，按分数从低到高排列
+     * 使用默认分段时标签与getScoreDistributionByCourseId一致，否则形如"<60"、"60-70"、"≥90"
+     */
+    public Map<String, Integer> getDistribution() {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        String[] labels = bucketLabels(boundaries);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            distribution.put(labels[i], bucketCounts[i]);
+        }
+        return distribution;
+    }
+
+    /**
+     * 各分段的标签：默认分段为等级名称，否则形如"<60"、"60-70"、"≥90"
+     */
+    static String[] bucketLabels(double[] boundaries) {
+        if (Arrays.equals(boundaries, DEFAULT_BOUNDARIES)) {
+            return DEFAULT_LABELS.clone();
+        }
+        String[] labels = new String[boundaries.length + 1];
+        labels[0] = "<" + format(boundaries[0]);
+        for (int i = 1; i < boundaries.length; i++) {
+            labels[i] = format(boundaries[i - 1]) + "-" + format(boundaries[i]);
+        }
+        labels[boundaries.length] = "≥" + format(boundaries[boundaries.length - 1]);
+        return labels;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    // Getter和Setter方法
+    public Integer getCourseId() { return courseId; }
+    public void setCourseId(Integer courseId) { this.courseId = courseId; }
+
+    public int getTotalCount() { return totalCount; }
+    public void setTotalCount(int totalCount) { this.totalCount = totalCount; }
+
+    public int getScoredCount() { return scoredCount; }
+    public void setScoredCount(int scoredCount) { this.scoredCount = scoredCount; }
+
+    public Double getAverageScore() { return averageScore; }
+    public void setAverageScore(Double averageScore) { this.averageScore = averageScore; }
+
+    public Double getMaxScore() { return maxScore; }
+    public void setMaxScore(Double maxScore) { this.maxScore = maxScore; }
+
+    public Double getMinScore() { return minScore; }
+    public void setMinScore(Double minScore) { this.minScore = minScore; }
+
+    public Double getStdDev() { return stdDev; }
+    public void setStdDev(Double stdDev) { this.stdDev = stdDev; }
+
+    public int getPassCount() { return passCount; }
+    public void setPassCount(int passCount) { this.passCount = passCount; }
+
+    public double[] getBoundaries() { return boundaries; }
+    public void setBoundaries(double[] boundaries) { this.boundaries = boundaries; }
+
+    public int[] getBucketCounts() { return bucketCounts; }
+    public void setBucketCounts(int[] bucketCounts) { this.bucketCounts = bucketCounts; }
+
+    @Override
+    public String toString() {
+        return "ScoreStatistics{courseId=" + courseId + ", total=" + totalCount + ", avg=" + averageScore
+                + ", max=" + maxScore + ", min=" + minScore + ", stdDev=" + stdDev
+                + ", passRate=" + String.format("%.1f%%", getPassRate()) + ", distribution=" + getDistribution() + "}";
+    }
+}
@@ -0,0 +1,246 @@
+package dao;
+
+import entity.Student;
+import util.DBUtil;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 学生实体缓存
+ * 按ID和学号两个索引缓存单个学生，成绩录入时对同一班级名单的反复查找不再访问数据库。
+ * 容量有限（db.cache.student.maxSize，默认5000），超出时淘汰最久未使用的学生。
+ * 事务外的更新直接写入缓存，事务中的写操作在事务提交后使对应学生失效；
+ * 缓存中保存的是副本，取出时也返回副本，调用方可以随意修改。
+ */
+public class StudentCache {
+
+    private static final StudentCache instance = new StudentCache(
+            DBUtil.getConfigInt("db.cache.student.maxSize", 5000));
+
+    private final int maxSize;
+    private final LinkedHashMap<Integer, Student> byId;
+    private final Map<String, Integer> idByStudentNo = new HashMap<>();
+
+    // 任一写操作时递增，加载期间版本变化的结果不放入缓存
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private StudentCache(int maxSize) {
+        this.maxSize = Math.max(maxSize, 0);
+        this.byId = new LinkedHashMap<Integer, Student>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Student> eldest) {
+                if (size() > StudentCache.this.maxSize) {
+                    idByStudentNo.remove(eldest.getValue().getStudentNo());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static StudentCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * 根据ID获取学生，未缓存时通过loader查询并放入缓存
+     */
+    Student getById(Integer id, StudentLoader loader) throws SQLException {
+        if (id == null) {
+            return null;
+        }
+        long loadVersion;
+        synchronized (this) {
+            Student cached = byId.get(id);
+            if (cached != null) {
+                hits++;
+                return copy(cached);
+            }
+            misses++;
+            loadVersion = version;
+        }
+        return load(loader, loadVersion);
+    }
+
+    /**
+     * 根据学号获取学生，未缓存时通过loader查询并放入缓存
+     */
+    Student getByStudentNo(String studentNo, StudentLoader loader) throws SQLException {
+        if (studentNo == null) {
+            return null;
+        }
+        long loadVersion;
+        synchronized (this) {
+            Integer id = idByStudentNo.get(studentNo);
+            Student cached = id == null ? null : byId.get(id);
+            if (cached != null) {
+                hits++;
+                return copy(cached);
+            }
+            misses++;
+            loadVersion = version;
+        }
+        return load(loader, loadVersion);
+    }
+
+    private Student load(StudentLoader loader, long loadVersion) throws SQLException {
+        // 从主库加载，避免把副本上复制延迟前的旧数据放进缓存
+        Student loaded = DBUtil.withPrimary(loader::load);
+        // 事务中读到的可能是未提交的数据，不放入缓存
+        if (loaded != null && !DBUtil.isInTransaction()) {
+            synchronized (this) {
+                if (version == loadVersion) {
+                    store(copy(loaded));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 更新后写入缓存：事务外直接替换缓存中的学生，事务中先失效，提交后再次查询时重新加载
+     * 仅替换已缓存的学生，create_time和班级名称沿用缓存中的值，换了班级的则失效
+     */
+    void updated(Student student) {
+        if (student == null || student.getId() == null) {
+            return;
+        }
+        if (DBUtil.isInTransaction()) {
+            evict(student.getId());
+            return;
+        }
+        Student fresh = copy(student);
+        synchronized (this) {
+            version++;
+            Student cached = byId.get(fresh.getId());
+            removeEntry(fresh.getId());
+            if (cached != null && Objects.equals(cached.getClassId(), fresh.getClassId())) {
+                fresh.setCreateTime(cached.getCreateTime());
+                fresh.setClassName(cached.getClassName());
+                store(fresh);
+            }
+        }
+    }
+
+    /**
+     * 使指定学生失效（事务中则在事务提交后再失效一次，防止期间被重新加载）
+     */
+    void evict(Integer id) {
+        if (id == null) {
+            return;
+        }
+        remove(id);
+        DBUtil.afterTransaction(() -> remove(id));
+    }
+
+    /**
+     * 学号变更或批量写入时清空全部缓存
+     */
+    void changed() {
+        clear();
+        DBUtil.afterTransaction(this::clear);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        version++;
+        byId.clear();
+        idByStudentNo.clear();
+    }
+
+    private synchronized void remove(Integer id) {
+        version++;
+        removeEntry(id);
+    }
+
+    private void removeEntry(Integer id) {
+        Student removed = byId.remove(id);
+        if (removed != null) {
+            idByStudentNo.remove(removed.getStudentNo());
+        }
+    }
+
+    private void store(Student student) {
+        if (maxSize == 0) {
+            return;
+        }
+        // 学号已被另一个缓存的学生占用时（学号变更尚未失效），先移除旧记录
+        Integer previous = idByStudentNo.get(student.getStudentNo());
+        if (previous != null && !previous.equals(student.getId())) {
+            byId.remove(previous);
+        }
+        removeEntry(student.getId());
+        byId.put(student.getId(), student);
+        if (student.getStudentNo() != null) {
+            idByStudentNo.put(student.getStudentNo(), student.getId());
+        }
+    }
+
+    static Student copy(Student source) {
+        Student target = new Student();
+        target.setId(source.getId());
+        target.setStudentNo(source.getStudentNo());
+        target.setName(source.getName());
+        target.setGender(source.getGender());
+        target.setBirthDate(source.getBirthDate());
+        target.setPhone(source.getPhone());
+        target.setEmail(source.getEmail());
+        target.setAddress(source.getAddress());
+        target.setClassId(source.getClassId());
+        target.setEnrollmentDate(source.getEnrollmentDate());
+        target.setStatus(source.getStatus());
+        target.setCreateTime(source.getCreateTime());
+        target.setClassName(source.getClassName());
+        return target;
+    }
+
+    /**
+     * 当前缓存的学生数
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * 命中率（百分比）
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits * 100.0 / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StudentCache{size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d}",
+                byId.size(), maxSize, hits, misses, getHitRate(), evictions);
+    }
+
+    /**
+     * 未命中时的查询
+     */
+    @FunctionalInterface
+    interface StudentLoader {
+        Student load() throws SQLException;
+    }
+}
@@ -1,37 +1,94 @@
 package dao;
 
 import entity.Student;
+import util.DBUtil;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 学生数据访问类
  */
 public class StudentDao extends BaseDao<Student> {
     
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_student (student_no, name, gender, birth_date, phone, email, " +
+            "address, class_id, enrollment_date, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String UPDATE_SQL =
+            "UPDATE tb_student SET student_no = ?, name = ?, gender = ?, birth_date = ?, " +
+            "phone = ?, email = ?, address = ?, class_id = ?, enrollment_date = ?, status = ? " +
+            "WHERE id = ?";
+    
+    private final StudentCache cache = StudentCache.getInstance();
+    
+    // 多条件查询的结果缓存，所有实例共享；学生数据变化时全部失效
+    private static final QueryResultCache<Void> searchCache = new QueryResultCache<>("student");
+    
+    /**
+     * 学生多条件查询的结果缓存，可查看命中率
+     */
+    public static QueryResultCache<?> getSearchCache() {
+        return searchCache;
+    }
+    
+    /**
+     * 班级数据变化，查询结果中带有班级名称，全部失效
+     */
+    static void classesChanged() {
+        searchCache.invalidateAll();
+    }
+    
     @Override
-    protected Student mapRow(ResultSet rs) throws SQLException {
-        Student student = new Student();
-        student.setId(rs.getInt("id"));
-        student.setStudentNo(rs.getString("student_no"));
-        student.setName(rs.getString("name"));
-        student.setGender(rs.getString("gender"));
-        student.setBirthDate(rs.getDate("birth_date"));
-        student.setPhone(rs.getString("phone"));
-        student.setEmail(rs.getString("email"));
-        student.setAddress(rs.getString("address"));
-        student.setClassId(rs.getObject("class_id") != null ? rs.getInt("class_id") : null);
-        student.setEnrollmentDate(rs.getDate("enrollment_date"));
-        student.setStatus(rs.getString("status"));
-        student.setCreateTime(rs.getTimestamp("create_time"));
-        
-        // 尝试获取关联的班级名称
-        try {
-            student.setClassName(rs.getString("class_name"));
-        } catch (SQLException ignored) {}
+    protected void afterWrite() {
+        // 班级中带有学生人数，学生变化时班级缓存和人数统计失效
+        ReferenceDataCache.classesChanged();
+        ClassStudentCounter.changed();
+        searchCache.invalidateAll();
+        ScoreDao.relatedDataChanged();
+        // 删除会级联删除成绩，学生换班影响班级平均分
+        ScoreColumnStore.getInstance().dimensionsChanged();
+    }
+    
+    @Override
+    protected RowMapper<Student> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int studentNo = columns.indexOf("student_no");
+        final int name = columns.indexOf("name");
+        final int gender = columns.indexOf("gender");
+        final int birthDate = columns.indexOf("birth_date");
+        final int phone = columns.indexOf("phone");
+        final int email = columns.indexOf("email");
+        final int address = columns.indexOf("address");
+        final int classId = columns.indexOf("class_id");
+        final int enrollmentDate = columns.indexOf("enrollment_date");
+        final int status = columns.indexOf("status");
+        final int createTime = columns.indexOf("create_time");
+        // 关联的班级名称（仅联表查询中存在）
+        final int className = columns.indexOf("class_name");
         
-        return student;
+        return rs -> {
+            Student student = new Student();
+            student.setId(getInteger(rs, id));
+            student.setStudentNo(getString(rs, studentNo));
+            student.setName(getString(rs, name));
+            student.setGender(getString(rs, gender));
+            student.setBirthDate(getDate(rs, birthDate));
+            student.setPhone(getString(rs, phone));
+            student.setEmail(getString(rs, email));
+            student.setAddress(getString(rs, address));
+            student.setClassId(getInteger(rs, classId));
+            student.setEnrollmentDate(getDate(rs, enrollmentDate));
+            student.setStatus(getString(rs, status));
+            student.setCreateTime(getTimestamp(rs, createTime));
+            student.setClassName(getString(rs, className));
+            return student;
+        };
     }
     
     /**
@@ -51,7 +108,7 @@ public class StudentDao extends BaseDao<Student> {
         String sql = "SELECT s.*, c.class_name FROM tb_student s " +
                      "LEFT JOIN tb_class c ON s.class_id = c.id " +
                      "WHERE s.id = ?";
-        return queryOne(sql, id);
+        return cache.getById(id, () -> queryOne(sql, id));
     }
     
     /**
@@ -61,7 +118,7 @@ public class StudentDao extends BaseDao<Student> {
         String sql = "SELECT s.*, c.class_name FROM tb_student s " +
                      "LEFT JOIN tb_class c ON s.class_id = c.id " +
                      "WHERE s.student_no = ?";
-        return queryOne(sql, studentNo);
+        return cache.getByStudentNo(studentNo, () -> queryOne(sql, studentNo));
     }
     
     /**
@@ -78,56 +135,188 @@ public class StudentDao extends BaseDao<Student> {
      * 多条件查询学生
      */
     public List<Student> search(String studentNo, String name, Integer classId, String status) throws SQLException {
+        return search(new StudentQuery(studentNo, name, classId, status));
+    }
+    
+    /**
+     * 多条件查询学生
+     */
+    public List<Student> search(StudentQuery query) throws SQLException {
+        StudentQuery key = query.normalized();
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT s.*, c.class_name FROM tb_student s ");
+        sql.append("LEFT JOIN tb_class c ON s.class_id = c.id WHERE 1=1 ");
+        
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
+        
+        sql.append("ORDER BY s.student_no");
+        
+        List<Student> list = searchCache.get(Arrays.asList("search", key), null,
+                () -> queryList(sql.toString(), params.toArray()));
+        return copyStudents(list);
+    }
+    
+    /**
+     * 游标方式逐行处理符合条件的学生（带班级名称），用于大批量导出，不经过结果缓存
+     * @return 处理的行数
+     */
+    public int forEachMatching(StudentQuery query, RowCallback<Student> callback) throws SQLException {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT s.*, c.class_name FROM tb_student s ");
         sql.append("LEFT JOIN tb_class c ON s.class_id = c.id WHERE 1=1 ");
         
         List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, query.normalized());
+        
+        sql.append("ORDER BY s.student_no");
         
-        if (studentNo != null && !studentNo.trim().isEmpty()) {
+        return forEachRow(sql.toString(), callback, params.toArray());
+    }
+    
+    /**
+     * 分页查询学生（键集分页，按学号排序）
+     * @param cursorStudentNo 翻页起点：当前页最后一行（向后翻）或第一行（向前翻）的学号，为null时取第一页
+     * @param forward true向后翻页，false向前翻页
+     * @param pageSize 每页行数
+     * @return 当前页数据，始终按学号升序
+     */
+    public List<Student> searchPage(StudentQuery query, String cursorStudentNo,
+                                    boolean forward, int pageSize) throws SQLException {
+        StudentQuery key = query.normalized();
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT s.*, c.class_name FROM tb_student s ");
+        sql.append("LEFT JOIN tb_class c ON s.class_id = c.id WHERE 1=1 ");
+        
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
+        
+        if (cursorStudentNo != null) {
+            sql.append(forward ? "AND s.student_no > ? " : "AND s.student_no < ? ");
+            params.add(cursorStudentNo);
+        }
+        
+        sql.append(forward ? "ORDER BY s.student_no " : "ORDER BY s.student_no DESC ");
+        sql.append("LIMIT ?");
+        params.add(pageSize);
+        
+        List<Object> cacheKey = Arrays.asList("page", key, cursorStudentNo, forward, pageSize);
+        List<Student> page = searchCache.get(cacheKey, null, () -> {
+            List<Student> list = queryList(sql.toString(), params.toArray());
+            if (!forward) {
+                Collections.reverse(list);
+            }
+            return list;
+        });
+        return copyStudents(page);
+    }
+    
+    /**
+     * 统计符合条件的学生数量
+     */
+    public int searchCount(StudentQuery query) throws SQLException {
+        StudentQuery key = query.normalized();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM tb_student s WHERE 1=1 ");
+        List<Object> params = new ArrayList<>();
+        appendConditions(sql, params, key);
+        return searchCache.get(Arrays.asList("count", key), null,
+                () -> queryCount(sql.toString(), params.toArray()));
+    }
+    
+    private static List<Student> copyStudents(List<Student> students) {
+        List<Student> copies = new ArrayList<>(students.size());
+        for (Student student : students) {
+            copies.add(StudentCache.copy(student));
+        }
+        return copies;
+    }
+    
+    /**
+     * 拼接查询条件
+     */
+    private void appendConditions(StringBuilder sql, List<Object> params, StudentQuery query) {
+        if (query.getStudentNo() != null && !query.getStudentNo().trim().isEmpty()) {
             sql.append("AND s.student_no LIKE ? ");
-            params.add("%" + studentNo.trim() + "%");
+            params.add("%" + query.getStudentNo().trim() + "%");
         }
-        if (name != null && !name.trim().isEmpty()) {
+        if (query.getName() != null && !query.getName().trim().isEmpty()) {
             sql.append("AND s.name LIKE ? ");
-            params.add("%" + name.trim() + "%");
+            params.add("%" + query.getName().trim() + "%");
         }
-        if (classId != null) {
+        if (query.getClassId() != null) {
             sql.append("AND s.class_id = ? ");
-            params.add(classId);
+            params.add(query.getClassId());
         }
-        if (status != null && !status.trim().isEmpty()) {
+        if (query.getStatus() != null && !query.getStatus().trim().isEmpty()) {
             sql.append("AND s.status = ? ");
-            params.add(status);
+            params.add(query.getStatus());
         }
-        
-        sql.append("ORDER BY s.student_no");
-        
-        return queryList(sql.toString(), params.toArray());
     }
     
     /**
      * 添加学生
      */
     public int insert(Student student) throws SQLException {
-        String sql = "INSERT INTO tb_student (student_no, name, gender, birth_date, phone, email, " +
-                     "address, class_id, enrollment_date, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        return executeInsert(sql, student.getStudentNo(), student.getName(), student.getGender(),
-                student.getBirthDate(), student.getPhone(), student.getEmail(), student.getAddress(),
-                student.getClassId(), student.getEnrollmentDate(), 
-                student.getStatus() != null ? student.getStatus() : "在读");
+        return executeInsert(INSERT_SQL, insertParams(student));
+    }
+    
+    /**
+     * 批量添加学生，生成的ID会回填到每个学生对象
+     * @return 插入的行数
+     */
+    public int insertBatch(List<Student> students) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(students.size());
+        for (Student student : students) {
+            rows.add(insertParams(student));
+        }
+        BatchResult result = executeInsertBatch(INSERT_SQL, rows);
+        List<Integer> keys = result.getGeneratedKeys();
+        if (keys.size() == students.size()) {
+            for (int i = 0; i < students.size(); i++) {
+                students.get(i).setId(keys.get(i));
+            }
+        }
+        return result.getSuccessCount();
     }
     
     /**
      * 更新学生
      */
     public int update(Student student) throws SQLException {
-        String sql = "UPDATE tb_student SET student_no = ?, name = ?, gender = ?, birth_date = ?, " +
-                     "phone = ?, email = ?, address = ?, class_id = ?, enrollment_date = ?, status = ? " +
-                     "WHERE id = ?";
-        return executeUpdate(sql, student.getStudentNo(), student.getName(), student.getGender(),
+        int rows = executeUpdate(UPDATE_SQL, updateParams(student));
+        if (rows > 0) {
+            cache.updated(student);
+        }
+        return rows;
+    }
+    
+    /**
+     * 批量更新学生
+     * @return 更新成功的行数
+     */
+    public int updateBatch(List<Student> students) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(students.size());
+        for (Student student : students) {
+            rows.add(updateParams(student));
+        }
+        int count = executeBatch(UPDATE_SQL, rows).getSuccessCount();
+        for (Student student : students) {
+            cache.evict(student.getId());
+        }
+        return count;
+    }
+    
+    private Object[] insertParams(Student student) {
+        return new Object[]{student.getStudentNo(), student.getName(), student.getGender(),
+                student.getBirthDate(), student.getPhone(), student.getEmail(), student.getAddress(),
+                student.getClassId(), student.getEnrollmentDate(),
+                student.getStatus() != null ? student.getStatus() : "在读"};
+    }
+    
+    private Object[] updateParams(Student student) {
+        return new Object[]{student.getStudentNo(), student.getName(), student.getGender(),
                 student.getBirthDate(), student.getPhone(), student.getEmail(), student.getAddress(),
-                student.getClassId(), student.getEnrollmentDate(), student.getStatus(), student.getId());
+                student.getClassId(), student.getEnrollmentDate(), student.getStatus(), student.getId()};
     }
     
     /**
@@ -135,7 +324,9 @@ public class StudentDao extends BaseDao<Student> {
      */
     public int delete(Integer id) throws SQLException {
         String sql = "DELETE FROM tb_student WHERE id = ?";
-        return executeUpdate(sql, id);
+        int rows = executeUpdate(sql, id);
+        cache.evict(id);
+        return rows;
     }
     
     /**
@@ -151,7 +342,11 @@ public class StudentDao extends BaseDao<Student> {
         }
         sql.append(")");
         
-        return executeUpdate(sql.toString(), ids.toArray());
+        int rows = executeUpdate(sql.toString(), ids.toArray());
+        for (Integer id : ids) {
+            cache.evict(id);
+        }
+        return rows;
     }
     
     /**
@@ -170,6 +365,23 @@ public class StudentDao extends BaseDao<Student> {
         return queryCount(sql, studentNo, excludeId) > 0;
     }
     
+    /**
+     * 查询全部学号（主库，游标读取），用于批量导入前一次性判断学号是否重复
+     */
+    public Set<String> findAllStudentNos() throws SQLException {
+        return findIdsByStudentNo().keySet();
+    }
+    
+    /**
+     * 查询全部学号到学生ID的映射（主库，游标读取），用于批量导入时在内存中解析学号
+     */
+    public Map<String, Integer> findIdsByStudentNo() throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        DBUtil.withPrimary(() -> forEachRow("SELECT id, student_no FROM tb_student",
+                student -> ids.put(student.getStudentNo(), student.getId())));
+        return ids;
+    }
+    
     /**
      * 统计学生总数
      */
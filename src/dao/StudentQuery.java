@@ -0,0 +1,78 @@
+package dao;
+
+import java.util.Objects;
+
+/**
+ * 学生查询条件
+ * 为空的条件不参与过滤
+ */
+public class StudentQuery {
+    private String studentNo;   // 学号（模糊匹配）
+    private String name;        // 姓名（模糊匹配）
+    private Integer classId;
+    private String status;
+    
+    public StudentQuery() {}
+    
+    public StudentQuery(String studentNo, String name, Integer classId, String status) {
+        this.studentNo = studentNo;
+        this.name = name;
+        this.classId = classId;
+        this.status = status;
+    }
+    
+    public String getStudentNo() {
+        return studentNo;
+    }
+    
+    public void setStudentNo(String studentNo) {
+        this.studentNo = studentNo;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public Integer getClassId() {
+        return classId;
+    }
+    
+    public void setClassId(Integer classId) {
+        this.classId = classId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    /**
+     * 规范化的副本，用作查询结果缓存的键
+     * 模糊匹配条件去掉两端空白，空白条件视为不过滤，与拼接SQL时的处理一致
+     */
+    StudentQuery normalized() {
+        return new StudentQuery(ScoreQuery.trimToNull(studentNo), ScoreQuery.trimToNull(name), classId,
+                ScoreQuery.blankToNull(status));
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentQuery)) return false;
+        StudentQuery that = (StudentQuery) o;
+        return Objects.equals(studentNo, that.studentNo) && Objects.equals(name, that.name)
+                && Objects.equals(classId, that.classId) && Objects.equals(status, that.status);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(studentNo, name, classId, status);
+    }
+}
@@ -11,18 +11,38 @@ import java.util.List;
 public class TeacherDao extends BaseDao<Teacher> {
     
     @Override
-    protected Teacher mapRow(ResultSet rs) throws SQLException {
-        Teacher teacher = new Teacher();
-        teacher.setId(rs.getInt("id"));
-        teacher.setTeacherNo(rs.getString("teacher_no"));
-        teacher.setName(rs.getString("name"));
-        teacher.setGender(rs.getString("gender"));
-        teacher.setPhone(rs.getString("phone"));
-        teacher.setEmail(rs.getString("email"));
-        teacher.setDepartment(rs.getString("department"));
-        teacher.setTitle(rs.getString("title"));
-        teacher.setCreateTime(rs.getTimestamp("create_time"));
-        return teacher;
+    protected void afterWrite() {
+        // 使基础数据缓存失效
+        ReferenceDataCache.teachersChanged();
+        // 成绩查询结果中带有课程和教师名称
+        ScoreDao.relatedDataChanged();
+    }
+    
+    @Override
+    protected RowMapper<Teacher> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int teacherNo = columns.indexOf("teacher_no");
+        final int name = columns.indexOf("name");
+        final int gender = columns.indexOf("gender");
+        final int phone = columns.indexOf("phone");
+        final int email = columns.indexOf("email");
+        final int department = columns.indexOf("department");
+        final int title = columns.indexOf("title");
+        final int createTime = columns.indexOf("create_time");
+        
+        return rs -> {
+            Teacher teacher = new Teacher();
+            teacher.setId(getInteger(rs, id));
+            teacher.setTeacherNo(getString(rs, teacherNo));
+            teacher.setName(getString(rs, name));
+            teacher.setGender(getString(rs, gender));
+            teacher.setPhone(getString(rs, phone));
+            teacher.setEmail(getString(rs, email));
+            teacher.setDepartment(getString(rs, department));
+            teacher.setTitle(getString(rs, title));
+            teacher.setCreateTime(getTimestamp(rs, createTime));
+            return teacher;
+        };
     }
     
     /**
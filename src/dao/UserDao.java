@@ -1,25 +1,45 @@
 package dao;
 
 import entity.User;
+import util.DBUtil;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 用户数据访问类
  */
 public class UserDao extends BaseDao<User> {
     
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_user (username, password, role, related_id, status) VALUES (?, ?, ?, ?, ?)";
+    
+    private static final String UPDATE_SQL =
+            "UPDATE tb_user SET password = ?, role = ?, related_id = ?, status = ? WHERE id = ?";
+    
     @Override
-    protected User mapRow(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setUsername(rs.getString("username"));
-        user.setPassword(rs.getString("password"));
-        user.setRole(rs.getString("role"));
-        user.setRelatedId(rs.getObject("related_id") != null ? rs.getInt("related_id") : null);
-        user.setCreateTime(rs.getTimestamp("create_time"));
-        user.setStatus(rs.getInt("status"));
-        return user;
+    protected RowMapper<User> createRowMapper(ColumnIndex columns) {
+        final int id = columns.indexOf("id");
+        final int username = columns.indexOf("username");
+        final int password = columns.indexOf("password");
+        final int role = columns.indexOf("role");
+        final int relatedId = columns.indexOf("related_id");
+        final int createTime = columns.indexOf("create_time");
+        final int status = columns.indexOf("status");
+        
+        return rs -> {
+            User user = new User();
+            user.setId(getInteger(rs, id));
+            user.setUsername(getString(rs, username));
+            user.setPassword(getString(rs, password));
+            user.setRole(getString(rs, role));
+            user.setRelatedId(getInteger(rs, relatedId));
+            user.setCreateTime(getTimestamp(rs, createTime));
+            user.setStatus(status != 0 ? rs.getInt(status) : null);
+            return user;
+        };
     }
     
     /**
@@ -54,22 +74,69 @@ public class UserDao extends BaseDao<User> {
         return queryList(sql, role);
     }
     
+    /**
+     * 查询全部用户名（主库，游标读取），用于批量创建账户前一次性判断是否重复
+     */
+    public Set<String> findAllUsernames() throws SQLException {
+        Set<String> usernames = new HashSet<>();
+        DBUtil.withPrimary(() -> forEachRow("SELECT username FROM tb_user",
+                user -> usernames.add(user.getUsername())));
+        return usernames;
+    }
+    
     /**
      * 添加用户
      */
     public int insert(User user) throws SQLException {
-        String sql = "INSERT INTO tb_user (username, password, role, related_id, status) VALUES (?, ?, ?, ?, ?)";
-        return executeInsert(sql, user.getUsername(), user.getPassword(), 
-                user.getRole(), user.getRelatedId(), user.getStatus() != null ? user.getStatus() : 1);
+        return executeInsert(INSERT_SQL, insertParams(user));
+    }
+    
+    /**
+     * 批量添加用户，生成的ID会回填到每个用户对象
+     * @return 插入的行数
+     */
+    public int insertBatch(List<User> users) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(users.size());
+        for (User user : users) {
+            rows.add(insertParams(user));
+        }
+        BatchResult result = executeInsertBatch(INSERT_SQL, rows);
+        List<Integer> keys = result.getGeneratedKeys();
+        if (keys.size() == users.size()) {
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(keys.get(i));
+            }
+        }
+        return result.getSuccessCount();
     }
     
     /**
      * 更新用户
      */
     public int update(User user) throws SQLException {
-        String sql = "UPDATE tb_user SET password = ?, role = ?, related_id = ?, status = ? WHERE id = ?";
-        return executeUpdate(sql, user.getPassword(), user.getRole(), 
-                user.getRelatedId(), user.getStatus(), user.getId());
+        return executeUpdate(UPDATE_SQL, updateParams(user));
+    }
+    
+    /**
+     * 批量更新用户
+     * @return 更新成功的行数
+     */
+    public int updateBatch(List<User> users) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(users.size());
+        for (User user : users) {
+            rows.add(updateParams(user));
+        }
+        return executeBatch(UPDATE_SQL, rows).getSuccessCount();
+    }
+    
+    private Object[] insertParams(User user) {
+        return new Object[]{user.getUsername(), user.getPassword(),
+                user.getRole(), user.getRelatedId(), user.getStatus() != null ? user.getStatus() : 1};
+    }
+    
+    private Object[] updateParams(User user) {
+        return new Object[]{user.getPassword(), user.getRole(),
+                user.getRelatedId(), user.getStatus(), user.getId()};
     }
     
     /**
@@ -3,10 +3,13 @@ package service;
 import dao.CourseDao;
 import dao.TeacherDao;
 import dao.ScoreDao;
+import dao.ScoreStatistics;
 import entity.Course;
 import entity.Teacher;
 
+import util.AsyncExecutor;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.List;
 
 /**
@@ -151,14 +154,80 @@ public class CourseService {
     public CourseStats getCourseStats(Integer courseId) throws SQLException {
         CourseStats stats = new CourseStats();
         
-        stats.setAverageScore(scoreDao.getAverageScoreByCourseId(courseId));
-        stats.setMaxScore(scoreDao.getMaxScoreByCourseId(courseId));
-        stats.setMinScore(scoreDao.getMinScoreByCourseId(courseId));
-        stats.setScoreDistribution(scoreDao.getScoreDistributionByCourseId(courseId));
+        // 一次扫描得到全部统计值
+        ScoreStatistics statistics = scoreDao.getCourseStatistics(courseId);
+        stats.setAverageScore(statistics.getAverageScore());
+        stats.setMaxScore(statistics.getMaxScore());
+        stats.setMinScore(statistics.getMinScore());
+        stats.setScoreDistribution(statistics.getDistribution());
         
         return stats;
     }
     
+    /**
+     * 异步查询所有课程
+     */
+    public CompletableFuture<List<Course>> findAllAsync() {
+        return AsyncExecutor.supply(() -> findAll());
+    }
+    
+    /**
+     * 异步根据ID查询课程
+     */
+    public CompletableFuture<Course> findByIdAsync(Integer id) {
+        return AsyncExecutor.supply(() -> findById(id));
+    }
+    
+    /**
+     * 异步根据教师ID查询课程
+     */
+    public CompletableFuture<List<Course>> findByTeacherIdAsync(Integer teacherId) {
+        return AsyncExecutor.supply(() -> findByTeacherId(teacherId));
+    }
+    
+    /**
+     * 异步多条件搜索课程
+     */
+    public CompletableFuture<List<Course>> searchAsync(String courseNo, String courseName, Integer teacherId,
+                                                  String semester, String courseType) {
+        return AsyncExecutor.supply(() -> search(courseNo, courseName, teacherId, semester, courseType));
+    }
+    
+    /**
+     * 异步添加课程
+     */
+    public CompletableFuture<Integer> addCourseAsync(Course course) {
+        return AsyncExecutor.supply(() -> addCourse(course));
+    }
+    
+    /**
+     * 异步更新课程
+     */
+    public CompletableFuture<Boolean> updateCourseAsync(Course course) {
+        return AsyncExecutor.supply(() -> updateCourse(course));
+    }
+    
+    /**
+     * 异步删除课程
+     */
+    public CompletableFuture<Boolean> deleteCourseAsync(Integer id) {
+        return AsyncExecutor.supply(() -> deleteCourse(id));
+    }
+    
+    /**
+     * 异步获取所有学期列表
+     */
+    public CompletableFuture<List<String>> getAllSemestersAsync() {
+        return AsyncExecutor.supply(() -> getAllSemesters());
+    }
+    
+    /**
+     * 异步获取课程统计信息
+     */
+    public CompletableFuture<CourseStats> getCourseStatsAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseStats(courseId));
+    }
+    
     /**
      * 课程统计信息内部类
      */
@@ -0,0 +1,15 @@
+package service;
+
+/**
+ * 批量导入进度回调，在执行导入的线程中调用
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+    
+    /**
+     * @param phase 当前阶段，如"解析文件"、"写入数据库"
+     * @param done 本阶段已完成的行数
+     * @param total 本阶段的总行数
+     */
+    void onProgress(String phase, int done, int total);
+}
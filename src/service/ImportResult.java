@@ -0,0 +1,92 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 批量导入、录入结果：总行数、成功行数和每个失败行的原因
+ */
+public class ImportResult {
+    
+    private int totalRows;
+    private int successCount;
+    private final List<RowError> errors = new ArrayList<>();
+    
+    void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+    }
+    
+    void addSuccess(int count) {
+        successCount += count;
+    }
+    
+    synchronized void addError(int rowNumber, String key, String message) {
+        errors.add(new RowError(rowNumber, key, message));
+    }
+    
+    public int getTotalRows() {
+        return totalRows;
+    }
+    
+    public int getSuccessCount() {
+        return successCount;
+    }
+    
+    public int getFailCount() {
+        return errors.size();
+    }
+    
+    /**
+     * 失败的行，按行号排序
+     */
+    public synchronized List<RowError> getErrors() {
+        List<RowError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingInt(RowError::getRowNumber));
+        return Collections.unmodifiableList(sorted);
+    }
+    
+    /**
+     * 错误报告的数据行（行号、关键字段、原因），可直接交给ExcelUtil导出
+     */
+    public List<Object[]> getErrorReportRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (RowError error : getErrors()) {
+            rows.add(new Object[]{error.getRowNumber(), error.getKey(), error.getMessage()});
+        }
+        return rows;
+    }
+    
+    @Override
+    public String toString() {
+        return "ImportResult{total=" + totalRows + ", success=" + successCount + ", failed=" + errors.size() + "}";
+    }
+    
+    /**
+     * 失败的行
+     */
+    public static class RowError {
+        private final int rowNumber;    // Excel中的行号，从1开始
+        private final String key;       // 学号等用于定位的字段
+        private final String message;
+        
+        RowError(int rowNumber, String key, String message) {
+            this.rowNumber = rowNumber;
+            this.key = key;
+            this.message = message;
+        }
+        
+        public int getRowNumber() {
+            return rowNumber;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import dao.Ranking;
+import dao.RankingScope;
+import dao.ScoreDao;
+import util.AsyncExecutor;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 排名业务服务类
+ * 课程成绩排名只计已录入分数的成绩，GPA排名包含范围内全部学生（没有成绩的GPA为0）。
+ * 排名按范围缓存，同一范围反复查看不重新排序。
+ */
+public class RankingService {
+    
+    private ScoreDao scoreDao = new ScoreDao();
+    
+    /**
+     * 某范围的完整排名
+     */
+    public Ranking getRanking(RankingScope scope) throws SQLException {
+        if (scope == null) {
+            throw new IllegalArgumentException("请选择排名范围");
+        }
+        return scoreDao.getRanking(scope);
+    }
+    
+    /**
+     * 前n名
+     */
+    public List<Ranking.Entry> getTop(RankingScope scope, int n) throws SQLException {
+        checkCount(n);
+        return getRanking(scope).top(n);
+    }
+    
+    /**
+     * 后n名，从最后一名往前排列
+     */
+    public List<Ranking.Entry> getBottom(RankingScope scope, int n) throws SQLException {
+        checkCount(n);
+        return getRanking(scope).bottom(n);
+    }
+    
+    /**
+     * 学生在某范围内的名次，不在排名中时返回null
+     */
+    public Ranking.Entry getStudentRank(RankingScope scope, Integer studentId) throws SQLException {
+        if (studentId == null) {
+            throw new IllegalArgumentException("请选择学生");
+        }
+        return getRanking(scope).find(studentId);
+    }
+    
+    private static void checkCount(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("名次数必须大于0");
+        }
+    }
+    
+    /**
+     * 异步获取某范围的完整排名
+     */
+    public CompletableFuture<Ranking> getRankingAsync(RankingScope scope) {
+        return AsyncExecutor.supply(() -> getRanking(scope));
+    }
+}
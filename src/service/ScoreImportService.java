@@ -0,0 +1,183 @@
+package service;
+
+import dao.ReferenceDataCache;
+import dao.ScoreDao;
+import dao.StudentDao;
+import entity.Course;
+import entity.Score;
+import util.ExcelReader;
+import util.ExcelUtil;
+import util.ValidationUtil;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 成绩批量导入
+ * 文件列依次为：学号、课程编号、考试类型、成绩、考试日期，第一行为表头，支持xlsx、xls和csv。
+ * 学号和课程编号在导入前一次性加载到内存中解析，边读文件边校验，
+ * 每凑满一块即用INSERT ... ON DUPLICATE KEY UPDATE按uk_student_course_type批量写入，
+ * 已有的成绩被覆盖，文件中同一学生、课程、考试类型出现多次时以最后一行为准。
+ * 成绩或考试日期单元格为空时：新记录写入空值，已有记录保留原来的成绩和日期。
+ */
+public class ScoreImportService {
+    
+    // 每个事务写入的行数
+    private static final int CHUNK_SIZE = 1000;
+    
+    private static final List<String> EXAM_TYPES = Arrays.asList("平时", "期中", "期末");
+    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-M-d");
+    
+    private StudentDao studentDao = new StudentDao();
+    private ScoreDao scoreDao = new ScoreDao();
+    
+    /**
+     * 从文件导入成绩
+     * @param recorderId 录入人ID
+     * @param teacherId 限定只能导入该教师的课程，为null时不限（管理员）
+     * @param listener 进度回调，可为null
+     */
+    public ImportResult importFile(File file, Integer recorderId, Integer teacherId,
+                                   ImportProgressListener listener) throws IOException, SQLException {
+        ImportProgressListener progress = listener != null ? listener : (phase, done, total) -> { };
+    
+        Map<String, Integer> studentIds = studentDao.findIdsByStudentNo();
+        Map<String, Course> courses = new HashMap<>();
+        for (Course course : ReferenceDataCache.getInstance().getCourses()) {
+            courses.put(course.getCourseNo(), course);
+        }
+    
+        ImportResult result = new ImportResult();
+        List<Score> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkRows = new ArrayList<>(CHUNK_SIZE);
+        int[] total = {0};
+    
+        ExcelUtil.readRows(file, row -> {
+            if (row.getRowNum() == 0 || isBlank(row)) {
+                return;
+            }
+            total[0]++;
+            int rowNumber = row.getRowNum() + 1;
+            try {
+                Score score = toScore(row, studentIds, courses, teacherId);
+                score.setRecorderId(recorderId);
+                chunk.add(score);
+                chunkRows.add(rowNumber);
+            } catch (IllegalArgumentException e) {
+                result.addError(rowNumber, row.getString(0).trim(), e.getMessage());
+            }
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush(chunk, chunkRows, result);
+                progress.onProgress("写入数据库", total[0], 0);
+            }
+        });
+        flush(chunk, chunkRows, result);
+        result.setTotalRows(total[0]);
+        progress.onProgress("写入数据库", total[0], total[0]);
+        return result;
+    }
+    
+    /**
+     * 写入一块成绩，失败时该块的行全部记为失败
+     */
+    private void flush(List<Score> chunk, List<Integer> chunkRows, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            scoreDao.upsertBatch(chunk);
+            result.addSuccess(chunk.size());
+        } catch (SQLException | RuntimeException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                result.addError(chunkRows.get(i), chunk.get(i).getStudentNo(), "写入失败：" + e.getMessage());
+            }
+        }
+        chunk.clear();
+        chunkRows.clear();
+    }
+    
+    private static Score toScore(ExcelReader.SheetRow row, Map<String, Integer> studentIds,
+                                 Map<String, Course> courses, Integer teacherId) {
+        String studentNo = row.getString(0).trim();
+        Integer studentId = studentIds.get(studentNo);
+        if (studentNo.isEmpty()) {
+            throw new IllegalArgumentException("学号不能为空");
+        }
+        if (studentId == null) {
+            throw new IllegalArgumentException("学生不存在");
+        }
+    
+        String courseNo = row.getString(1).trim();
+        Course course = courses.get(courseNo);
+        if (course == null) {
+            throw new IllegalArgumentException("课程不存在：" + courseNo);
+        }
+        if (teacherId != null && !teacherId.equals(course.getTeacherId())) {
+            throw new IllegalArgumentException("只能导入自己课程的成绩：" + courseNo);
+        }
+    
+        String examType = row.getString(2).trim();
+        if (examType.isEmpty()) {
+            examType = "期末";
+        } else if (!EXAM_TYPES.contains(examType)) {
+            throw new IllegalArgumentException("考试类型只能是平时、期中或期末");
+        }
+    
+        Double value = null;
+        if (!row.getString(3).trim().isEmpty()) {
+            value = row.getDouble(3);
+            if (value == null) {
+                throw new IllegalArgumentException("成绩格式不正确");
+            }
+            if (!ValidationUtil.isValidScore(value)) {
+                throw new IllegalArgumentException("成绩必须在0-100之间");
+            }
+        }
+    
+        Score score = new Score(studentId, course.getId(), value);
+        score.setStudentNo(studentNo);
+        score.setExamType(examType);
+        score.setExamDate(parseDate(row.getValue(4)));
+        return score;
+    }
+    
+    /**
+     * 考试日期：Excel日期单元格，或"2024-01-15"、"2024/1/15"形式的文本，为空时返回null
+     */
+    private static java.sql.Date parseDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof LocalDateTime) {
+            return java.sql.Date.valueOf(((LocalDateTime) value).toLocalDate());
+        }
+        String text = value.toString().trim().replace('/', '-');
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return java.sql.Date.valueOf(LocalDate.parse(text, DATE_FORMAT));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("考试日期格式不正确：" + value);
+        }
+    }
+    
+    private static boolean isBlank(ExcelReader.SheetRow row) {
+        for (int i = 0; i < row.getColumnCount(); i++) {
+            if (!row.getString(i).trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
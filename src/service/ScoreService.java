@@ -1,14 +1,26 @@
 package service;
 
+import dao.BaseDao;
 import dao.ScoreDao;
 import dao.StudentDao;
 import dao.CourseDao;
+import dao.ScoreQuery;
+import dao.ScoreStatistics;
+import dao.ScoreHistogram;
+import dao.ReferenceDataCache;
 import entity.Score;
 import entity.Course;
+import entity.Clazz;
 import util.ValidationUtil;
+import util.AsyncExecutor;
+import util.DBUtil;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 成绩业务服务类
@@ -62,6 +74,37 @@ public class ScoreService {
         return scoreDao.search(studentNo, studentName, classId, courseId, examType, minScore, maxScore);
     }
     
+    /**
+     * 多条件搜索成绩
+     */
+    public List<Score> search(ScoreQuery query) throws SQLException {
+        return scoreDao.search(query);
+    }
+    
+    /**
+     * 逐行处理符合条件的成绩（游标读取，用于导出）
+     * @return 处理的行数
+     */
+    public int forEachScore(ScoreQuery query, BaseDao.RowCallback<Score> callback) throws SQLException {
+        return scoreDao.forEachMatching(query, callback);
+    }
+    
+    /**
+     * 分页搜索成绩
+     * @param cursor 翻页起点（当前页的首行或末行），为null时取第一页
+     * @param forward true向后翻页，false向前翻页
+     */
+    public List<Score> searchPage(ScoreQuery query, Score cursor, boolean forward, int pageSize) throws SQLException {
+        return scoreDao.searchPage(query, cursor, forward, pageSize);
+    }
+    
+    /**
+     * 统计符合条件的成绩数量
+     */
+    public int searchCount(ScoreQuery query) throws SQLException {
+        return scoreDao.searchCount(query);
+    }
+    
     /**
      * 添加成绩
      */
@@ -89,6 +132,62 @@ public class ScoreService {
         return scoreDao.delete(id) > 0;
     }
     
+    /**
+     * 批量录入一门课程同一考试类型的成绩
+     * 学生ID取自调用方已加载的名单，不再逐行查询学生；已有成绩用一次IN查询判断，
+     * 其余行在一个事务中批量写入。
+     * @param scores 每行一个成绩，需设置studentId，studentNo用于结果中标识该行
+     * @param overwrite 已有成绩时是否覆盖，为false时该行记为失败
+     * @return 每行的结果，行号为在scores中的位置（从1开始）
+     */
+    public ImportResult saveBatch(Integer courseId, String examType, List<Score> scores, boolean overwrite)
+            throws SQLException {
+        if (courseId == null || ReferenceDataCache.getInstance().getCourseById(courseId) == null) {
+            throw new IllegalArgumentException("课程不存在");
+        }
+        String type = examType != null ? examType : "期末";
+        ImportResult result = new ImportResult();
+        result.setTotalRows(scores.size());
+        
+        // 格式校验，不访问数据库
+        List<Score> valid = new ArrayList<>();
+        List<Integer> validRows = new ArrayList<>();
+        List<Integer> studentIds = new ArrayList<>();
+        for (int i = 0; i < scores.size(); i++) {
+            Score score = scores.get(i);
+            if (score.getStudentId() == null) {
+                result.addError(i + 1, score.getStudentNo(), "请选择学生");
+            } else if (score.getScore() != null && !ValidationUtil.isValidScore(score.getScore())) {
+                result.addError(i + 1, score.getStudentNo(), "成绩必须在0-100之间");
+            } else {
+                score.setCourseId(courseId);
+                score.setExamType(type);
+                valid.add(score);
+                validRows.add(i + 1);
+                studentIds.add(score.getStudentId());
+            }
+        }
+        
+        // 一次查询已有成绩的学生
+        Set<Integer> existing = scoreDao.findStudentIdsWithScore(courseId, type, studentIds);
+        List<Score> pending = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            Score score = valid.get(i);
+            if (!overwrite && existing.contains(score.getStudentId())) {
+                result.addError(validRows.get(i), score.getStudentNo(),
+                        "该学生此课程的" + type + "成绩已存在");
+            } else {
+                pending.add(score);
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            DBUtil.inTransaction(() -> overwrite ? scoreDao.upsertBatch(pending) : scoreDao.insertBatch(pending));
+            result.addSuccess(pending.size());
+        }
+        return result;
+    }
+    
     /**
      * 验证成绩数据
      */
@@ -165,6 +264,41 @@ public class ScoreService {
         return scoreDao.getScoreDistributionByCourseId(courseId);
     }
     
+    /**
+     * 按分段边界统计符合条件的成绩直方图（每段人数、平均分、占比和累计占比）
+     */
+    public ScoreHistogram getScoreHistogram(ScoreQuery query, double[] boundaries) throws SQLException {
+        return scoreDao.getScoreHistogram(query, boundaries);
+    }
+    
+    /**
+     * 按固定组距从0分开始分段统计成绩直方图
+     */
+    public ScoreHistogram getScoreHistogramByWidth(ScoreQuery query, double width) throws SQLException {
+        return scoreDao.getScoreHistogram(query, ScoreHistogram.boundariesOfWidth(width));
+    }
+    
+    /**
+     * 获取课程成绩统计（平均分、最高/最低分、标准差、及格率、分段人数）
+     */
+    public ScoreStatistics getCourseStatistics(Integer courseId) throws SQLException {
+        return scoreDao.getCourseStatistics(courseId);
+    }
+    
+    /**
+     * 按指定分段边界获取课程成绩统计
+     */
+    public ScoreStatistics getCourseStatistics(Integer courseId, double[] boundaries) throws SQLException {
+        return scoreDao.getCourseStatistics(courseId, boundaries);
+    }
+    
+    /**
+     * 获取所有课程的成绩统计，用于院系汇总
+     */
+    public Map<Integer, ScoreStatistics> getAllCourseStatistics(double[] boundaries) throws SQLException {
+        return scoreDao.getAllCourseStatistics(boundaries);
+    }
+    
     /**
      * 获取班级各科平均分
      */
@@ -176,19 +310,189 @@ public class ScoreService {
      * 计算学生GPA
      */
     public double calculateStudentGPA(Integer studentId) throws SQLException {
-        List<Score> scores = scoreDao.findByStudentId(studentId);
-        if (scores.isEmpty()) return 0.0;
-        
-        double totalPoints = 0;
-        double totalCredits = 0;
-        
-        for (Score score : scores) {
-            if (score.getScore() != null && score.getCredit() != null) {
-                totalPoints += score.getGradePoint() * score.getCredit();
-                totalCredits += score.getCredit();
+        return scoreDao.getStudentGpa(studentId);
+    }
+    
+    /**
+     * 计算班级全部学生的GPA
+     * @return 学生ID到GPA的映射，按学生ID排序
+     */
+    public Map<Integer, Double> calculateClassGPA(Integer classId) throws SQLException {
+        if (classId == null) {
+            throw new IllegalArgumentException("请选择班级");
+        }
+        return scoreDao.getStudentGpas(Collections.singletonList(classId));
+    }
+    
+    /**
+     * 计算某年级全部学生的GPA
+     */
+    public Map<Integer, Double> calculateGradeGPA(String grade) throws SQLException {
+        if (grade == null || grade.trim().isEmpty()) {
+            throw new IllegalArgumentException("请选择年级");
+        }
+        List<Integer> classIds = new ArrayList<>();
+        for (Clazz clazz : ReferenceDataCache.getInstance().getClasses()) {
+            if (grade.equals(clazz.getGrade())) {
+                classIds.add(clazz.getId());
             }
         }
-        
-        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+        return scoreDao.getStudentGpas(classIds);
+    }
+    
+    /**
+     * 计算某院系全部学生的GPA
+     */
+    public Map<Integer, Double> calculateDepartmentGPA(String department) throws SQLException {
+        if (department == null || department.trim().isEmpty()) {
+            throw new IllegalArgumentException("请选择院系");
+        }
+        List<Integer> classIds = new ArrayList<>();
+        for (Clazz clazz : ReferenceDataCache.getInstance().getClasses()) {
+            if (department.equals(clazz.getDepartment())) {
+                classIds.add(clazz.getId());
+            }
+        }
+        return scoreDao.getStudentGpas(classIds);
+    }
+    
+    /**
+     * 异步查询所有成绩
+     */
+    public CompletableFuture<List<Score>> findAllAsync() {
+        return AsyncExecutor.supply(() -> findAll());
+    }
+    
+    /**
+     * 异步根据ID查询成绩
+     */
+    public CompletableFuture<Score> findByIdAsync(Integer id) {
+        return AsyncExecutor.supply(() -> findById(id));
+    }
+    
+    /**
+     * 异步根据学生ID查询成绩
+     */
+    public CompletableFuture<List<Score>> findByStudentIdAsync(Integer studentId) {
+        return AsyncExecutor.supply(() -> findByStudentId(studentId));
+    }
+    
+    /**
+     * 异步根据课程ID查询成绩
+     */
+    public CompletableFuture<List<Score>> findByCourseIdAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> findByCourseId(courseId));
+    }
+    
+    /**
+     * 异步根据教师ID查询成绩
+     */
+    public CompletableFuture<List<Score>> findByTeacherIdAsync(Integer teacherId) {
+        return AsyncExecutor.supply(() -> findByTeacherId(teacherId));
+    }
+    
+    /**
+     * 异步按查询条件搜索成绩
+     */
+    public CompletableFuture<List<Score>> searchAsync(ScoreQuery query) {
+        return AsyncExecutor.supply(() -> search(query));
+    }
+    
+    /**
+     * 异步分页搜索成绩
+     */
+    public CompletableFuture<List<Score>> searchPageAsync(ScoreQuery query, Score cursor, boolean forward, int pageSize) {
+        return AsyncExecutor.supply(() -> searchPage(query, cursor, forward, pageSize));
+    }
+    
+    /**
+     * 异步统计符合条件的成绩数
+     */
+    public CompletableFuture<Integer> searchCountAsync(ScoreQuery query) {
+        return AsyncExecutor.supply(() -> searchCount(query));
+    }
+    
+    /**
+     * 异步添加成绩
+     */
+    public CompletableFuture<Integer> addScoreAsync(Score score) {
+        return AsyncExecutor.supply(() -> addScore(score));
+    }
+    
+    /**
+     * 异步更新成绩
+     */
+    public CompletableFuture<Boolean> updateScoreAsync(Score score) {
+        return AsyncExecutor.supply(() -> updateScore(score));
+    }
+    
+    /**
+     * 异步删除成绩
+     */
+    public CompletableFuture<Boolean> deleteScoreAsync(Integer id) {
+        return AsyncExecutor.supply(() -> deleteScore(id));
+    }
+    
+    /**
+     * 异步获取课程平均分
+     */
+    public CompletableFuture<Double> getCourseAverageScoreAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseAverageScore(courseId));
+    }
+    
+    /**
+     * 异步获取课程最高分
+     */
+    public CompletableFuture<Double> getCourseMaxScoreAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseMaxScore(courseId));
+    }
+    
+    /**
+     * 异步获取课程最低分
+     */
+    public CompletableFuture<Double> getCourseMinScoreAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseMinScore(courseId));
+    }
+    
+    /**
+     * 异步获取课程成绩分布
+     */
+    public CompletableFuture<Map<String, Integer>> getCourseScoreDistributionAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseScoreDistribution(courseId));
+    }
+    
+    /**
+     * 异步统计成绩直方图
+     */
+    public CompletableFuture<ScoreHistogram> getScoreHistogramAsync(ScoreQuery query, double[] boundaries) {
+        return AsyncExecutor.supply(() -> getScoreHistogram(query, boundaries));
+    }
+    
+    /**
+     * 异步获取课程成绩统计
+     */
+    public CompletableFuture<ScoreStatistics> getCourseStatisticsAsync(Integer courseId) {
+        return AsyncExecutor.supply(() -> getCourseStatistics(courseId));
+    }
+    
+    /**
+     * 异步获取所有课程的成绩统计
+     */
+    public CompletableFuture<Map<Integer, ScoreStatistics>> getAllCourseStatisticsAsync(double[] boundaries) {
+        return AsyncExecutor.supply(() -> getAllCourseStatistics(boundaries));
+    }
+    
+    /**
+     * 异步获取班级各科平均分
+     */
+    public CompletableFuture<List<Object[]>> getClassCourseAveragesAsync(Integer classId) {
+        return AsyncExecutor.supply(() -> getClassCourseAverages(classId));
+    }
+    
+    /**
+     * 异步计算学生GPA
+     */
+    public CompletableFuture<Double> calculateStudentGPAAsync(Integer studentId) {
+        return AsyncExecutor.supply(() -> calculateStudentGPA(studentId));
     }
 }
\ No newline at end of file
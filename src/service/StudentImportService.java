@@ -0,0 +1,206 @@
+package service;
+
+import dao.ReferenceDataCache;
+import dao.StudentDao;
+import dao.UserDao;
+import entity.Clazz;
+import entity.Student;
+import entity.User;
+import util.DBUtil;
+import util.ExcelUtil;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 学生批量导入
+ * 按集合处理代替逐行addStudent：解析文件 → 并行校验格式 → 一次取得全部班级 →
+ * 一次加载已有学号判重 → 分块事务批量插入 → 可选批量创建账户。
+ * 每块一个事务，某块失败只影响该块的行，结果中记录每个失败行的原因。
+ * 文件列依次为：学号、姓名、性别、班级名称、电话、邮箱，第一行为表头。
+ */
+public class StudentImportService {
+    
+    // 每个事务插入的行数
+    private static final int CHUNK_SIZE = 1000;
+    
+    private static final String DEFAULT_PASSWORD = "123456";
+    
+    private StudentDao studentDao = new StudentDao();
+    private UserDao userDao = new UserDao();
+    
+    /**
+     * 从Excel文件导入学生
+     * @param createAccounts 是否同时创建学生账户（用户名为学号）
+     * @param listener 进度回调，可为null
+     */
+    public ImportResult importFile(File file, boolean createAccounts, ImportProgressListener listener)
+            throws IOException, SQLException {
+        ImportProgressListener progress = listener != null ? listener : (phase, done, total) -> { };
+        
+        // 解析
+        List<String[]> rows = new ArrayList<>();
+        List<Integer> rowNumbers = new ArrayList<>();
+        ExcelUtil.readRows(file, row -> {
+            String[] cells = row.toStrings();
+            if (row.getRowNum() > 0 && !isBlank(cells)) {
+                rows.add(cells);
+                rowNumbers.add(row.getRowNum() + 1);
+                if (rows.size() % CHUNK_SIZE == 0) {
+                    progress.onProgress("解析文件", rows.size(), 0);
+                }
+            }
+        });
+        progress.onProgress("解析文件", rows.size(), rows.size());
+        
+        return importRows(rows, rowNumbers, createAccounts, progress);
+    }
+    
+    /**
+     * 导入已解析的行
+     * @param rowNumbers 每行在文件中的行号，用于错误报告
+     */
+    ImportResult importRows(List<String[]> rows, List<Integer> rowNumbers, boolean createAccounts,
+                            ImportProgressListener progress) throws SQLException {
+        ImportResult result = new ImportResult();
+        result.setTotalRows(rows.size());
+        
+        // 班级名称到ID，来自基础数据缓存
+        Map<String, Integer> classIds = new HashMap<>();
+        for (Clazz clazz : ReferenceDataCache.getInstance().getClasses()) {
+            classIds.put(clazz.getClassName(), clazz.getId());
+        }
+        
+        // 并行转换和校验格式，不访问数据库
+        Student[] students = new Student[rows.size()];
+        IntStream.range(0, rows.size()).parallel().forEach(i -> {
+            try {
+                Student student = toStudent(rows.get(i), classIds);
+                StudentService.validateFields(student);
+                students[i] = student;
+            } catch (IllegalArgumentException e) {
+                result.addError(rowNumbers.get(i), cell(rows.get(i), 0), e.getMessage());
+            }
+        });
+        progress.onProgress("校验数据", rows.size(), rows.size());
+        
+        // 学号判重：数据库中已有的和文件中重复出现的
+        Set<String> existingNos = studentDao.findAllStudentNos();
+        Set<String> existingUsers = createAccounts ? userDao.findAllUsernames() : new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        List<Student> pending = new ArrayList<>();
+        List<Integer> pendingRows = new ArrayList<>();
+        for (int i = 0; i < students.length; i++) {
+            Student student = students[i];
+            if (student == null) {
+                continue;
+            }
+            String studentNo = student.getStudentNo();
+            String error = null;
+            if (existingNos.contains(studentNo)) {
+                error = "学号已存在";
+            } else if (!seen.add(studentNo)) {
+                error = "学号在文件中重复";
+            } else if (createAccounts && existingUsers.contains(studentNo)) {
+                error = "该学号的账户已存在";
+            }
+            if (error != null) {
+                result.addError(rowNumbers.get(i), studentNo, error);
+            } else {
+                pending.add(student);
+                pendingRows.add(rowNumbers.get(i));
+            }
+        }
+        
+        // 分块事务批量写入
+        for (int start = 0; start < pending.size(); start += CHUNK_SIZE) {
+            int end = Math.min(start + CHUNK_SIZE, pending.size());
+            List<Student> chunk = pending.subList(start, end);
+            try {
+                DBUtil.inTransaction(() -> insertChunk(chunk, createAccounts));
+                result.addSuccess(chunk.size());
+            } catch (SQLException | RuntimeException e) {
+                for (int i = start; i < end; i++) {
+                    result.addError(pendingRows.get(i), pending.get(i).getStudentNo(), "写入失败：" + e.getMessage());
+                }
+            }
+            progress.onProgress("写入数据库", end, pending.size());
+        }
+        return result;
+    }
+    
+    /**
+     * 在当前事务中插入一块学生，并为其创建账户
+     */
+    private Void insertChunk(List<Student> chunk, boolean createAccounts) throws SQLException {
+        int inserted = studentDao.insertBatch(chunk);
+        if (inserted != chunk.size()) {
+            throw new SQLException("插入行数与预期不符：" + inserted + "/" + chunk.size());
+        }
+        if (createAccounts) {
+            List<User> users = new ArrayList<>(chunk.size());
+            for (Student student : chunk) {
+                if (student.getId() == null) {
+                    throw new SQLException("未取得学生ID：" + student.getStudentNo());
+                }
+                User user = new User();
+                user.setUsername(student.getStudentNo());
+                user.setPassword(DEFAULT_PASSWORD);
+                user.setRole("student");
+                user.setRelatedId(student.getId());
+                user.setStatus(1);
+                users.add(user);
+            }
+            userDao.insertBatch(users);
+        }
+        return null;
+    }
+    
+    private static Student toStudent(String[] row, Map<String, Integer> classIds) {
+        if (row.length < 4) {
+            throw new IllegalArgumentException("数据列数不足");
+        }
+        Student student = new Student();
+        student.setStudentNo(cell(row, 0));
+        student.setName(cell(row, 1));
+        String gender = cell(row, 2);
+        student.setGender(gender.isEmpty() ? "男" : gender);
+        
+        String className = cell(row, 3);
+        if (!className.isEmpty()) {
+            Integer classId = classIds.get(className);
+            if (classId == null) {
+                throw new IllegalArgumentException("班级不存在：" + className);
+            }
+            student.setClassId(classId);
+        }
+        
+        student.setPhone(emptyToNull(cell(row, 4)));
+        student.setEmail(emptyToNull(cell(row, 5)));
+        return student;
+    }
+    
+    private static String cell(String[] row, int index) {
+        return index < row.length && row[index] != null ? row[index].trim() : "";
+    }
+    
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static boolean isBlank(String[] cells) {
+        for (String cell : cells) {
+            if (cell != null && !cell.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,12 +1,16 @@
 package service;
 
+import dao.BaseDao;
 import dao.StudentDao;
 import dao.UserDao;
 import dao.ScoreDao;
+import dao.StudentQuery;
 import entity.Student;
 import util.ValidationUtil;
 import util.DBUtil;
+import util.AsyncExecutor;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.List;
 
 /**
@@ -53,6 +57,38 @@ public class StudentService {
         return studentDao.search(studentNo, name, classId, status);
     }
     
+    /**
+     * 多条件搜索学生
+     */
+    public List<Student> search(StudentQuery query) throws SQLException {
+        return studentDao.search(query);
+    }
+    
+    /**
+     * 逐行处理符合条件的学生（游标读取，用于导出）
+     * @return 处理的行数
+     */
+    public int forEachStudent(StudentQuery query, BaseDao.RowCallback<Student> callback) throws SQLException {
+        return studentDao.forEachMatching(query, callback);
+    }
+    
+    /**
+     * 分页搜索学生
+     * @param cursorStudentNo 翻页起点学号，为null时取第一页
+     * @param forward true向后翻页，false向前翻页
+     */
+    public List<Student> searchPage(StudentQuery query, String cursorStudentNo,
+                                    boolean forward, int pageSize) throws SQLException {
+        return studentDao.searchPage(query, cursorStudentNo, forward, pageSize);
+    }
+    
+    /**
+     * 统计符合条件的学生数量
+     */
+    public int searchCount(StudentQuery query) throws SQLException {
+        return studentDao.searchCount(query);
+    }
+    
     /**
      * 添加学生
      */
@@ -170,6 +206,24 @@ public class StudentService {
      * 验证学生数据
      */
     private void validateStudent(Student student, boolean isNew) throws SQLException {
+        validateFields(student);
+        
+        // 检查学号唯一性
+        if (isNew) {
+            if (studentDao.existsByStudentNo(student.getStudentNo())) {
+                throw new IllegalArgumentException("学号已存在");
+            }
+        } else {
+            if (studentDao.existsByStudentNo(student.getStudentNo(), student.getId())) {
+                throw new IllegalArgumentException("学号已被其他学生使用");
+            }
+        }
+    }
+    
+    /**
+     * 验证学生字段格式（不访问数据库）
+     */
+    static void validateFields(Student student) {
         if (!ValidationUtil.isNotEmpty(student.getStudentNo())) {
             throw new IllegalArgumentException("学号不能为空");
         }
@@ -185,17 +239,6 @@ public class StudentService {
         if (!ValidationUtil.isValidEmail(student.getEmail())) {
             throw new IllegalArgumentException("邮箱格式不正确");
         }
-        
-        // 检查学号唯一性
-        if (isNew) {
-            if (studentDao.existsByStudentNo(student.getStudentNo())) {
-                throw new IllegalArgumentException("学号已存在");
-            }
-        } else {
-            if (studentDao.existsByStudentNo(student.getStudentNo(), student.getId())) {
-                throw new IllegalArgumentException("学号已被其他学生使用");
-            }
-        }
     }
     
     /**
@@ -211,4 +254,96 @@ public class StudentService {
     public Double getStudentAverageScore(Integer studentId) throws SQLException {
         return scoreDao.getAverageScoreByStudentId(studentId);
     }
+    
+    /**
+     * 异步查询所有学生
+     */
+    public CompletableFuture<List<Student>> findAllAsync() {
+        return AsyncExecutor.supply(() -> findAll());
+    }
+    
+    /**
+     * 异步根据ID查询学生
+     */
+    public CompletableFuture<Student> findByIdAsync(Integer id) {
+        return AsyncExecutor.supply(() -> findById(id));
+    }
+    
+    /**
+     * 异步根据学号查询学生
+     */
+    public CompletableFuture<Student> findByStudentNoAsync(String studentNo) {
+        return AsyncExecutor.supply(() -> findByStudentNo(studentNo));
+    }
+    
+    /**
+     * 异步根据班级ID查询学生
+     */
+    public CompletableFuture<List<Student>> findByClassIdAsync(Integer classId) {
+        return AsyncExecutor.supply(() -> findByClassId(classId));
+    }
+    
+    /**
+     * 异步按查询条件搜索学生
+     */
+    public CompletableFuture<List<Student>> searchAsync(StudentQuery query) {
+        return AsyncExecutor.supply(() -> search(query));
+    }
+    
+    /**
+     * 异步分页搜索学生
+     */
+    public CompletableFuture<List<Student>> searchPageAsync(StudentQuery query, String cursorStudentNo,
+                                                     boolean forward, int pageSize) {
+        return AsyncExecutor.supply(() -> searchPage(query, cursorStudentNo, forward, pageSize));
+    }
+    
+    /**
+     * 异步统计符合条件的学生数
+     */
+    public CompletableFuture<Integer> searchCountAsync(StudentQuery query) {
+        return AsyncExecutor.supply(() -> searchCount(query));
+    }
+    
+    /**
+     * 异步添加学生
+     */
+    public CompletableFuture<Integer> addStudentAsync(Student student, boolean createAccount) {
+        return AsyncExecutor.supply(() -> addStudent(student, createAccount));
+    }
+    
+    /**
+     * 异步更新学生
+     */
+    public CompletableFuture<Boolean> updateStudentAsync(Student student) {
+        return AsyncExecutor.supply(() -> updateStudent(student));
+    }
+    
+    /**
+     * 异步删除学生
+     */
+    public CompletableFuture<Boolean> deleteStudentAsync(Integer id) {
+        return AsyncExecutor.supply(() -> deleteStudent(id));
+    }
+    
+    /**
+     * 异步批量删除学生
+     */
+    public CompletableFuture<Integer> deleteBatchAsync(List<Integer> ids) {
+        return AsyncExecutor.supply(() -> deleteBatch(ids));
+    }
+    
+    /**
+     * 异步获取学生总数
+     */
+    public CompletableFuture<Integer> getStudentCountAsync() {
+        return AsyncExecutor.supply(() -> getStudentCount());
+    }
+    
+    /**
+     * 异步获取学生平均分
+     */
+    public CompletableFuture<Double> getStudentAverageScoreAsync(Integer studentId) {
+        return AsyncExecutor.supply(() -> getStudentAverageScore(studentId));
+    }
 }
\ No newline at end of file
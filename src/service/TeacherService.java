@@ -6,8 +6,10 @@ import dao.CourseDao;
 import entity.Teacher;
 import util.ValidationUtil;
 import util.DBUtil;
+import util.AsyncExecutor;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import java.util.List;
 
 /**
@@ -158,4 +160,46 @@ public class TeacherService {
             }
         }
     }
+    
+    /**
+     * 异步查询所有教师
+     */
+    public CompletableFuture<List<Teacher>> findAllAsync() {
+        return AsyncExecutor.supply(() -> findAll());
+    }
+    
+    /**
+     * 异步根据ID查询教师
+     */
+    public CompletableFuture<Teacher> findByIdAsync(Integer id) {
+        return AsyncExecutor.supply(() -> findById(id));
+    }
+    
+    /**
+     * 异步根据院系查询教师
+     */
+    public CompletableFuture<List<Teacher>> findByDepartmentAsync(String department) {
+        return AsyncExecutor.supply(() -> findByDepartment(department));
+    }
+    
+    /**
+     * 异步添加教师
+     */
+    public CompletableFuture<Integer> addTeacherAsync(Teacher teacher, boolean createAccount) {
+        return AsyncExecutor.supply(() -> addTeacher(teacher, createAccount));
+    }
+    
+    /**
+     * 异步更新教师
+     */
+    public CompletableFuture<Boolean> updateTeacherAsync(Teacher teacher) {
+        return AsyncExecutor.supply(() -> updateTeacher(teacher));
+    }
+    
+    /**
+     * 异步删除教师
+     */
+    public CompletableFuture<Boolean> deleteTeacherAsync(Integer id) {
+        return AsyncExecutor.supply(() -> deleteTeacher(id));
+    }
 }
\ No newline at end of file
@@ -7,7 +7,9 @@ import dao.TeacherDao;
 import entity.User;
 import entity.Student;
 import entity.Teacher;
+import util.AsyncExecutor;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 用户业务服务类
@@ -136,4 +138,25 @@ public class UserService {
     public boolean deleteUser(Integer userId) throws SQLException {
         return userDao.delete(userId) > 0;
     }
+    
+    /**
+     * 异步登录
+     */
+    public CompletableFuture<User> loginAsync(String username, String password) {
+        return AsyncExecutor.supply(() -> login(username, password));
+    }
+    
+    /**
+     * 异步修改密码
+     */
+    public CompletableFuture<Boolean> changePasswordAsync(Integer userId, String oldPassword, String newPassword) {
+        return AsyncExecutor.supply(() -> changePassword(userId, oldPassword, newPassword));
+    }
+    
+    /**
+     * 异步重置密码
+     */
+    public CompletableFuture<Boolean> resetPasswordAsync(Integer userId) {
+        return AsyncExecutor.supply(() -> resetPassword(userId));
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package ui.panel;
 
 import entity.User;
 import entity.Clazz;
+import dao.ReferenceDataCache;
 import dao.ClazzDao;
 
 import javax.swing.*;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 public class ClassPanel extends JPanel {
     
     private User currentUser;
+    private ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
     private ClazzDao clazzDao = new ClazzDao();
     
     // 搜索组件
@@ -159,7 +161,7 @@ public class ClassPanel extends JPanel {
             searchGradeCombo.removeAllItems();
             searchGradeCombo.addItem("全部");
             
-            List<String> grades = clazzDao.findAllGrades();
+            List<String> grades = referenceData.getGrades();
             for (String grade : grades) {
                 searchGradeCombo.addItem(grade);
             }
@@ -3,8 +3,8 @@ package ui.panel;
 import entity.User;
 import entity.Course;
 import entity.Teacher;
+import dao.ReferenceDataCache;
 import dao.CourseDao;
-import dao.TeacherDao;
 
 import javax.swing.*;
 import javax.swing.table.*;
@@ -19,8 +19,8 @@ import java.util.ArrayList;
 public class CoursePanel extends JPanel {
     
     private User currentUser;
+    private ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
     private CourseDao courseDao = new CourseDao();
-    private TeacherDao teacherDao = new TeacherDao();
     
     // 搜索组件
     private JTextField searchCourseNoField;
@@ -441,7 +441,7 @@ public class CoursePanel extends JPanel {
                 emptyTeacher.setName("-- 请选择 --");
                 teacherCombo.addItem(emptyTeacher);
                 
-                List<Teacher> teachers = teacherDao.findAll();
+                List<Teacher> teachers = referenceData.getTeachers();
                 for (Teacher t : teachers) {
                     teacherCombo.addItem(t);
                 }
@@ -0,0 +1,79 @@
+package ui.panel;
+
+import service.ImportProgressListener;
+import service.ImportResult;
+import util.ExcelUtil;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * 批量导入进度对话框
+ * 作为进度回调交给导入服务，可在任意线程调用，界面更新切换到事件线程
+ */
+class ImportProgressDialog extends JDialog implements ImportProgressListener {
+    
+    // 结果对话框中最多列出的失败行
+    private static final int MAX_LISTED_ERRORS = 20;
+    
+    private JProgressBar progressBar;
+    
+    public ImportProgressDialog(Component parent, String title) {
+        super(SwingUtilities.getWindowAncestor(parent), title, Dialog.ModalityType.MODELESS);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+    
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("正在解析文件...");
+    
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panel.add(progressBar, BorderLayout.CENTER);
+        add(panel);
+        setSize(380, 100);
+        setLocationRelativeTo(parent);
+    }
+    
+    @Override
+    public void onProgress(String phase, int done, int total) {
+        SwingUtilities.invokeLater(() -> {
+            progressBar.setIndeterminate(total == 0);
+            if (total > 0) {
+                progressBar.setMaximum(total);
+                progressBar.setValue(done);
+            }
+            progressBar.setString(phase + "：" + done + (total > 0 ? " / " + total : ""));
+        });
+    }
+    
+    /**
+     * 显示导入结果，有失败行时列出前若干行，并可导出完整的错误报告
+     * @param keyHeader 错误报告中关键字段列的标题，如"学号"
+     */
+    static void showResult(Component parent, ImportResult result, String keyHeader) {
+        String msg = "导入完成！\n成功：" + result.getSuccessCount() + " 条\n失败：" + result.getFailCount() + " 条";
+        if (result.getFailCount() == 0) {
+            JOptionPane.showMessageDialog(parent, msg, "导入结果", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+    
+        StringBuilder errorMsg = new StringBuilder("\n\n失败详情：\n");
+        List<ImportResult.RowError> errors = result.getErrors();
+        for (int i = 0; i < Math.min(errors.size(), MAX_LISTED_ERRORS); i++) {
+            ImportResult.RowError error = errors.get(i);
+            errorMsg.append("第").append(error.getRowNumber()).append("行：").append(error.getMessage()).append("\n");
+        }
+        if (errors.size() > MAX_LISTED_ERRORS) {
+            errorMsg.append("……共").append(errors.size()).append("条，请导出错误报告查看全部\n");
+        }
+    
+        Object[] options = {"导出错误报告", "关闭"};
+        int choice = JOptionPane.showOptionDialog(parent, msg + errorMsg, "导入结果",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[1]);
+        if (choice == 0) {
+            ExcelUtil.exportImportErrors(result.getErrorReportRows(), keyHeader);
+        }
+    }
+}
@@ -6,18 +6,23 @@ import entity.Student;
 import entity.Course;
 import entity.Clazz;
 import service.ScoreService;
+import service.ScoreImportService;
+import service.ImportResult;
+import dao.ReferenceDataCache;
 import dao.StudentDao;
-import dao.CourseDao;
-import dao.ClazzDao;
+import dao.ScoreQuery;
 import util.ExcelUtil;
 
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * 成绩管理面板
@@ -26,9 +31,9 @@ public class ScorePanel extends JPanel {
     
     private User currentUser;
     private ScoreService scoreService = new ScoreService();
+    private ScoreImportService scoreImportService = new ScoreImportService();
     private StudentDao studentDao = new StudentDao();
-    private CourseDao courseDao = new CourseDao();
-    private ClazzDao clazzDao = new ClazzDao();
+    private ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
     
     // 搜索组件
     private JTextField searchStudentNoField;
@@ -45,6 +50,7 @@ public class ScorePanel extends JPanel {
     private JButton deleteButton;
     private JButton exportButton;
     private JButton batchInputButton;
+    private JButton importButton;
     
     // 数据表格
     private JTable scoreTable;
@@ -58,8 +64,11 @@ public class ScorePanel extends JPanel {
     private int pageSize = 20;
     private int totalRecords = 0;
     
-    // 当前数据
-    private List<Score> allScores = new ArrayList<>();
+    // 当前页数据
+    private List<Score> pageScores = new ArrayList<>();
+    
+    // 当前查询条件
+    private ScoreQuery currentQuery = new ScoreQuery();
     
     public ScorePanel(User user) {
         this.currentUser = user;
@@ -225,6 +234,9 @@ public class ScorePanel extends JPanel {
         
         buttonPanel.add(new JLabel("    "));
         
+        importButton = new JButton("导入成绩");
+        buttonPanel.add(importButton);
+        
         exportButton = new JButton("导出Excel");
         buttonPanel.add(exportButton);
         
@@ -255,7 +267,7 @@ public class ScorePanel extends JPanel {
             allClass.setClassName("全部班级");
             searchClassCombo.addItem(allClass);
             
-            List<Clazz> classes = clazzDao.findAll();
+            List<Clazz> classes = referenceData.getClasses();
             for (Clazz clazz : classes) {
                 searchClassCombo.addItem(clazz);
             }
@@ -274,9 +286,9 @@ public class ScorePanel extends JPanel {
             
             List<Course> courses;
             if (currentUser.isTeacher()) {
-                courses = courseDao.findByTeacherId(currentUser.getRelatedId());
+                courses = referenceData.getCoursesByTeacherId(currentUser.getRelatedId());
             } else {
-                courses = courseDao.findAll();
+                courses = referenceData.getCourses();
             }
             
             for (Course course : courses) {
@@ -292,6 +304,7 @@ public class ScorePanel extends JPanel {
             // 学生只能查看自己的成绩
             addButton.setVisible(false);
             batchInputButton.setVisible(false);
+            importButton.setVisible(false);
             editButton.setVisible(false);
             deleteButton.setVisible(false);
             
@@ -313,20 +326,19 @@ public class ScorePanel extends JPanel {
         batchInputButton.addActionListener(e -> showBatchInputDialog());
         editButton.addActionListener(e -> showEditDialog());
         deleteButton.addActionListener(e -> doDelete());
+        importButton.addActionListener(e -> doImport());
         exportButton.addActionListener(e -> doExport());
         
         prevButton.addActionListener(e -> {
             if (currentPage > 1) {
-                currentPage--;
-                updateTable();
+                loadPage(false);
             }
         });
         
         nextButton.addActionListener(e -> {
             int totalPages = (int) Math.ceil((double) totalRecords / pageSize);
             if (currentPage < totalPages) {
-                currentPage++;
-                updateTable();
+                loadPage(true);
             }
         });
         
@@ -342,18 +354,15 @@ public class ScorePanel extends JPanel {
     
     public void refreshData() {
         try {
+            currentQuery = new ScoreQuery();
             if (currentUser.isStudent()) {
                 // 学生只能看自己的成绩
-                allScores = scoreService.findByStudentId(currentUser.getRelatedId());
+                currentQuery.setStudentId(currentUser.getRelatedId());
             } else if (currentUser.isTeacher()) {
                 // 教师只能看自己教授课程的成绩
-                allScores = scoreService.findByTeacherId(currentUser.getRelatedId());
-            } else {
-                allScores = scoreService.findAll();
+                currentQuery.setTeacherId(currentUser.getRelatedId());
             }
-            totalRecords = allScores.size();
-            currentPage = 1;
-            updateTable();
+            loadFirstPage();
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "加载数据失败：" + e.getMessage(), 
                     "错误", JOptionPane.ERROR_MESSAGE);
@@ -377,42 +386,26 @@ public class ScorePanel extends JPanel {
             String examType = (String) searchExamTypeCombo.getSelectedItem();
             if ("全部".equals(examType)) examType = null;
             
+            ScoreQuery query = new ScoreQuery();
+            query.setCourseId(courseId);
+            query.setExamType(examType);
+            
             // 如果是学生，强制只查询自己的成绩
             if (currentUser.isStudent()) {
-                allScores = scoreService.findByStudentId(currentUser.getRelatedId());
-                // 在内存中进一步过滤
-                if (courseId != null) {
-                    Integer finalCourseId = courseId;
-                    allScores.removeIf(s -> !finalCourseId.equals(s.getCourseId()));
-                }
-                if (examType != null) {
-                    String finalExamType = examType;
-                    allScores.removeIf(s -> !finalExamType.equals(s.getExamType()));
-                }
+                query.setStudentId(currentUser.getRelatedId());
             } else {
-                allScores = scoreService.search(
-                    studentNo.isEmpty() ? null : studentNo,
-                    studentName.isEmpty() ? null : studentName,
-                    classId,
-                    courseId,
-                    examType,
-                    null, null
-                );
+                query.setStudentNo(studentNo.isEmpty() ? null : studentNo);
+                query.setStudentName(studentName.isEmpty() ? null : studentName);
+                query.setClassId(classId);
                 
-                // 如果是教师，过滤只显示自己课程的成绩
+                // 如果是教师，只显示自己课程的成绩
                 if (currentUser.isTeacher()) {
-                    List<Course> myCourses = courseDao.findByTeacherId(currentUser.getRelatedId());
-                    List<Integer> myCourseIds = new ArrayList<>();
-                    for (Course c : myCourses) {
-                        myCourseIds.add(c.getId());
-                    }
-                    allScores.removeIf(s -> !myCourseIds.contains(s.getCourseId()));
+                    query.setTeacherId(currentUser.getRelatedId());
                 }
             }
             
-            totalRecords = allScores.size();
-            currentPage = 1;
-            updateTable();
+            currentQuery = query;
+            loadFirstPage();
             
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "搜索失败：" + e.getMessage(), 
@@ -421,6 +414,39 @@ public class ScorePanel extends JPanel {
         }
     }
     
+    /**
+     * 按当前条件统计总数并加载第一页
+     */
+    private void loadFirstPage() throws Exception {
+        totalRecords = scoreService.searchCount(currentQuery);
+        pageScores = scoreService.searchPage(currentQuery, null, true, pageSize);
+        currentPage = 1;
+        updateTable();
+    }
+    
+    /**
+     * 以当前页首行/末行为起点翻页，只从数据库读取一页数据
+     */
+    private void loadPage(boolean forward) {
+        if (pageScores.isEmpty()) {
+            return;
+        }
+        try {
+            Score cursor = forward ? pageScores.get(pageScores.size() - 1) : pageScores.get(0);
+            List<Score> page = scoreService.searchPage(currentQuery, cursor, forward, pageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            pageScores = page;
+            currentPage += forward ? 1 : -1;
+            updateTable();
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "加载数据失败：" + e.getMessage(), 
+                    "错误", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+    
     private void doReset() {
         searchStudentNoField.setText("");
         searchStudentNameField.setText("");
@@ -435,11 +461,7 @@ public class ScorePanel extends JPanel {
         
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
-        int start = (currentPage - 1) * pageSize;
-        int end = Math.min(start + pageSize, allScores.size());
-        
-        for (int i = start; i < end; i++) {
-            Score s = allScores.get(i);
+        for (Score s : pageScores) {
             Object[] row = {
                 s.getId(),
                 s.getStudentNo(),
@@ -548,31 +570,77 @@ public class ScorePanel extends JPanel {
         }
     }
     
+    private void doImport() {
+        File file = ExcelUtil.chooseImportFile("导入成绩");
+        if (file == null) {
+            return;
+        }
+        int option = JOptionPane.showConfirmDialog(this,
+                "文件各列依次为：学号、课程编号、考试类型、成绩、考试日期。\n" +
+                "同一学生、课程、考试类型已有成绩的将被覆盖，是否继续？",
+                "导入成绩", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        // 教师只能导入自己课程的成绩
+        Integer teacherId = currentUser.isTeacher() ? currentUser.getRelatedId() : null;
+        Integer recorderId = currentUser.getRelatedId();
+    
+        ImportProgressDialog progressDialog = new ImportProgressDialog(this, "正在导入成绩");
+        progressDialog.setVisible(true);
+        importButton.setEnabled(false);
+    
+        // 在后台线程导入，进度和结果回到事件线程显示
+        Thread worker = new Thread(() -> {
+            try {
+                ImportResult result = scoreImportService.importFile(file, recorderId, teacherId, progressDialog);
+                SwingUtilities.invokeLater(() -> {
+                    progressDialog.dispose();
+                    importButton.setEnabled(true);
+                    ImportProgressDialog.showResult(this, result, "学号");
+                    refreshData();
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    progressDialog.dispose();
+                    importButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "导入失败：" + e.getMessage(),
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, "score-import");
+        worker.start();
+    }
+    
     private void doExport() {
-        if (allScores.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "没有数据可导出", "提示", JOptionPane.WARNING_MESSAGE);
+        try {
+            if (scoreService.searchCount(currentQuery) == 0) {
+                JOptionPane.showMessageDialog(this, "没有数据可导出", "提示", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "导出失败：" + e.getMessage(), 
+                    "错误", JOptionPane.ERROR_MESSAGE);
             return;
         }
         
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         String[] headers = {"学号", "姓名", "班级", "课程编号", "课程名称", "成绩", "等级", "考试类型", "考试日期"};
-        List<Object[]> data = new ArrayList<>();
-        
-        for (Score s : allScores) {
-            data.add(new Object[]{
-                s.getStudentNo(),
-                s.getStudentName(),
-                s.getClassName(),
-                s.getCourseNo(),
-                s.getCourseName(),
-                s.getScore() != null ? String.format("%.1f", s.getScore()) : "",
-                s.getGrade(),
-                s.getExamType(),
-                s.getExamDate() != null ? sdf.format(s.getExamDate()) : ""
-            });
-        }
-        
-        ExcelUtil.exportScores(data, headers);
+        ScoreQuery query = currentQuery;
+        
+        // 游标逐行读取并写出，不把全部成绩加载到内存
+        ExcelUtil.exportScores(sink -> scoreService.forEachScore(query, s -> sink.accept(new Object[]{
+            s.getStudentNo(),
+            s.getStudentName(),
+            s.getClassName(),
+            s.getCourseNo(),
+            s.getCourseName(),
+            s.getScore(),
+            s.getGrade(),
+            s.getExamType(),
+            s.getExamDate() != null ? sdf.format(s.getExamDate()) : ""
+        })), headers);
     }
     
     /**
@@ -712,9 +780,9 @@ public class ScorePanel extends JPanel {
                 
                 List<Course> courses;
                 if (currentUser.isTeacher()) {
-                    courses = courseDao.findByTeacherId(currentUser.getRelatedId());
+                    courses = referenceData.getCoursesByTeacherId(currentUser.getRelatedId());
                 } else {
-                    courses = courseDao.findAll();
+                    courses = referenceData.getCourses();
                 }
                 
                 for (Course c : courses) {
@@ -829,9 +897,13 @@ public class ScorePanel extends JPanel {
         private JComboBox<Course> courseCombo;
         private JComboBox<Clazz> classCombo;
         private JComboBox<String> examTypeCombo;
+        private JCheckBox overwriteCheck;
         private JTable inputTable;
         private DefaultTableModel inputTableModel;
         
+        // 表格中显示的学生，与表格行一一对应
+        private List<Student> rosterStudents = new ArrayList<>();
+        
         public BatchScoreDialog(JFrame parent) {
             super(parent, "批量录入成绩", true);
             initComponents();
@@ -863,6 +935,9 @@ public class ScorePanel extends JPanel {
             examTypeCombo = new JComboBox<>(new String[]{"期末", "期中", "平时"});
             topPanel.add(examTypeCombo);
             
+            overwriteCheck = new JCheckBox("覆盖已有成绩");
+            topPanel.add(overwriteCheck);
+            
             JButton loadButton = new JButton("加载学生");
             loadButton.setFont(new Font("Dialog", Font.PLAIN, 14));
             loadButton.setPreferredSize(new Dimension(100, 30));
@@ -937,9 +1012,9 @@ public class ScorePanel extends JPanel {
                 courseCombo.removeAllItems();
                 List<Course> courses;
                 if (currentUser.isTeacher()) {
-                    courses = courseDao.findByTeacherId(currentUser.getRelatedId());
+                    courses = referenceData.getCoursesByTeacherId(currentUser.getRelatedId());
                 } else {
-                    courses = courseDao.findAll();
+                    courses = referenceData.getCourses();
                 }
                 for (Course c : courses) {
                     courseCombo.addItem(c);
@@ -952,7 +1027,7 @@ public class ScorePanel extends JPanel {
         private void loadBatchClassCombo() {
             try {
                 classCombo.removeAllItems();
-                List<Clazz> classes = clazzDao.findAll();
+                List<Clazz> classes = referenceData.getClasses();
                 for (Clazz c : classes) {
                     classCombo.addItem(c);
                 }
@@ -963,6 +1038,7 @@ public class ScorePanel extends JPanel {
         
         private void loadStudents() {
             inputTableModel.setRowCount(0);
+            rosterStudents = new ArrayList<>();
             
             Clazz selectedClass = (Clazz) classCombo.getSelectedItem();
             if (selectedClass == null) {
@@ -972,6 +1048,7 @@ public class ScorePanel extends JPanel {
             
             try {
                 List<Student> students = studentDao.findByClassId(selectedClass.getId());
+                rosterStudents = students;
                 for (Student s : students) {
                     inputTableModel.addRow(new Object[]{s.getStudentNo(), s.getName(), ""});
                 }
@@ -997,47 +1074,62 @@ public class ScorePanel extends JPanel {
                 inputTable.getCellEditor().stopCellEditing();
             }
             
-            int successCount = 0;
-            int failCount = 0;
-            StringBuilder errorMsg = new StringBuilder();
-            
-            for (int i = 0; i < inputTableModel.getRowCount(); i++) {
-                String studentNo = (String) inputTableModel.getValueAt(i, 0);
+            // 按名单中已有的学生ID组装成绩，跳过空成绩；格式错误的行记为失败，其余行照常保存
+            List<Score> scores = new ArrayList<>();
+            List<Integer> tableRows = new ArrayList<>();
+            // 失败的行，按表格行号排序
+            TreeMap<Integer, String> failedRows = new TreeMap<>();
+            java.util.Date examDate = new java.util.Date();
+            for (int i = 0; i < inputTableModel.getRowCount() && i < rosterStudents.size(); i++) {
                 String scoreStr = inputTableModel.getValueAt(i, 2).toString().trim();
-                
                 if (scoreStr.isEmpty()) {
-                    continue; // 跳过空成绩
+                    continue;
                 }
-                
+                Student student = rosterStudents.get(i);
                 try {
-                    double scoreValue = Double.parseDouble(scoreStr);
-                    
-                    Student student = studentDao.findByStudentNo(studentNo);
-                    if (student == null) {
-                        throw new IllegalArgumentException("学生不存在");
-                    }
-                    
                     Score score = new Score();
                     score.setStudentId(student.getId());
-                    score.setCourseId(selectedCourse.getId());
-                    score.setScore(scoreValue);
-                    score.setExamType((String) examTypeCombo.getSelectedItem());
+                    score.setStudentNo(student.getStudentNo());
+                    score.setScore(Double.parseDouble(scoreStr));
                     score.setRecorderId(currentUser.getRelatedId());
-                    score.setExamDate(new java.util.Date());
-                    
-                    scoreService.addScore(score);
-                    successCount++;
-                    
+                    score.setExamDate(examDate);
+                    scores.add(score);
+                    tableRows.add(i + 1);
+                } catch (NumberFormatException e) {
+                    failedRows.put(i + 1, student.getStudentNo() + "：成绩格式不正确（" + scoreStr + "）");
+                }
+            }
+            if (scores.isEmpty() && failedRows.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "没有填写成绩", "提示", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            
+            int successCount = 0;
+            if (!scores.isEmpty()) {
+                ImportResult result;
+                try {
+                    result = scoreService.saveBatch(selectedCourse.getId(), (String) examTypeCombo.getSelectedItem(),
+                            scores, overwriteCheck.isSelected());
                 } catch (Exception e) {
-                    failCount++;
-                    errorMsg.append("第").append(i + 1).append("行 ").append(studentNo)
-                            .append("：").append(e.getMessage()).append("\n");
+                    JOptionPane.showMessageDialog(this, "保存失败：" + e.getMessage(), 
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                successCount = result.getSuccessCount();
+                for (ImportResult.RowError error : result.getErrors()) {
+                    failedRows.put(tableRows.get(error.getRowNumber() - 1),
+                            error.getKey() + "：" + error.getMessage());
                 }
             }
             
             String msg = "保存完成！\n成功：" + successCount + " 条";
-            if (failCount > 0) {
-                msg += "\n失败：" + failCount + " 条\n\n失败详情：\n" + errorMsg.toString();
+            if (!failedRows.isEmpty()) {
+                StringBuilder errorMsg = new StringBuilder();
+                for (Map.Entry<Integer, String> failed : failedRows.entrySet()) {
+                    errorMsg.append("第").append(failed.getKey()).append("行 ")
+                            .append(failed.getValue()).append("\n");
+                }
+                msg += "\n失败：" + failedRows.size() + " 条\n\n失败详情：\n" + errorMsg.toString();
             }
             
             JOptionPane.showMessageDialog(this, msg, "保存结果", JOptionPane.INFORMATION_MESSAGE);
@@ -4,10 +4,18 @@ import entity.User;
 import entity.Course;
 import entity.Clazz;
 import entity.Score;
+import entity.Student;
+import service.RankingService;
 import service.ScoreService;
-import dao.CourseDao;
-import dao.ClazzDao;
+import service.StudentService;
+import dao.Ranking;
+import dao.RankingScope;
+import dao.ReferenceDataCache;
 import dao.ScoreDao;
+import dao.ScoreHistogram;
+import dao.ScoreQuery;
+import dao.ScoreStatistics;
+import util.AsyncExecutor;
 
 import javax.swing.*;
 import javax.swing.table.*;
@@ -15,6 +23,8 @@ import java.awt.*;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 统计分析面板
@@ -23,14 +33,17 @@ public class StatisticsPanel extends JPanel {
     
     private User currentUser;
     private ScoreService scoreService = new ScoreService();
-    private CourseDao courseDao = new CourseDao();
-    private ClazzDao clazzDao = new ClazzDao();
+    private RankingService rankingService = new RankingService();
+    private StudentService studentService = new StudentService();
+    private ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
     private ScoreDao scoreDao = new ScoreDao();
     
     // 选择组件
     private JComboBox<String> statsTypeCombo;
     private JComboBox<Course> courseCombo;
     private JComboBox<Clazz> classCombo;
+    private JComboBox<String> examTypeCombo;
+    private JComboBox<String> bucketCombo;
     private JButton analyzeButton;
     
     // 统计结果区域
@@ -72,7 +85,7 @@ public class StatisticsPanel extends JPanel {
         // 统计类型
         selectPanel.add(new JLabel("统计类型："));
         statsTypeCombo = new JComboBox<>(new String[]{
-            "课程成绩分析", "班级成绩对比", "成绩分布统计", "学生成绩排名"
+            "课程成绩分析", "班级成绩对比", "成绩分布统计", "学生成绩排名", "学生GPA排名"
         });
         statsTypeCombo.setPreferredSize(new Dimension(150, 28));
         selectPanel.add(statsTypeCombo);
@@ -91,6 +104,21 @@ public class StatisticsPanel extends JPanel {
         loadClassCombo();
         selectPanel.add(classCombo);
         
+        // 考试类型（成绩分布、成绩排名）
+        selectPanel.add(new JLabel("考试类型："));
+        examTypeCombo = new JComboBox<>(new String[]{"全部", "平时", "期中", "期末"});
+        examTypeCombo.setSelectedItem("期末");
+        examTypeCombo.setPreferredSize(new Dimension(80, 28));
+        examTypeCombo.setEnabled(false);
+        selectPanel.add(examTypeCombo);
+        
+        // 分段方式（成绩分布）
+        selectPanel.add(new JLabel("分段："));
+        bucketCombo = new JComboBox<>(new String[]{"按等级", "每10分", "每5分"});
+        bucketCombo.setPreferredSize(new Dimension(90, 28));
+        bucketCombo.setEnabled(false);
+        selectPanel.add(bucketCombo);
+        
         // 分析按钮
         analyzeButton = new JButton("开始分析");
         analyzeButton.setFont(new Font("Dialog", Font.BOLD, 14));
@@ -194,9 +222,9 @@ public class StatisticsPanel extends JPanel {
             
             List<Course> courses;
             if (currentUser.isTeacher()) {
-                courses = courseDao.findByTeacherId(currentUser.getRelatedId());
+                courses = referenceData.getCoursesByTeacherId(currentUser.getRelatedId());
             } else {
-                courses = courseDao.findAll();
+                courses = referenceData.getCourses();
             }
             
             for (Course c : courses) {
@@ -216,7 +244,7 @@ public class StatisticsPanel extends JPanel {
             allClass.setClassName("-- 全部班级 --");
             classCombo.addItem(allClass);
             
-            List<Clazz> classes = clazzDao.findAll();
+            List<Clazz> classes = referenceData.getClasses();
             for (Clazz c : classes) {
                 classCombo.addItem(c);
             }
@@ -232,7 +260,9 @@ public class StatisticsPanel extends JPanel {
         statsTypeCombo.addActionListener(e -> {
             int index = statsTypeCombo.getSelectedIndex();
             courseCombo.setEnabled(index == 0 || index == 2 || index == 3);
-            classCombo.setEnabled(index == 1 || index == 3);
+            classCombo.setEnabled(index == 1 || index == 2 || index == 3 || index == 4);
+            examTypeCombo.setEnabled(index == 2 || index == 3);
+            bucketCombo.setEnabled(index == 2);
         });
     }
     
@@ -258,6 +288,9 @@ public class StatisticsPanel extends JPanel {
                 case 3:
                     analyzeStudentRanking();
                     break;
+                case 4:
+                    analyzeGpaRanking();
+                    break;
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "分析失败：" + e.getMessage(), 
@@ -268,6 +301,7 @@ public class StatisticsPanel extends JPanel {
     
     /**
      * 课程成绩分析
+     * 成绩列表和统计值（一次扫描得到）并行查询，全部返回后在事件线程中更新界面
      */
     private void analyzeCourseScore() throws Exception {
         Course selectedCourse = (Course) courseCombo.getSelectedItem();
@@ -278,24 +312,36 @@ public class StatisticsPanel extends JPanel {
         
         Integer courseId = selectedCourse.getId();
         
-        // 获取统计数据
-        List<Score> scores = scoreService.findByCourseId(courseId);
-        Double avg = scoreService.getCourseAverageScore(courseId);
-        Double max = scoreService.getCourseMaxScore(courseId);
-        Double min = scoreService.getCourseMinScore(courseId);
-        Map<String, Integer> distribution = scoreService.getCourseScoreDistribution(courseId);
-        
-        // 计算及格率
-        int passCount = 0;
-        for (Score s : scores) {
-            if (s.getScore() != null && s.getScore() >= 60) {
-                passCount++;
-            }
-        }
-        double passRate = scores.isEmpty() ? 0 : (passCount * 100.0 / scores.size());
+        // 并行获取成绩列表和统计数据
+        CompletableFuture<List<Score>> scoresFuture = scoreService.findByCourseIdAsync(courseId);
+        CompletableFuture<ScoreStatistics> statsFuture = scoreService.getCourseStatisticsAsync(courseId);
+        
+        analyzeButton.setEnabled(false);
+        CompletableFuture.allOf(scoresFuture, statsFuture)
+                .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                    analyzeButton.setEnabled(true);
+                    if (error != null) {
+                        Throwable cause = AsyncExecutor.unwrap(error);
+                        JOptionPane.showMessageDialog(this, "分析失败：" + cause.getMessage(),
+                                "错误", JOptionPane.ERROR_MESSAGE);
+                        cause.printStackTrace();
+                        return;
+                    }
+                    showCourseScore(selectedCourse, scoresFuture.join(), statsFuture.join());
+                }));
+    }
+    
+    /**
+     * 显示课程成绩分析结果
+     */
+    private void showCourseScore(Course selectedCourse, List<Score> scores, ScoreStatistics stats) {
+        Double avg = stats.getAverageScore();
+        Double max = stats.getMaxScore();
+        Double min = stats.getMinScore();
+        double passRate = stats.getPassRate();
         
         // 更新统计信息
-        countLabel.setText("总人数：" + scores.size());
+        countLabel.setText("总人数：" + stats.getTotalCount());
         avgLabel.setText("平均分：" + (avg != null ? String.format("%.2f", avg) : "--"));
         maxLabel.setText("最高分：" + (max != null ? String.format("%.1f", max) : "--"));
         minLabel.setText("最低分：" + (min != null ? String.format("%.1f", min) : "--"));
@@ -317,7 +363,7 @@ public class StatisticsPanel extends JPanel {
         }
         
         // 绘制分布图
-        drawDistributionChart(distribution, selectedCourse.getCourseName());
+        drawDistributionChart(stats.getDistribution(), selectedCourse.getCourseName());
     }
     
     /**
@@ -382,51 +428,89 @@ public class StatisticsPanel extends JPanel {
     
     /**
      * 成绩分布统计
+     * 范围为所选课程、班级和考试类型的组合，分段按等级或固定组距，在数据库中一次分组统计
      */
     private void analyzeScoreDistribution() throws Exception {
         Course selectedCourse = (Course) courseCombo.getSelectedItem();
-        if (selectedCourse == null || selectedCourse.getId() == null) {
-            JOptionPane.showMessageDialog(this, "请选择课程", "提示", JOptionPane.WARNING_MESSAGE);
+        Clazz selectedClass = (Clazz) classCombo.getSelectedItem();
+        Integer courseId = (selectedCourse != null && selectedCourse.getId() != null) ? 
+                           selectedCourse.getId() : null;
+        Integer classId = (selectedClass != null && selectedClass.getId() != null) ? 
+                          selectedClass.getId() : null;
+        if (courseId == null && classId == null) {
+            JOptionPane.showMessageDialog(this, "请选择课程或班级", "提示", JOptionPane.WARNING_MESSAGE);
             return;
         }
         
-        Integer courseId = selectedCourse.getId();
-        Map<String, Integer> distribution = scoreService.getCourseScoreDistribution(courseId);
+        ScoreQuery query = new ScoreQuery();
+        query.setCourseId(courseId);
+        query.setClassId(classId);
+        if (examTypeCombo.getSelectedIndex() > 0) {
+            query.setExamType((String) examTypeCombo.getSelectedItem());
+        }
+        if (currentUser.isTeacher()) {
+            query.setTeacherId(currentUser.getRelatedId());
+        }
         
-        // 计算总数
-        int total = 0;
-        for (Integer count : distribution.values()) {
-            total += count;
+        double[] boundaries;
+        switch (bucketCombo.getSelectedIndex()) {
+            case 1:
+                boundaries = ScoreHistogram.boundariesOfWidth(10);
+                break;
+            case 2:
+                boundaries = ScoreHistogram.boundariesOfWidth(5);
+                break;
+            default:
+                boundaries = ScoreStatistics.DEFAULT_BOUNDARIES;
+        }
+        ScoreHistogram histogram = scoreService.getScoreHistogram(query, boundaries);
+        int total = histogram.getTotalCount();
+        
+        // 人数最多的分段，及格线为分段边界时按累计占比算及格率
+        int peak = 0;
+        int passIndex = -1;
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            if (histogram.getCount(i) > histogram.getCount(peak)) {
+                peak = i;
+            }
+            if (i < boundaries.length && boundaries[i] == ScoreStatistics.PASS_SCORE) {
+                passIndex = i;
+            }
         }
         
         // 更新统计信息
+        Double avg = histogram.getAverageScore();
         countLabel.setText("总人数：" + total);
-        avgLabel.setText("优秀率：" + (total > 0 ? 
-                String.format("%.1f%%", distribution.getOrDefault("优秀(90-100)", 0) * 100.0 / total) : "--"));
-        maxLabel.setText("良好率：" + (total > 0 ? 
-                String.format("%.1f%%", distribution.getOrDefault("良好(80-89)", 0) * 100.0 / total) : "--"));
-        minLabel.setText("及格率：" + (total > 0 ? 
-                String.format("%.1f%%", (total - distribution.getOrDefault("不及格(<60)", 0)) * 100.0 / total) : "--"));
-        passRateLabel.setText("不及格：" + distribution.getOrDefault("不及格(<60)", 0) + " 人");
+        avgLabel.setText("平均分：" + (avg != null ? String.format("%.2f", avg) : "--"));
+        maxLabel.setText("最多：" + (total > 0 ? histogram.getLabel(peak) + " (" + histogram.getCount(peak) + "人)" : "--"));
+        minLabel.setText("及格率：" + (total > 0 && passIndex >= 0 ? 
+                String.format("%.1f%%", 100 - histogram.getCumulativePercent(passIndex)) : "--"));
+        passRateLabel.setText("分段数：" + histogram.getBucketCount());
         
         // 更新表格
-        String[] columns = {"成绩等级", "人数", "占比"};
+        String[] columns = {"分数段", "人数", "占比", "累计占比", "段内平均分"};
         tableModel.setColumnIdentifiers(columns);
         tableModel.setRowCount(0);
         
-        String[] levels = {"优秀(90-100)", "良好(80-89)", "中等(70-79)", "及格(60-69)", "不及格(<60)"};
-        for (String level : levels) {
-            int count = distribution.getOrDefault(level, 0);
-            double percent = total > 0 ? count * 100.0 / total : 0;
-            tableModel.addRow(new Object[]{level, count, String.format("%.1f%%", percent)});
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            Double mean = histogram.getMean(i);
+            tableModel.addRow(new Object[]{
+                histogram.getLabel(i),
+                histogram.getCount(i),
+                String.format("%.1f%%", histogram.getPercent(i)),
+                String.format("%.1f%%", histogram.getCumulativePercent(i)),
+                mean != null ? String.format("%.2f", mean) : "--"
+            });
         }
         
         // 绘制分布图
-        drawDistributionChart(distribution, selectedCourse.getCourseName());
+        String title = selectedCourse != null && courseId != null ? selectedCourse.getCourseName() : selectedClass.getClassName();
+        drawDistributionChart(histogram.getDistribution(), title);
     }
     
     /**
      * 学生成绩排名
+     * 排名按课程、考试类型和班级缓存，反复查看不重新排序；学生信息取自同一范围的成绩查询
      */
     private void analyzeStudentRanking() throws Exception {
         Course selectedCourse = (Course) courseCombo.getSelectedItem();
@@ -440,46 +524,117 @@ public class StatisticsPanel extends JPanel {
         Integer courseId = selectedCourse.getId();
         Integer classId = (selectedClass != null && selectedClass.getId() != null) ? 
                           selectedClass.getId() : null;
-        
-        // 获取成绩并按分数排序
-        List<Score> scores = scoreService.search(null, null, classId, courseId, null, null, null);
-        scores.sort((a, b) -> {
-            if (a.getScore() == null) return 1;
-            if (b.getScore() == null) return -1;
-            return Double.compare(b.getScore(), a.getScore());
-        });
+        // 排名只比较同一种考试类型的成绩，“全部”没有对应的排名范围
+        String examType = examTypeCombo.getSelectedIndex() > 0 ? (String) examTypeCombo.getSelectedItem() : null;
+        if (examType == null) {
+            JOptionPane.showMessageDialog(this, "成绩排名请选择一种考试类型", "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        RankingScope scope = classId != null ? 
+                RankingScope.courseInClass(courseId, examType, classId) : RankingScope.course(courseId, examType);
+        
+        ScoreQuery query = new ScoreQuery();
+        query.setCourseId(courseId);
+        query.setClassId(classId);
+        query.setExamType(examType);
+        
+        CompletableFuture<Ranking> rankingFuture = rankingService.getRankingAsync(scope);
+        CompletableFuture<List<Score>> scoresFuture = scoreService.searchAsync(query);
+        
+        analyzeButton.setEnabled(false);
+        CompletableFuture.allOf(rankingFuture, scoresFuture)
+                .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                    analyzeButton.setEnabled(true);
+                    if (error != null) {
+                        Throwable cause = AsyncExecutor.unwrap(error);
+                        JOptionPane.showMessageDialog(this, "分析失败：" + cause.getMessage(),
+                                "错误", JOptionPane.ERROR_MESSAGE);
+                        cause.printStackTrace();
+                        return;
+                    }
+                    Map<Integer, String[]> students = new HashMap<>();
+                    for (Score s : scoresFuture.join()) {
+                        students.put(s.getStudentId(), new String[]{s.getStudentNo(), s.getStudentName(), s.getClassName()});
+                    }
+                    showRanking(rankingFuture.join(), students, "成绩", "%.1f",
+                            "课程：" + selectedCourse.getCourseName() + "（" + examType + "）");
+                }));
+    }
+    
+    /**
+     * 学生GPA排名，未选择班级时为全部学生
+     */
+    private void analyzeGpaRanking() throws Exception {
+        Clazz selectedClass = (Clazz) classCombo.getSelectedItem();
+        Integer classId = (selectedClass != null && selectedClass.getId() != null) ? 
+                          selectedClass.getId() : null;
+        RankingScope scope = classId != null ? RankingScope.gpaInClass(classId) : RankingScope.gpa();
+        
+        CompletableFuture<Ranking> rankingFuture = rankingService.getRankingAsync(scope);
+        CompletableFuture<List<Student>> studentsFuture = classId != null ? 
+                studentService.findByClassIdAsync(classId) : studentService.findAllAsync();
+        
+        analyzeButton.setEnabled(false);
+        CompletableFuture.allOf(rankingFuture, studentsFuture)
+                .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                    analyzeButton.setEnabled(true);
+                    if (error != null) {
+                        Throwable cause = AsyncExecutor.unwrap(error);
+                        JOptionPane.showMessageDialog(this, "分析失败：" + cause.getMessage(),
+                                "错误", JOptionPane.ERROR_MESSAGE);
+                        cause.printStackTrace();
+                        return;
+                    }
+                    Map<Integer, String[]> students = new HashMap<>();
+                    for (Student s : studentsFuture.join()) {
+                        students.put(s.getId(), new String[]{s.getStudentNo(), s.getName(), s.getClassName()});
+                    }
+                    showRanking(rankingFuture.join(), students, "GPA", "%.2f",
+                            classId != null ? "班级：" + selectedClass.getClassName() : "范围：全部班级");
+                }));
+    }
+    
+    /**
+     * 显示排名，按已排好的名次顺序填表
+     * @param students 学生ID到学号、姓名、班级的映射
+     */
+    private void showRanking(Ranking ranking, Map<Integer, String[]> students, String valueName,
+                             String valueFormat, String scopeText) {
+        List<Ranking.Entry> podium = ranking.top(3);
+        String[] places = {"第一名", "第二名", "第三名"};
+        JLabel[] placeLabels = {maxLabel, minLabel, passRateLabel};
         
         // 更新统计信息
-        countLabel.setText("总人数：" + scores.size());
-        avgLabel.setText("课程：" + selectedCourse.getCourseName());
-        if (!scores.isEmpty() && scores.get(0).getScore() != null) {
-            maxLabel.setText("第一名：" + scores.get(0).getStudentName() + 
-                    " (" + String.format("%.1f", scores.get(0).getScore()) + ")");
-        }
-        if (scores.size() > 1 && scores.get(1).getScore() != null) {
-            minLabel.setText("第二名：" + scores.get(1).getStudentName() + 
-                    " (" + String.format("%.1f", scores.get(1).getScore()) + ")");
-        }
-        if (scores.size() > 2 && scores.get(2).getScore() != null) {
-            passRateLabel.setText("第三名：" + scores.get(2).getStudentName() + 
-                    " (" + String.format("%.1f", scores.get(2).getScore()) + ")");
+        countLabel.setText("总人数：" + ranking.size());
+        avgLabel.setText(scopeText);
+        for (int i = 0; i < placeLabels.length; i++) {
+            if (i < podium.size()) {
+                Ranking.Entry entry = podium.get(i);
+                String[] student = students.get(entry.getStudentId());
+                placeLabels[i].setText(places[i] + "：" + (student != null ? student[1] : "") + 
+                        " (" + String.format(valueFormat, entry.getValue()) + ")");
+            } else {
+                placeLabels[i].setText(places[i] + "：--");
+            }
         }
         
-        // 更新表格
-        String[] columns = {"排名", "学号", "姓名", "班级", "成绩"};
-        tableModel.setColumnIdentifiers(columns);
-        tableModel.setRowCount(0);
-        
-        int rank = 1;
-        for (Score s : scores) {
-            tableModel.addRow(new Object[]{
-                rank++,
-                s.getStudentNo(),
-                s.getStudentName(),
-                s.getClassName(),
-                s.getScore() != null ? String.format("%.1f", s.getScore()) : ""
-            });
+        // 更新表格（一次设置全部行，上万行时不逐行触发表格事件）
+        String[] columns = {"排名", "密集排名", "学号", "姓名", "班级", valueName, "百分位"};
+        Object[][] rows = new Object[ranking.size()][];
+        for (int i = 0; i < ranking.size(); i++) {
+            Ranking.Entry entry = ranking.get(i);
+            String[] student = students.getOrDefault(entry.getStudentId(), new String[]{"", "", ""});
+            rows[i] = new Object[]{
+                entry.getRank(),
+                entry.getDenseRank(),
+                student[0],
+                student[1],
+                student[2],
+                String.format(valueFormat, entry.getValue()),
+                String.format("%.1f%%", entry.getPercentile())
+            };
         }
+        tableModel.setDataVector(rows, columns);
         
         // 清空图表区域
         chartPanel.removeAll();
@@ -492,7 +647,8 @@ public class StatisticsPanel extends JPanel {
     }
     
     /**
-     * 绘制成绩分布图（简易柱状图）
+     * 绘制成绩分布图（简易柱状图），按分段从低到高排列
+     * 等级分段按等级着色，其他分段统一颜色；分段较多时柱子变窄，放不下的标签不画
      */
     private void drawDistributionChart(Map<String, Integer> distribution, String title) {
         chartPanel.removeAll();
@@ -507,8 +663,9 @@ public class StatisticsPanel extends JPanel {
                 int width = getWidth();
                 int height = getHeight();
                 int margin = 60;
-                int barWidth = 60;
-                int gap = 30;
+                int buckets = Math.max(distribution.size(), 1);
+                int slot = Math.max((width - margin * 2) / buckets, 4);
+                int barWidth = Math.min(60, slot * 2 / 3);
                 
                 // 绘制标题
                 g2d.setFont(new Font("Dialog", Font.BOLD, 16));
@@ -523,33 +680,33 @@ public class StatisticsPanel extends JPanel {
                     if (count > maxCount) maxCount = count;
                 }
                 
-                // 颜色数组
-                Color[] colors = {
-                    new Color(92, 184, 92),   // 优秀 - 绿色
-                    new Color(91, 192, 222),  // 良好 - 蓝色
-                    new Color(240, 173, 78),  // 中等 - 橙色
-                    new Color(153, 153, 153), // 及格 - 灰色
-                    new Color(217, 83, 79)    // 不及格 - 红色
-                };
-                
-                String[] levels = {"优秀(90-100)", "良好(80-89)", "中等(70-79)", "及格(60-69)", "不及格(<60)"};
+                // 等级颜色
+                Map<String, Color> levelColors = new HashMap<>();
+                levelColors.put("优秀(90-100)", new Color(92, 184, 92));    // 绿色
+                levelColors.put("良好(80-89)", new Color(91, 192, 222));    // 蓝色
+                levelColors.put("中等(70-79)", new Color(240, 173, 78));    // 橙色
+                levelColors.put("及格(60-69)", new Color(153, 153, 153));   // 灰色
+                levelColors.put("不及格(<60)", new Color(217, 83, 79));     // 红色
+                Color defaultColor = new Color(51, 122, 183);
                 
-                int startX = (width - (barWidth * 5 + gap * 4)) / 2;
+                int startX = (width - slot * buckets) / 2 + (slot - barWidth) / 2;
                 int chartHeight = height - margin * 2 - 50;
                 
-                for (int i = 0; i < levels.length; i++) {
-                    int count = distribution.getOrDefault(levels[i], 0);
+                int i = 0;
+                for (Map.Entry<String, Integer> entry : distribution.entrySet()) {
+                    int count = entry.getValue();
                     int barHeight = (int) ((double) count / maxCount * chartHeight);
                     
-                    int x = startX + i * (barWidth + gap);
+                    int x = startX + i * slot;
                     int y = height - margin - barHeight;
+                    Color color = levelColors.getOrDefault(entry.getKey(), defaultColor);
                     
                     // 绘制柱子
-                    g2d.setColor(colors[i]);
+                    g2d.setColor(color);
                     g2d.fillRect(x, y, barWidth, barHeight);
                     
                     // 绘制边框
-                    g2d.setColor(colors[i].darker());
+                    g2d.setColor(color.darker());
                     g2d.drawRect(x, y, barWidth, barHeight);
                     
                     // 绘制数量
@@ -558,14 +715,19 @@ public class StatisticsPanel extends JPanel {
                     String countStr = String.valueOf(count);
                     fm = g2d.getFontMetrics();
                     int textWidth = fm.stringWidth(countStr);
-                    g2d.drawString(countStr, x + (barWidth - textWidth) / 2, y - 5);
+                    if (textWidth <= slot) {
+                        g2d.drawString(countStr, x + (barWidth - textWidth) / 2, y - 5);
+                    }
                     
                     // 绘制标签
                     g2d.setFont(new Font("Dialog", Font.PLAIN, 11));
-                    String shortLabel = levels[i].split("\\(")[0];
+                    String shortLabel = entry.getKey().split("\\(")[0];
                     fm = g2d.getFontMetrics();
                     textWidth = fm.stringWidth(shortLabel);
-                    g2d.drawString(shortLabel, x + (barWidth - textWidth) / 2, height - margin + 20);
+                    if (textWidth <= slot) {
+                        g2d.drawString(shortLabel, x + (barWidth - textWidth) / 2, height - margin + 20);
+                    }
+                    i++;
                 }
             }
         };
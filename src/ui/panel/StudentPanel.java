@@ -4,13 +4,17 @@ import entity.User;
 import entity.Student;
 import entity.Clazz;
 import service.StudentService;
-import dao.ClazzDao;
+import service.StudentImportService;
+import service.ImportResult;
+import dao.ReferenceDataCache;
+import dao.StudentQuery;
 import util.ExcelUtil;
 
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.ArrayList;
@@ -22,7 +26,8 @@ public class StudentPanel extends JPanel {
     
     private User currentUser;
     private StudentService studentService = new StudentService();
-    private ClazzDao clazzDao = new ClazzDao();
+    private ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+    private StudentImportService studentImportService = new StudentImportService();
     
     // 搜索组件
     private JTextField searchStudentNoField;
@@ -51,8 +56,11 @@ public class StudentPanel extends JPanel {
     private int pageSize = 20;
     private int totalRecords = 0;
     
-    // 当前数据
-    private List<Student> allStudents = new ArrayList<>();
+    // 当前页数据
+    private List<Student> pageStudents = new ArrayList<>();
+    
+    // 当前查询条件（学生本人查看时为null）
+    private StudentQuery currentQuery;
     
     public StudentPanel(User user) {
         this.currentUser = user;
@@ -221,7 +229,7 @@ public class StudentPanel extends JPanel {
             allClass.setClassName("全部班级");
             searchClassCombo.addItem(allClass);
             
-            List<Clazz> classes = clazzDao.findAll();
+            List<Clazz> classes = referenceData.getClasses();
             for (Clazz clazz : classes) {
                 searchClassCombo.addItem(clazz);
             }
@@ -280,16 +288,14 @@ public class StudentPanel extends JPanel {
         // 分页按钮
         prevButton.addActionListener(e -> {
             if (currentPage > 1) {
-                currentPage--;
-                updateTable();
+                loadPage(false);
             }
         });
         
         nextButton.addActionListener(e -> {
             int totalPages = (int) Math.ceil((double) totalRecords / pageSize);
             if (currentPage < totalPages) {
-                currentPage++;
-                updateTable();
+                loadPage(true);
             }
         });
         
@@ -321,16 +327,18 @@ public class StudentPanel extends JPanel {
             if (currentUser.isStudent()) {
                 // 学生只能看自己的信息
                 Student student = studentService.findById(currentUser.getRelatedId());
-                allStudents = new ArrayList<>();
+                pageStudents = new ArrayList<>();
                 if (student != null) {
-                    allStudents.add(student);
+                    pageStudents.add(student);
                 }
+                currentQuery = null;
+                totalRecords = pageStudents.size();
+                currentPage = 1;
+                updateTable();
             } else {
-                allStudents = studentService.findAll();
+                currentQuery = new StudentQuery();
+                loadFirstPage();
             }
-            totalRecords = allStudents.size();
-            currentPage = 1;
-            updateTable();
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "加载数据失败：" + e.getMessage(), 
                     "错误", JOptionPane.ERROR_MESSAGE);
@@ -350,16 +358,13 @@ public class StudentPanel extends JPanel {
             String status = (String) searchStatusCombo.getSelectedItem();
             if ("全部".equals(status)) status = null;
             
-            allStudents = studentService.search(
+            currentQuery = new StudentQuery(
                 studentNo.isEmpty() ? null : studentNo,
                 name.isEmpty() ? null : name,
                 classId,
                 status
             );
-            
-            totalRecords = allStudents.size();
-            currentPage = 1;
-            updateTable();
+            loadFirstPage();
             
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "搜索失败：" + e.getMessage(), 
@@ -368,6 +373,39 @@ public class StudentPanel extends JPanel {
         }
     }
     
+    /**
+     * 按当前条件统计总数并加载第一页
+     */
+    private void loadFirstPage() throws Exception {
+        totalRecords = studentService.searchCount(currentQuery);
+        pageStudents = studentService.searchPage(currentQuery, null, true, pageSize);
+        currentPage = 1;
+        updateTable();
+    }
+    
+    /**
+     * 以当前页首行/末行为起点翻页，只从数据库读取一页数据
+     */
+    private void loadPage(boolean forward) {
+        if (currentQuery == null || pageStudents.isEmpty()) {
+            return;
+        }
+        try {
+            Student cursor = forward ? pageStudents.get(pageStudents.size() - 1) : pageStudents.get(0);
+            List<Student> page = studentService.searchPage(currentQuery, cursor.getStudentNo(), forward, pageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            pageStudents = page;
+            currentPage += forward ? 1 : -1;
+            updateTable();
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "加载数据失败：" + e.getMessage(), 
+                    "错误", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+    
     private void doReset() {
         searchStudentNoField.setText("");
         searchNameField.setText("");
@@ -381,11 +419,7 @@ public class StudentPanel extends JPanel {
         
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
-        int start = (currentPage - 1) * pageSize;
-        int end = Math.min(start + pageSize, allStudents.size());
-        
-        for (int i = start; i < end; i++) {
-            Student s = allStudents.get(i);
+        for (Student s : pageStudents) {
             Object[] row = {
                 false,
                 s.getId(),
@@ -493,80 +527,88 @@ public class StudentPanel extends JPanel {
     }
     
     private void doExport() {
-        if (allStudents.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "没有数据可导出", "提示", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         String[] headers = {"学号", "姓名", "性别", "班级", "电话", "邮箱", "状态", "入学日期"};
-        List<Object[]> data = new ArrayList<>();
         
-        for (Student s : allStudents) {
-            data.add(new Object[]{
-                s.getStudentNo(),
-                s.getName(),
-                s.getGender(),
-                s.getClassName(),
-                s.getPhone(),
-                s.getEmail(),
-                s.getStatus(),
-                s.getEnrollmentDate() != null ? sdf.format(s.getEnrollmentDate()) : ""
-            });
+        ExcelUtil.RowSource source;
+        try {
+            if (currentQuery == null) {
+                // 未按条件查询时导出当前显示的学生
+                if (pageStudents.isEmpty()) {
+                    JOptionPane.showMessageDialog(this, "没有数据可导出", "提示", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                List<Student> students = new ArrayList<>(pageStudents);
+                source = sink -> students.forEach(s -> sink.accept(toExportRow(s, sdf)));
+            } else {
+                if (studentService.searchCount(currentQuery) == 0) {
+                    JOptionPane.showMessageDialog(this, "没有数据可导出", "提示", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                // 游标逐行读取并写出，不把全部学生加载到内存
+                StudentQuery query = currentQuery;
+                source = sink -> studentService.forEachStudent(query, s -> sink.accept(toExportRow(s, sdf)));
+            }
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "导出失败：" + e.getMessage(), 
+                    "错误", JOptionPane.ERROR_MESSAGE);
+            return;
         }
         
-        ExcelUtil.exportStudents(data, headers);
+        ExcelUtil.exportStudents(source, headers);
+    }
+    
+    private Object[] toExportRow(Student s, SimpleDateFormat sdf) {
+        return new Object[]{
+            s.getStudentNo(),
+            s.getName(),
+            s.getGender(),
+            s.getClassName(),
+            s.getPhone(),
+            s.getEmail(),
+            s.getStatus(),
+            s.getEnrollmentDate() != null ? sdf.format(s.getEnrollmentDate()) : ""
+        };
     }
     
     private void doImport() {
-        List<String[]> dataList = ExcelUtil.importStudents();
-        if (dataList.isEmpty()) {
+        File file = ExcelUtil.chooseImportFile("导入学生信息");
+        if (file == null) {
             return;
         }
+        int option = JOptionPane.showConfirmDialog(this,
+                "是否同时为导入的学生创建登录账户（用户名为学号，初始密码123456）？",
+                "导入学生", JOptionPane.YES_NO_CANCEL_OPTION);
+        if (option != JOptionPane.YES_OPTION && option != JOptionPane.NO_OPTION) {
+            return;
+        }
+        boolean createAccounts = option == JOptionPane.YES_OPTION;
         
-        int successCount = 0;
-        int failCount = 0;
-        StringBuilder errorMsg = new StringBuilder();
+        ImportProgressDialog progressDialog = new ImportProgressDialog(this, "正在导入学生");
+        progressDialog.setVisible(true);
+        importButton.setEnabled(false);
         
-        for (int i = 0; i < dataList.size(); i++) {
-            String[] row = dataList.get(i);
+        // 在后台线程导入，进度和结果回到事件线程显示
+        Thread worker = new Thread(() -> {
             try {
-                if (row.length < 4) {
-                    throw new IllegalArgumentException("数据列数不足");
-                }
-                
-                Student student = new Student();
-                student.setStudentNo(row[0]);
-                student.setName(row[1]);
-                student.setGender(row.length > 2 ? row[2] : "男");
-                
-                // 根据班级名称查找班级ID
-                if (row.length > 3 && !row[3].isEmpty()) {
-                    Clazz clazz = clazzDao.findByClassName(row[3]);
-                    if (clazz != null) {
-                        student.setClassId(clazz.getId());
-                    }
-                }
-                
-                if (row.length > 4) student.setPhone(row[4]);
-                if (row.length > 5) student.setEmail(row[5]);
-                
-                studentService.addStudent(student, false);
-                successCount++;
-                
+                ImportResult result = studentImportService.importFile(file, createAccounts, progressDialog);
+                SwingUtilities.invokeLater(() -> {
+                    progressDialog.dispose();
+                    importButton.setEnabled(true);
+                    ImportProgressDialog.showResult(this, result, "学号");
+                    refreshData();
+                });
             } catch (Exception e) {
-                failCount++;
-                errorMsg.append("第").append(i + 2).append("行：").append(e.getMessage()).append("\n");
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    progressDialog.dispose();
+                    importButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "导入失败：" + e.getMessage(), 
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                });
             }
-        }
-        
-        String msg = "导入完成！\n成功：" + successCount + " 条\n失败：" + failCount + " 条";
-        if (failCount > 0) {
-            msg += "\n\n失败详情：\n" + errorMsg.toString();
-        }
-        JOptionPane.showMessageDialog(this, msg, "导入结果", JOptionPane.INFORMATION_MESSAGE);
-        
-        refreshData();
+        }, "student-import");
+        worker.start();
     }
     
     /**
@@ -720,7 +762,7 @@ public class StudentPanel extends JPanel {
                 emptyClass.setClassName("-- 请选择 --");
                 classCombo.addItem(emptyClass);
                 
-                List<Clazz> classes = clazzDao.findAll();
+                List<Clazz> classes = referenceData.getClasses();
                 for (Clazz clazz : classes) {
                     classCombo.addItem(clazz);
                 }
@@ -0,0 +1,75 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步数据库操作执行器
+ * 服务层的xxxAsync方法在这里执行，返回CompletableFuture，调用方可以并行发起多个互不依赖的查询。
+ * 线程数与连接池大小一致（可通过db.async.maxConcurrency调整），并发查询数不会超过可借出的连接数，
+ * 多余的任务排队等待而不是在连接池上超时。
+ */
+public class AsyncExecutor {
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    private static final ExecutorService executor = createExecutor(DBUtil.getAsyncConcurrency());
+
+    private AsyncExecutor() {
+    }
+
+    private static ExecutorService createExecutor(int concurrency) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "db-async-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * 异步执行数据库操作
+     * SQLException等异常会包装在CompletionException中交给返回的future。
+     * 执行线程加入调用线程的读己之写会话：刚写入后发起的异步查询仍读主库，
+     * 异步写入的时间也记在调用线程上，之后调用线程的查询同样读主库。
+     */
+    public static <T> CompletableFuture<T> supply(SqlSupplier<T> supplier) {
+        DBUtil.WriteSession callerSession = DBUtil.currentWriteSession();
+        return CompletableFuture.supplyAsync(() -> {
+            DBUtil.WriteSession previous = DBUtil.joinWriteSession(callerSession);
+            try {
+                return supplier.get();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                DBUtil.joinWriteSession(previous);
+            }
+        }, executor);
+    }
+
+    /**
+     * 取出异步操作失败的真实原因
+     */
+    public static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * 可抛出SQLException的操作
+     */
+    @FunctionalInterface
+    public interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+}
@@ -0,0 +1,475 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库连接池
+ * 维护有上限的物理连接集合，借出时校验，空闲超时和超过最大存活时间的连接会被回收。
+ * 借出的连接是代理对象，调用close()时归还连接池而不是断开物理连接。
+ * 每个物理连接带有PreparedStatement缓存，相同SQL再次prepare时复用已有语句。
+ */
+public class ConnectionPool {
+
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // 空闲连接，后进先出，使热连接优先被复用
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+
+    // 借出许可，数量等于最大连接数
+    private final Semaphore permits;
+
+    // 当前物理连接总数（空闲 + 借出）
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    // 语句缓存命中/未命中次数
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String username, String password,
+                          int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds,
+                          int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("连接池最大连接数必须大于0");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minSize = Math.max(0, Math.min(minSize, maxSize));
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30000));
+        evictor.scheduleWithFixedDelay(this::evictAndFill, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从连接池借出连接，超过等待时间仍无可用连接时抛出SQLException
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("获取数据库连接超时（" + borrowTimeoutMillis + "ms），连接池已满："
+                        + getActiveCount() + "/" + maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        return lend();
+    }
+
+    /**
+     * 不等待地借出连接：连接都已借出时返回null，建立或校验连接失败时抛出SQLException
+     */
+    public Connection tryGetConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        return lend();
+    }
+
+    /**
+     * 已取得许可后借出空闲连接或新建连接，失败时归还许可
+     */
+    private Connection lend() throws SQLException {
+        try {
+            PooledConnection pooled;
+            while ((pooled = idleConnections.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled.lend();
+                }
+                destroy(pooled);
+            }
+            return createConnection().lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 借出前校验连接：检查存活时间和空闲时间，必要时发送校验请求
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (isExpired(pooled, now)) {
+            return false;
+        }
+        // 刚归还的连接无需再次校验，省去一次网络往返
+        if (now - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return !pooled.physical.isClosed() && pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        PooledConnection pooled;
+        try {
+            pooled = new PooledConnection(physical);
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        totalConnections.incrementAndGet();
+        return pooled;
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        if (pooled.statementCache != null) {
+            pooled.statementCache.clear();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {}
+    }
+
+    /**
+     * 归还连接：恢复自动提交、只读、隔离级别和当前库后放回空闲队列，已损坏或过期的连接直接关闭
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed()
+                    && !isExpired(pooled, System.currentTimeMillis());
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // 未提交的事务一律回滚，避免污染下一个使用者
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.resetSession();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idleConnections.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 定时任务：回收空闲超时/过期连接，并补足最小连接数
+     */
+    private void evictAndFill() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idleConnections.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = idleTimeoutMillis > 0 && totalConnections.get() > minSize
+                    && now - pooled.lastReturnedAt >= idleTimeoutMillis;
+            if ((idleTooLong || isExpired(pooled, now)) && idleConnections.removeFirstOccurrence(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                PooledConnection pooled = createConnection();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idleConnections.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("连接池预建连接失败：" + e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * 关闭连接池，断开所有空闲连接；借出中的连接归还时会被直接关闭
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{total=" + getTotalCount() + ", idle=" + getIdleCount()
+                + ", active=" + getActiveCount() + ", max=" + maxSize
+                + ", stmtCacheHits=" + getStatementCacheHits()
+                + ", stmtCacheMisses=" + getStatementCacheMisses() + "}";
+    }
+
+    /**
+     * 池中的物理连接
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final StatementCache statementCache;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturnedAt = createdAt;
+
+        // 建立连接时的会话状态，借用者修改过时归还前恢复
+        final boolean initialReadOnly;
+        final int initialIsolation;
+        final String initialCatalog;
+        boolean sessionChanged;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+            this.initialReadOnly = physical.isReadOnly();
+            this.initialIsolation = physical.getTransactionIsolation();
+            this.initialCatalog = physical.getCatalog();
+        }
+
+        /**
+         * 恢复只读、隔离级别和当前库为建立连接时的值
+         */
+        void resetSession() throws SQLException {
+            if (!sessionChanged) {
+                return;
+            }
+            physical.setReadOnly(initialReadOnly);
+            physical.setTransactionIsolation(initialIsolation);
+            if (initialCatalog != null) {
+                physical.setCatalog(initialCatalog);
+            }
+            sessionChanged = false;
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LogicalConnectionHandler(this));
+        }
+    }
+
+    /**
+     * 逻辑连接：close()归还连接池，归还后的任何调用都视为已关闭
+     */
+    private class LogicalConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean logicallyClosed = false;
+
+        LogicalConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    if (!logicallyClosed) {
+                        pooled.sessionChanged = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("连接已归还连接池");
+            }
+            if ("prepareStatement".equals(method.getName()) && pooled.statementCache != null && isCacheable(args)) {
+                return prepareCached((Connection) proxy, (String) args[0],
+                        args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * 只缓存prepareStatement(sql)和prepareStatement(sql, autoGeneratedKeys)
+         */
+        private boolean isCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+
+        private PreparedStatement prepareCached(Connection logical, String sql, int autoGeneratedKeys)
+                throws SQLException {
+            String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+            PreparedStatement physical = pooled.statementCache.take(key);
+            if (physical != null) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                physical = pooled.physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new CachedStatementHandler(this, logical, key, physical));
+        }
+    }
+
+    /**
+     * 缓存的语句：close()清空参数后放回所属连接的语句缓存
+     */
+    private class CachedStatementHandler implements InvocationHandler {
+        private final LogicalConnectionHandler owner;
+        private final Connection logical;
+        private final String key;
+        private final PreparedStatement physical;
+        private boolean logicallyClosed = false;
+
+        CachedStatementHandler(LogicalConnectionHandler owner, Connection logical,
+                               String key, PreparedStatement physical) {
+            this.owner = owner;
+            this.logical = logical;
+            this.key = key;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        checkin();
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || physical.isClosed();
+                case "getConnection":
+                    return logical;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physical + "]";
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("语句已关闭");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void checkin() {
+            try {
+                if (owner.logicallyClosed || physical.isClosed()) {
+                    physical.close();
+                    return;
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+                // 游标读取会修改fetchSize，放回缓存前恢复默认值
+                if (physical.getFetchSize() != 0) {
+                    physical.setFetchSize(0);
+                }
+                owner.pooled.statementCache.offer(key, physical);
+            } catch (SQLException e) {
+                try {
+                    physical.close();
+                } catch (SQLException ignored) {}
+            }
+        }
+    }
+}
@@ -2,11 +2,18 @@ package util;
 
 import java.io.InputStream;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 /**
  * 数据库工具类
  * 负责数据库连接的创建、管理和释放
+ * 连接由内置连接池提供，close()会把连接归还连接池
+ * 配置了只读副本时，查询通过getReadConnection()路由到副本，写操作和事务始终使用主库
  */
 public class DBUtil {
     
@@ -15,8 +22,50 @@ public class DBUtil {
     private static String username;
     private static String password;
     
-    // 使用ThreadLocal保证线程安全
-    private static ThreadLocal<Connection> connectionHolder = new ThreadLocal<>();
+    // 连接池
+    private static ConnectionPool pool;
+    
+    // db.properties中的全部配置项
+    private static Properties config = new Properties();
+    
+    // SQL执行统计，未开启时为null
+    private static QueryMetrics metrics;
+    
+    // 慢查询日志，未开启时为null
+    private static SlowQueryLog slowQueryLog;
+    
+    // 只读副本，未配置时为null
+    private static ReplicaRouter replicaRouter;
+    
+    // 写入后多长时间内本线程的读操作仍走主库（毫秒），保证读到自己刚写入的数据
+    private static long readYourWritesWindow = 1000;
+    
+    // 读己之写是否默认开启，可按线程覆盖
+    private static boolean readYourWritesDefault = true;
+    
+    // 当前线程所属会话最近一次写入的时间，异步执行时工作线程与调用线程共用同一个会话
+    private static ThreadLocal<WriteSession> writeSession = ThreadLocal.withInitial(WriteSession::new);
+    
+    // 本进程任一线程最近一次写入的时间，副本可能尚未同步这次写入
+    private static volatile long lastWriteTimeAnyThread;
+    
+    // 当前线程对读己之写的设置，为null时使用默认值
+    private static ThreadLocal<Boolean> readYourWritesOverride = new ThreadLocal<>();
+    
+    // 当前线程是否强制从主库读取
+    private static ThreadLocal<Boolean> forcePrimary = new ThreadLocal<>();
+    
+    // 异步查询的最大并发数，0表示与连接池大小一致
+    private static int asyncConcurrency = 0;
+    
+    // 游标读取时每次从服务器取回的行数
+    private static int fetchSize = 500;
+    
+    // 批量写入时每次发送到服务器的行数
+    private static int batchSize = 1000;
+    
+    // 当前线程绑定的事务，使用ThreadLocal保证线程安全
+    private static ThreadLocal<Transaction> transactionHolder = new ThreadLocal<>();
     
     // 静态代码块加载配置
     static {
@@ -28,7 +77,7 @@ public class DBUtil {
             if (is == null) {
                 // 如果配置文件不存在，使用默认配置
                 driver = "com.mysql.cj.jdbc.Driver";
-                url = "jdbc:mysql://localhost:3306/student_management?useSSL=false&serverTimezone=Asia/Shanghai&characterEncoding=utf8";
+                url = "jdbc:mysql://localhost:3306/student_management?useSSL=false&serverTimezone=Asia/Shanghai&characterEncoding=utf8&useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true";
                 username = "root";
                 password = "123456";
             } else {
@@ -44,30 +93,354 @@ public class DBUtil {
             Class.forName(driver);
             System.out.println("数据库驱动加载成功！");
             
+            config = props;
+            fetchSize = getIntProperty(props, "db.query.fetchSize", fetchSize);
+            batchSize = getIntProperty(props, "db.batch.size", batchSize);
+            asyncConcurrency = getIntProperty(props, "db.async.maxConcurrency", 0);
+            
+            // 初始化连接池
+            pool = createPool(props, url, username, password);
+            
+            // 只读副本：db.replica.1.url、db.replica.2.url ...，账号密码缺省时与主库相同
+            ReplicaRouter router = new ReplicaRouter(
+                    props.getProperty("db.replica.strategy", ReplicaRouter.ROUND_ROBIN).trim());
+            for (int i = 1; props.getProperty("db.replica." + i + ".url") != null; i++) {
+                String prefix = "db.replica." + i + ".";
+                router.addReplica("replica-" + i, createPool(props,
+                        props.getProperty(prefix + "url").trim(),
+                        props.getProperty(prefix + "username", username),
+                        props.getProperty(prefix + "password", password)));
+            }
+            if (!router.isEmpty()) {
+                replicaRouter = router;
+                readYourWritesWindow = getIntProperty(props, "db.replica.readYourWritesWindow", 1000);
+                readYourWritesDefault = Boolean.parseBoolean(
+                        props.getProperty("db.replica.readYourWrites", "true").trim());
+                System.out.println("已配置只读副本：" + router);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(DBUtil::shutdown, "db-pool-shutdown"));
+            
+            // SQL执行统计
+            if (Boolean.parseBoolean(props.getProperty("db.metrics.enabled", "true").trim())) {
+                metrics = new QueryMetrics();
+                metrics.registerMBean();
+                metrics.startReporter(getIntProperty(props, "db.metrics.logInterval", 300));
+                
+                // 慢查询日志依赖执行统计的连接包装
+                int slowThreshold = getIntProperty(props, "db.slowQuery.threshold", 500);
+                if (slowThreshold > 0) {
+                    slowQueryLog = new SlowQueryLog(slowThreshold,
+                            Boolean.parseBoolean(props.getProperty("db.slowQuery.explain", "true").trim()),
+                            DBUtil::openConnection,
+                            props.getProperty("db.slowQuery.file", "logs/slow-query.log").trim(),
+                            getIntProperty(props, "db.slowQuery.maxFileSize", 10 * 1024 * 1024),
+                            getIntProperty(props, "db.slowQuery.maxFiles", 5));
+                }
+            }
+            
         } catch (Exception e) {
             System.err.println("数据库配置加载失败：" + e.getMessage());
             e.printStackTrace();
         }
     }
     
+    /**
+     * 按连接池配置项创建连接池，主库和各副本使用相同的配置
+     */
+    private static ConnectionPool createPool(Properties props, String url, String username, String password) {
+        return new ConnectionPool(url, username, password,
+                getIntProperty(props, "db.pool.minSize", 2),
+                getIntProperty(props, "db.pool.maxSize", 10),
+                getIntProperty(props, "db.pool.borrowTimeout", 5000),
+                getIntProperty(props, "db.pool.idleTimeout", 300000),
+                getIntProperty(props, "db.pool.maxLifetime", 1800000),
+                getIntProperty(props, "db.pool.validationTimeout", 3),
+                getIntProperty(props, "db.pool.statementCacheSize", 64));
+    }
+    
+    /**
+     * 读取db.properties中的整数配置项，供缓存等组件使用
+     */
+    public static int getConfigInt(String key, int defaultValue) {
+        return getIntProperty(config, key, defaultValue);
+    }
+    
+    /**
+     * 读取整数配置项，缺省或格式错误时使用默认值
+     */
+    private static int getIntProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("配置项" + key + "格式错误，使用默认值：" + defaultValue);
+            return defaultValue;
+        }
+    }
+    
     /**
      * 获取数据库连接
+     * 当前线程处于事务中时返回事务绑定的连接，否则从连接池借出
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        Transaction tx = transactionHolder.get();
+        if (tx != null) {
+            return tx.connection;
+        }
+        return borrowConnection();
+    }
+    
+    /**
+     * 获取只读连接
+     * 事务中返回事务连接；配置了只读副本且当前线程不在读己之写窗口内时从副本借出，
+     * 副本全部繁忙或不可用时退回主库
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Transaction tx = transactionHolder.get();
+        if (tx != null) {
+            return tx.connection;
+        }
+        if (replicaRouter == null || forcePrimary.get() != null || mustReadFromPrimary()) {
+            return borrowConnection();
+        }
+        long start = System.nanoTime();
+        Connection conn = replicaRouter.getConnection();
+        if (conn == null) {
+            return borrowConnection();
+        }
+        return instrument(conn, start);
+    }
+    
+    /**
+     * 在主库上执行一组读操作，不受只读副本复制延迟影响，用于加载缓存等场景
+     */
+    public static <R> R withPrimary(TransactionCallback<R> callback) throws SQLException {
+        if (forcePrimary.get() != null) {
+            return callback.doInTransaction();
+        }
+        forcePrimary.set(Boolean.TRUE);
+        try {
+            return callback.doInTransaction();
+        } finally {
+            forcePrimary.remove();
+        }
+    }
+    
+    /**
+     * 在当前事务提交后执行，不在事务中时立即执行，事务回滚时丢弃
+     * 用于写操作后的缓存失效和内存数据更新：事务提交前其他线程仍可能读到旧数据并重新放入缓存
+     */
+    public static void afterTransaction(Runnable action) {
+        Transaction tx = transactionHolder.get();
+        if (tx == null) {
+            action.run();
+        } else {
+            tx.afterCompletion.add(action);
+        }
+    }
+    
+    /**
+     * 获取绑定在当前事务上的资源，同一事务中首次获取时由factory创建，不在事务中时返回null
+     * 用于在事务中累积修改，配合afterTransaction在提交后一次应用，回滚时随事务丢弃
+     * @param key 资源的键，通常为使用方自身
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getTransactionResource(Object key, Supplier<T> factory) {
+        Transaction tx = transactionHolder.get();
+        if (tx == null) {
+            return null;
+        }
+        return (T) tx.resources.computeIfAbsent(key, k -> factory.get());
+    }
+    
+    /**
+     * 记录当前线程刚执行了写操作，之后的读己之写窗口内读操作走主库
+     * 写入时间记在当前线程所属的会话上，异步任务中的写入对发起任务的线程同样可见
+     */
+    public static void markWrite() {
+        if (replicaRouter != null) {
+            long now = System.currentTimeMillis();
+            writeSession.get().lastWriteTime = now;
+            lastWriteTimeAnyThread = now;
+        }
+    }
+    
+    /**
+     * 本进程最近的写入是否可能还未同步到只读副本（在读己之写窗口内）
+     * 缓存从副本加载的结果时据此跳过，避免把复制延迟前的旧数据缓存到过期为止
+     */
+    public static boolean isReplicaCatchingUp() {
+        return replicaRouter != null
+                && System.currentTimeMillis() - lastWriteTimeAnyThread < readYourWritesWindow;
+    }
+    
+    /**
+     * 设置当前线程是否启用读己之写
+     */
+    public static void setReadYourWrites(boolean enabled) {
+        readYourWritesOverride.set(enabled);
+    }
+    
+    /**
+     * 清除当前线程的读己之写设置，恢复默认值
+     */
+    public static void clearReadYourWrites() {
+        readYourWritesOverride.remove();
+        writeSession.remove();
+    }
+    
+    /**
+     * 当前线程所属的写入会话，供异步执行时让工作线程加入调用线程的会话
+     */
+    static WriteSession currentWriteSession() {
+        return writeSession.get();
+    }
+    
+    /**
+     * 让当前线程加入指定的写入会话，返回原来的会话，用完后再用它恢复
+     */
+    static WriteSession joinWriteSession(WriteSession session) {
+        WriteSession previous = writeSession.get();
+        writeSession.set(session);
+        return previous;
+    }
+    
+    /**
+     * 主库连接池中已借出的连接数
+     */
+    static int getActiveConnectionCount() {
+        return pool != null ? pool.getActiveCount() : 0;
+    }
+    
+    /**
+     * 是否配置了只读副本
+     */
+    public static boolean hasReplicas() {
+        return replicaRouter != null;
+    }
+    
+    private static boolean mustReadFromPrimary() {
+        Boolean override = readYourWritesOverride.get();
+        if (!(override != null ? override : readYourWritesDefault)) {
+            return false;
+        }
+        long writtenAt = writeSession.get().lastWriteTime;
+        return writtenAt != 0 && System.currentTimeMillis() - writtenAt < readYourWritesWindow;
+    }
+    
+    /**
+     * 从主库连接池借出连接
+     */
+    private static Connection borrowConnection() throws SQLException {
+        long start = System.nanoTime();
+        return instrument(openConnection(), start);
+    }
+    
+    /**
+     * 开启SQL执行统计时记录借出耗时，并返回带统计的连接
+     */
+    private static Connection instrument(Connection conn, long borrowStart) {
+        if (metrics == null) {
+            return conn;
+        }
+        metrics.recordAcquire(System.nanoTime() - borrowStart);
+        return InstrumentedConnection.wrap(conn, metrics, slowQueryLog);
+    }
+    
+    private static Connection openConnection() throws SQLException {
+        if (pool == null) {
+            return DriverManager.getConnection(url, username, password);
+        }
+        return pool.getConnection();
+    }
+    
+    /**
+     * 获取游标读取的批量行数
+     */
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+    
+    /**
+     * 获取批量写入的分批大小
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * 获取异步查询的最大并发数，未配置时与连接池最大连接数一致
+     */
+    public static int getAsyncConcurrency() {
+        if (asyncConcurrency > 0) {
+            return asyncConcurrency;
+        }
+        return pool != null ? pool.getMaxSize() : 4;
+    }
+    
+    /**
+     * 获取PreparedStatement缓存命中次数
+     */
+    public static long getStatementCacheHits() {
+        return pool != null ? pool.getStatementCacheHits() : 0;
+    }
+    
+    /**
+     * 获取PreparedStatement缓存未命中次数
+     */
+    public static long getStatementCacheMisses() {
+        return pool != null ? pool.getStatementCacheMisses() : 0;
+    }
+    
+    /**
+     * 获取连接池状态
+     */
+    public static String getPoolStatus() {
+        String status = pool != null ? pool.toString() : "ConnectionPool{未初始化}";
+        return replicaRouter != null ? status + " " + replicaRouter : status;
+    }
+    
+    /**
+     * 获取SQL执行统计，未开启统计时返回null
+     */
+    public static QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * 关闭连接池
+     */
+    public static void shutdown() {
+        if (metrics != null) {
+            metrics.stopReporter();
+        }
+        if (slowQueryLog != null) {
+            slowQueryLog.shutdown();
+        }
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
     }
     
     /**
      * 关闭连接
+     * 释放当前线程绑定的事务连接，未提交的修改会被回滚
      */
     public static void closeConnection() {
-        Connection conn = connectionHolder.get();
-        if (conn != null) {
+        Transaction tx = transactionHolder.get();
+        if (tx != null) {
             try {
-                conn.close();
-                connectionHolder.remove();
+                tx.connection.rollback();
             } catch (SQLException e) {
                 e.printStackTrace();
+            } finally {
+                endTransaction(tx, false);
             }
         }
     }
@@ -87,7 +460,8 @@ public class DBUtil {
             e.printStackTrace();
         }
         try {
-            if (conn != null) conn.close();
+            // 事务绑定的连接由事务结束时统一释放
+            if (conn != null && !isTransactionConnection(conn)) conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -113,11 +487,8 @@ public class DBUtil {
      * 测试数据库连接
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            boolean valid = conn != null && !conn.isClosed();
-            closeConnection();
-            return valid;
+        try (Connection conn = getConnection()) {
+            return conn != null && !conn.isClosed();
         } catch (SQLException e) {
             return false;
         }
@@ -125,34 +496,178 @@ public class DBUtil {
     
     /**
      * 开启事务
+     * 把一个连接绑定到当前线程，事务结束前BaseDao的所有操作都复用该连接。
+     * 已处于事务中时加入外层事务，只有最外层的commit才会真正提交。
      */
     public static void beginTransaction() throws SQLException {
-        getConnection().setAutoCommit(false);
+        Transaction tx = transactionHolder.get();
+        if (tx != null) {
+            tx.depth++;
+            return;
+        }
+        Connection conn = borrowConnection();
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        transactionHolder.set(new Transaction(conn));
     }
     
     /**
      * 提交事务
+     * 内层事务只减少嵌套层数；最外层事务被标记为仅回滚时执行回滚并抛出异常
      */
     public static void commit() throws SQLException {
-        Connection conn = connectionHolder.get();
-        if (conn != null) {
-            conn.commit();
-            conn.setAutoCommit(true);
+        Transaction tx = transactionHolder.get();
+        if (tx == null) {
+            return;
+        }
+        if (tx.depth > 1) {
+            tx.depth--;
+            return;
+        }
+        boolean committed = false;
+        try {
+            if (tx.rollbackOnly) {
+                tx.connection.rollback();
+                throw new SQLException("事务已被标记为仅回滚，修改未提交");
+            }
+            tx.connection.commit();
+            committed = true;
+            markWrite();
+        } catch (SQLException e) {
+            try {
+                tx.connection.rollback();
+            } catch (SQLException ignored) {}
+            throw e;
+        } finally {
+            endTransaction(tx, committed);
         }
     }
     
     /**
      * 回滚事务
+     * 内层事务回滚时把整个事务标记为仅回滚，由最外层负责真正回滚
      */
     public static void rollback() {
+        Transaction tx = transactionHolder.get();
+        if (tx == null) {
+            return;
+        }
+        if (tx.depth > 1) {
+            tx.depth--;
+            tx.rollbackOnly = true;
+            return;
+        }
         try {
-            Connection conn = connectionHolder.get();
-            if (conn != null) {
-                conn.rollback();
-                conn.setAutoCommit(true);
-            }
+            tx.connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            endTransaction(tx, false);
+        }
+    }
+    
+    /**
+     * 将当前事务标记为仅回滚
+     */
+    public static void setRollbackOnly() {
+        Transaction tx = transactionHolder.get();
+        if (tx == null) {
+            throw new IllegalStateException("当前线程没有进行中的事务");
+        }
+        tx.rollbackOnly = true;
+    }
+    
+    /**
+     * 当前线程是否处于事务中
+     */
+    public static boolean isInTransaction() {
+        return transactionHolder.get() != null;
+    }
+    
+    /**
+     * 在事务中执行一组操作，正常返回则提交，抛出异常则回滚
+     */
+    public static <R> R inTransaction(TransactionCallback<R> callback) throws SQLException {
+        beginTransaction();
+        R result;
+        try {
+            result = callback.doInTransaction();
+        } catch (Throwable e) {
+            rollback();
+            throw e;
+        }
+        commit();
+        return result;
+    }
+    
+    /**
+     * 判断连接是否为当前线程事务绑定的连接
+     */
+    private static boolean isTransactionConnection(Connection conn) {
+        Transaction tx = transactionHolder.get();
+        return tx != null && tx.connection == conn;
+    }
+    
+    /**
+     * 结束事务：恢复自动提交并把连接归还连接池，提交成功时执行事务后操作
+     */
+    private static void endTransaction(Transaction tx, boolean committed) {
+        transactionHolder.remove();
+        try {
+            tx.connection.setAutoCommit(true);
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        try {
+            tx.connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        if (!committed) {
+            return;
+        }
+        for (Runnable action : tx.afterCompletion) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * 事务回调
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<R> {
+        R doInTransaction() throws SQLException;
+    }
+    
+    /**
+     * 读己之写的会话：记录最近一次写入的时间，可由多个线程共用
+     */
+    static final class WriteSession {
+        volatile long lastWriteTime;
+    }
+    
+    /**
+     * 线程绑定的事务状态
+     */
+    private static class Transaction {
+        final Connection connection;
+        int depth = 1;
+        boolean rollbackOnly = false;
+        // 事务提交后执行的操作
+        final List<Runnable> afterCompletion = new ArrayList<>();
+        // 绑定在事务上的资源
+        final Map<Object, Object> resources = new HashMap<>();
+        
+        Transaction(Connection connection) {
+            this.connection = connection;
+        }
     }
 }
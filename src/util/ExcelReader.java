@@ -0,0 +1,300 @@
+package util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * xlsx流式读取（XSSF事件模型）
+ * 用SAX逐行解析工作表XML，每解析完一行立即交给处理器，不构建整个工作簿的对象模型，
+ * 内存占用与行数无关（共享字符串表仍整体加载，与不重复的文本数量成正比）。
+ * 单元格按类型给出：文本为String，数字为Double，日期格式的数字为LocalDateTime，
+ * 布尔为Boolean，公式取缓存的计算结果，空单元格为null。
+ */
+public class ExcelReader {
+
+    private ExcelReader() {
+    }
+
+    /**
+     * 逐行处理器
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void processRow(SheetRow row);
+    }
+
+    /**
+     * 读取xlsx文件的第一个工作表
+     * @return 处理的行数
+     */
+    public static int readFirstSheet(File file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
+            }
+            try (InputStream sheet = sheets.next()) {
+                SheetHandler sheetHandler = new SheetHandler(strings, styles, handler);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(sheetHandler);
+                parser.parse(new InputSource(sheet));
+                return sheetHandler.rowCount;
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("无法解析Excel文件：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 一行数据，列号从0开始
+     */
+    public static class SheetRow {
+        private final int rowNum;
+        private final Object[] values;
+
+        SheetRow(int rowNum, Object[] values) {
+            this.rowNum = rowNum;
+            this.values = values;
+        }
+
+        /**
+         * 行号，从0开始（第一行通常为表头）
+         */
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * 列数（最后一个非空单元格的列号+1）
+         */
+        public int getColumnCount() {
+            return values.length;
+        }
+
+        /**
+         * 单元格的值，超出列数或为空时返回null
+         */
+        public Object getValue(int column) {
+            return column < values.length ? values[column] : null;
+        }
+
+        /**
+         * 单元格的文本形式：日期取日期部分，整数不带小数点，空单元格为空字符串
+         */
+        public String getString(int column) {
+            Object value = getValue(column);
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof LocalDateTime) {
+                return ((LocalDateTime) value).toLocalDate().toString();
+            }
+            if (value instanceof Double) {
+                double d = (Double) value;
+                if (d == Math.floor(d) && !Double.isInfinite(d)) {
+                    return String.valueOf((long) d);
+                }
+                return String.valueOf(d);
+            }
+            return value.toString();
+        }
+
+        /**
+         * 数字单元格的值，文本形式的数字也会转换，其他情况返回null
+         */
+        public Double getDouble(int column) {
+            Object value = getValue(column);
+            if (value instanceof Double) {
+                return (Double) value;
+            }
+            if (value instanceof String) {
+                try {
+                    return Double.valueOf(((String) value).trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 整行转换为文本
+         */
+        public String[] toStrings() {
+            String[] result = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = getString(i);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "SheetRow{" + rowNum + ": " + Arrays.toString(values) + "}";
+        }
+    }
+
+    /**
+     * 工作表XML的SAX处理器
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings strings;
+        private final StylesTable styles;
+        private final RowHandler handler;
+
+        private final List<Object> values = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private int rowNum = -1;
+        private int column;
+        private String cellType;
+        private String cellStyle;
+        private boolean collecting;
+        private boolean inPhonetic;
+        private int rowCount;
+
+        SheetHandler(SharedStrings strings, StylesTable styles, RowHandler handler) {
+            this.strings = strings;
+            this.styles = styles;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    values.clear();
+                    column = -1;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : column + 1;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    text.setLength(0);
+                    break;
+                case "v":
+                    collecting = true;
+                    break;
+                case "t":
+                    // 内联字符串，跳过注音文字
+                    collecting = !inPhonetic;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    Object value = cellValue();
+                    if (value != null) {
+                        while (values.size() <= column) {
+                            values.add(null);
+                        }
+                        values.set(column, value);
+                    }
+                    break;
+                case "row":
+                    rowCount++;
+                    handler.processRow(new SheetRow(rowNum, values.toArray()));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private Object cellValue() {
+            String raw = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                return raw.isEmpty() ? null : numericValue(Double.parseDouble(raw));
+            }
+            switch (cellType) {
+                case "s":
+                    return strings.getItemAt(Integer.parseInt(raw)).getString();
+                case "inlineStr":
+                case "str":
+                    return raw;
+                case "b":
+                    return "1".equals(raw);
+                case "e":
+                    return "#" + raw;
+                default:
+                    return raw.isEmpty() ? null : raw;
+            }
+        }
+
+        private Object numericValue(double value) {
+            if (cellStyle != null && styles != null) {
+                XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+                if (style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())
+                        && DateUtil.isValidExcelDate(value)) {
+                    return DateUtil.getLocalDateTime(value);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * 单元格引用（如"AB12"）中的列号，从0开始
+         */
+        private static int columnIndex(String ref) {
+            int index = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z') {
+                    break;
+                }
+                index = index * 26 + (ch - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
@@ -4,263 +4,453 @@ import entity.Student;
 import entity.Score;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Excel导入导出工具类
  */
 public class ExcelUtil {
     
+    // 流式导出时内存中保留的行数，更早的行写入压缩的临时文件
+    private static final int ROW_ACCESS_WINDOW = 100;
+    
+    // 估算列宽时采样的数据行数
+    private static final int WIDTH_SAMPLE_ROWS = 200;
+    
+    // 成绩导出中成绩所在的列
+    private static final int SCORE_COLUMN = 5;
+    
+    private static final double PASS_SCORE = 60;
+    
+    /**
+     * 流式导出的数据来源，逐行交给sink写出，一般由DAO游标查询驱动
+     */
+    @FunctionalInterface
+    public interface RowSource {
+        void forEachRow(Consumer<Object[]> sink) throws SQLException;
+    }
+    
     /**
      * 导出学生信息到Excel
      */
     public static void exportStudents(List<Object[]> data, String[] headers) {
+        exportStudents(sink -> data.forEach(sink), headers);
+    }
+    
+    /**
+     * 流式导出学生信息到Excel，选择文件后在后台线程写出
+     */
+    public static void exportStudents(RowSource source, String[] headers) {
+        File file = chooseExportFile("导出学生信息", "学生信息.xlsx");
+        if (file != null) {
+            exportInBackground(file, () -> writeStudents(file, headers, source));
+        }
+    }
+    
+    /**
+     * 导出成绩信息到Excel
+     */
+    public static void exportScores(List<Object[]> data, String[] headers) {
+        exportScores(sink -> data.forEach(sink), headers);
+    }
+    
+    /**
+     * 流式导出成绩信息到Excel，选择文件后在后台线程写出
+     * 第6列为成绩，不及格的标红
+     */
+    public static void exportScores(RowSource source, String[] headers) {
+        File file = chooseExportFile("导出成绩信息", "成绩信息.xlsx");
+        if (file != null) {
+            exportInBackground(file, () -> writeScores(file, headers, source));
+        }
+    }
+    
+    /**
+     * 导出批量导入的错误报告：行号、关键字段（如学号）和失败原因
+     */
+    public static void exportImportErrors(List<Object[]> data, String keyHeader) {
+        File file = chooseExportFile("导出错误报告", "导入错误报告.xlsx");
+        if (file != null) {
+            String[] headers = {"行号", keyHeader, "错误原因"};
+            exportInBackground(file, () -> writeSheet(file, "导入错误", headers, IndexedColors.GREY_25_PERCENT,
+                    null, -1, sink -> data.forEach(sink)));
+        }
+    }
+    
+    /**
+     * 把学生信息写入xlsx文件
+     * @return 写出的数据行数
+     */
+    public static int writeStudents(File file, String[] headers, RowSource source) throws IOException, SQLException {
+        return writeSheet(file, "学生信息", headers, IndexedColors.GREY_25_PERCENT, null, -1, source);
+    }
+    
+    /**
+     * 把成绩信息写入xlsx文件，第6列为成绩，不及格的标红
+     * @return 写出的数据行数
+     */
+    public static int writeScores(File file, String[] headers, RowSource source) throws IOException, SQLException {
+        return writeSheet(file, "成绩信息", headers, IndexedColors.LIGHT_BLUE, IndexedColors.WHITE,
+                SCORE_COLUMN, source);
+    }
+    
+    /**
+     * 选择导出文件，取消时返回null
+     */
+    private static File chooseExportFile(String title, String defaultName) {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("导出学生信息");
+        fileChooser.setDialogTitle(title);
         fileChooser.setFileFilter(new FileNameExtensionFilter("Excel文件 (*.xlsx)", "xlsx"));
-        fileChooser.setSelectedFile(new File("学生信息.xlsx"));
+        fileChooser.setSelectedFile(new File(defaultName));
         
-        int result = fileChooser.showSaveDialog(null);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            if (!file.getName().endsWith(".xlsx")) {
-                file = new File(file.getAbsolutePath() + ".xlsx");
-            }
-            
-            try (Workbook workbook = new XSSFWorkbook()) {
-                Sheet sheet = workbook.createSheet("学生信息");
-                
-                // 创建标题样式
-                CellStyle headerStyle = workbook.createCellStyle();
-                headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-                headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                headerStyle.setAlignment(HorizontalAlignment.CENTER);
-                Font headerFont = workbook.createFont();
-                headerFont.setBold(true);
-                headerStyle.setFont(headerFont);
-                
-                // 写入表头
-                Row headerRow = sheet.createRow(0);
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                    cell.setCellStyle(headerStyle);
-                }
-                
-                // 写入数据
-                CellStyle dataStyle = workbook.createCellStyle();
-                dataStyle.setAlignment(HorizontalAlignment.CENTER);
-                
-                for (int i = 0; i < data.size(); i++) {
-                    Row row = sheet.createRow(i + 1);
-                    Object[] rowData = data.get(i);
-                    for (int j = 0; j < rowData.length; j++) {
-                        Cell cell = row.createCell(j);
-                        if (rowData[j] != null) {
-                            cell.setCellValue(rowData[j].toString());
-                        }
-                        cell.setCellStyle(dataStyle);
-                    }
-                }
-                
-                // 自动调整列宽
-                for (int i = 0; i < headers.length; i++) {
-                    sheet.autoSizeColumn(i);
-                }
-                
-                // 写入文件
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    workbook.write(fos);
-                }
-                
-                JOptionPane.showMessageDialog(null, 
+        if (fileChooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().endsWith(".xlsx")) {
+            file = new File(file.getAbsolutePath() + ".xlsx");
+        }
+        return file;
+    }
+    
+    /**
+     * 在后台线程写出文件，完成后在事件线程提示结果
+     */
+    private static void exportInBackground(File file, ExportTask task) {
+        Thread worker = new Thread(() -> {
+            try {
+                task.write();
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
                     "导出成功！\n文件保存位置：" + file.getAbsolutePath(),
-                    "导出成功", JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(null, 
+                    "导出成功", JOptionPane.INFORMATION_MESSAGE));
+            } catch (Exception e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
                     "导出失败：" + e.getMessage(),
-                    "错误", JOptionPane.ERROR_MESSAGE);
+                    "错误", JOptionPane.ERROR_MESSAGE));
+            }
+        }, "excel-export");
+        worker.start();
+    }
+    
+    @FunctionalInterface
+    private interface ExportTask {
+        void write() throws IOException, SQLException;
+    }
+    
+    /**
+     * 用SXSSF流式写出一个工作表
+     * 内存中只保留最近ROW_ACCESS_WINDOW行，列宽按表头和前WIDTH_SAMPLE_ROWS行估算，不调用autoSizeColumn
+     * @param headerFontColor 表头字体颜色，为null时使用默认颜色
+     * @param scoreColumn 成绩列（按一位小数显示，不及格标红），-1表示没有
+     */
+    private static int writeSheet(File file, String sheetName, String[] headers, IndexedColors headerColor,
+                                  IndexedColors headerFontColor, int scoreColumn, RowSource source)
+            throws IOException, SQLException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, ROW_ACCESS_WINDOW, true, false);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, sheetName, headers, headerColor, headerFontColor, scoreColumn);
+            source.forEachRow(writer);
+            writer.applyColumnWidths();
+            
+            try (FileOutputStream fos = new FileOutputStream(file)) {
+                workbook.write(fos);
+            } catch (IOException | RuntimeException e) {
+                file.delete();
+                throw e;
             }
+            return writer.rowCount;
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
     
     /**
-     * 导出成绩信息到Excel
+     * 逐行写入工作表，同时对前若干行采样估算列宽
      */
-    public static void exportScores(List<Object[]> data, String[] headers) {
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("导出成绩信息");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Excel文件 (*.xlsx)", "xlsx"));
-        fileChooser.setSelectedFile(new File("成绩信息.xlsx"));
+    private static class SheetWriter implements Consumer<Object[]> {
+        private final Sheet sheet;
+        private final int scoreColumn;
+        private final CellStyle dataStyle;
+        private final CellStyle scoreStyle;
+        private final CellStyle failStyle;
+        private final int[] widths;
+        private int rowCount;
         
-        int result = fileChooser.showSaveDialog(null);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            if (!file.getName().endsWith(".xlsx")) {
-                file = new File(file.getAbsolutePath() + ".xlsx");
+        SheetWriter(Workbook workbook, String sheetName, String[] headers, IndexedColors headerColor,
+                    IndexedColors headerFontColor, int scoreColumn) {
+            this.sheet = workbook.createSheet(sheetName);
+            this.scoreColumn = scoreColumn;
+            this.widths = new int[headers.length];
+            
+            // 创建标题样式
+            CellStyle headerStyle = workbook.createCellStyle();
+            headerStyle.setFillForegroundColor(headerColor.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            headerStyle.setAlignment(HorizontalAlignment.CENTER);
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            if (headerFontColor != null) {
+                headerFont.setColor(headerFontColor.getIndex());
             }
+            headerStyle.setFont(headerFont);
             
-            try (Workbook workbook = new XSSFWorkbook()) {
-                Sheet sheet = workbook.createSheet("成绩信息");
-                
-                // 创建标题样式
-                CellStyle headerStyle = workbook.createCellStyle();
-                headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-                headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                headerStyle.setAlignment(HorizontalAlignment.CENTER);
-                Font headerFont = workbook.createFont();
-                headerFont.setBold(true);
-                headerFont.setColor(IndexedColors.WHITE.getIndex());
-                headerStyle.setFont(headerFont);
-                
-                // 写入表头
-                Row headerRow = sheet.createRow(0);
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                    cell.setCellStyle(headerStyle);
-                }
-                
-                // 创建数据样式
-                CellStyle dataStyle = workbook.createCellStyle();
-                dataStyle.setAlignment(HorizontalAlignment.CENTER);
-                
-                // 成绩不及格样式
-                CellStyle failStyle = workbook.createCellStyle();
-                failStyle.setAlignment(HorizontalAlignment.CENTER);
-                Font failFont = workbook.createFont();
-                failFont.setColor(IndexedColors.RED.getIndex());
-                failStyle.setFont(failFont);
-                
-                // 写入数据
-                for (int i = 0; i < data.size(); i++) {
-                    Row row = sheet.createRow(i + 1);
-                    Object[] rowData = data.get(i);
-                    for (int j = 0; j < rowData.length; j++) {
-                        Cell cell = row.createCell(j);
-                        if (rowData[j] != null) {
-                            String value = rowData[j].toString();
-                            cell.setCellValue(value);
-                            
-                            // 检查是否是成绩列且不及格
-                            if (j == 5) { // 假设第6列是成绩
-                                try {
-                                    double score = Double.parseDouble(value);
-                                    if (score < 60) {
-                                        cell.setCellStyle(failStyle);
-                                        continue;
-                                    }
-                                } catch (NumberFormatException ignored) {}
-                            }
-                            cell.setCellStyle(dataStyle);
-                        }
-                    }
+            // 写入表头
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+                widths[i] = displayWidth(headers[i]);
+            }
+            
+            // 创建数据样式
+            dataStyle = workbook.createCellStyle();
+            dataStyle.setAlignment(HorizontalAlignment.CENTER);
+            
+            short scoreFormat = workbook.createDataFormat().getFormat("0.0");
+            scoreStyle = workbook.createCellStyle();
+            scoreStyle.cloneStyleFrom(dataStyle);
+            scoreStyle.setDataFormat(scoreFormat);
+            
+            // 成绩不及格样式
+            failStyle = workbook.createCellStyle();
+            failStyle.cloneStyleFrom(scoreStyle);
+            Font failFont = workbook.createFont();
+            failFont.setColor(IndexedColors.RED.getIndex());
+            failStyle.setFont(failFont);
+        }
+        
+        @Override
+        public void accept(Object[] rowData) {
+            rowCount++;
+            Row row = sheet.createRow(rowCount);
+            for (int j = 0; j < rowData.length; j++) {
+                Object value = rowData[j];
+                Cell cell = row.createCell(j);
+                if (value == null) {
+                    cell.setCellStyle(dataStyle);
+                    continue;
                 }
-                
-                // 自动调整列宽
-                for (int i = 0; i < headers.length; i++) {
-                    sheet.autoSizeColumn(i);
+                if (j == scoreColumn && value instanceof Number) {
+                    double score = ((Number) value).doubleValue();
+                    cell.setCellValue(score);
+                    cell.setCellStyle(score < PASS_SCORE ? failStyle : scoreStyle);
+                } else if (j == scoreColumn && isFailingScore(value.toString())) {
+                    cell.setCellValue(value.toString());
+                    cell.setCellStyle(failStyle);
+                } else if (value instanceof Number) {
+                    cell.setCellValue(((Number) value).doubleValue());
+                    cell.setCellStyle(dataStyle);
+                } else {
+                    cell.setCellValue(value.toString());
+                    cell.setCellStyle(dataStyle);
                 }
-                
-                // 写入文件
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    workbook.write(fos);
+                if (rowCount <= WIDTH_SAMPLE_ROWS && j < widths.length) {
+                    widths[j] = Math.max(widths[j], displayWidth(value.toString()));
                 }
-                
-                JOptionPane.showMessageDialog(null, 
-                    "导出成功！\n文件保存位置：" + file.getAbsolutePath(),
-                    "导出成功", JOptionPane.INFORMATION_MESSAGE);
-                    
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(null, 
-                    "导出失败：" + e.getMessage(),
-                    "错误", JOptionPane.ERROR_MESSAGE);
             }
         }
+        
+        /**
+         * 按采样得到的最大显示宽度设置列宽，两侧各留一个字符
+         */
+        void applyColumnWidths() {
+            for (int i = 0; i < widths.length; i++) {
+                sheet.setColumnWidth(i, Math.min((widths[i] + 2) * 256, 255 * 256));
+            }
+        }
+        
+        private static boolean isFailingScore(String value) {
+            try {
+                return Double.parseDouble(value) < PASS_SCORE;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        
+        /**
+         * 显示宽度（字符数），中文等全角字符按两个字符计
+         */
+        private static int displayWidth(String text) {
+            int width = 0;
+            for (int i = 0; i < text.length(); i++) {
+                width += text.charAt(i) >= 0x2E80 ? 2 : 1;
+            }
+            return width;
+        }
     }
     
     /**
      * 从Excel导入学生数据
+     * 选择文件后逐行读取，跳过表头，每行转换为文本
      */
     public static List<String[]> importStudents() {
         List<String[]> dataList = new ArrayList<>();
         
+        File file = chooseImportFile("导入学生信息");
+        if (file == null) {
+            return dataList;
+        }
+        
+        try {
+            // 跳过表头，从第二行开始读取
+            readRows(file, row -> {
+                if (row.getRowNum() > 0) {
+                    dataList.add(row.toStrings());
+                }
+            });
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, 
+                "导入失败：" + e.getMessage(),
+                "错误", JOptionPane.ERROR_MESSAGE);
+        }
+        
+        return dataList;
+    }
+    
+    /**
+     * 选择导入文件，取消时返回null
+     */
+    public static File chooseImportFile(String title) {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("导入学生信息");
+        fileChooser.setDialogTitle(title);
         fileChooser.setFileFilter(new FileNameExtensionFilter(
-            "Excel文件 (*.xlsx, *.xls)", "xlsx", "xls"));
+            "Excel/CSV文件 (*.xlsx, *.xls, *.csv)", "xlsx", "xls", "csv"));
         
-        int result = fileChooser.showOpenDialog(null);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            
-            try (FileInputStream fis = new FileInputStream(file);
-                 Workbook workbook = file.getName().endsWith(".xlsx") 
-                     ? new XSSFWorkbook(fis) : new HSSFWorkbook(fis)) {
-                
-                Sheet sheet = workbook.getSheetAt(0);
-                int rowCount = sheet.getPhysicalNumberOfRows();
-                
-                // 跳过表头，从第二行开始读取
-                for (int i = 1; i < rowCount; i++) {
-                    Row row = sheet.getRow(i);
-                    if (row == null) continue;
-                    
-                    int cellCount = row.getPhysicalNumberOfCells();
-                    String[] rowData = new String[cellCount];
-                    
-                    for (int j = 0; j < cellCount; j++) {
-                        Cell cell = row.getCell(j);
-                        rowData[j] = getCellValueAsString(cell);
+        if (fileChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        return fileChooser.getSelectedFile();
+    }
+    
+    /**
+     * 逐行读取第一个工作表（含表头行），单元格为带类型的值
+     * xlsx使用事件模型流式读取，边解析边处理；csv（UTF-8）逐行读取，单元格均为文本；
+     * xls仍整体加载后逐行处理
+     * @return 处理的行数
+     */
+    public static int readRows(File file, ExcelReader.RowHandler handler) throws IOException {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".xlsx")) {
+            return ExcelReader.readFirstSheet(file, handler);
+        }
+        if (name.endsWith(".csv")) {
+            return readCsv(file, handler);
+        }
+        
+        int count = 0;
+        try (FileInputStream fis = new FileInputStream(file);
+             Workbook workbook = new HSSFWorkbook(fis)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                int cellCount = Math.max(row.getLastCellNum(), 0);
+                Object[] values = new Object[cellCount];
+                for (int j = 0; j < cellCount; j++) {
+                    values[j] = getCellValue(row.getCell(j));
+                }
+                handler.processRow(new ExcelReader.SheetRow(row.getRowNum(), values));
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 逐行读取UTF-8编码的csv文件（可带BOM），支持双引号包围的字段和其中的逗号、换行、转义引号
+     */
+    private static int readCsv(File file, ExcelReader.RowHandler handler) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            List<Object> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean first = true;
+            int ch;
+            while ((ch = reader.read()) != -1) {
+                if (first) {
+                    first = false;
+                    if (ch == '\uFEFF') {
+                        continue;
+                    }
+                }
+                if (quoted) {
+                    if (ch == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) ch);
                     }
-                    
-                    dataList.add(rowData);
+                } else if (ch == '"') {
+                    quoted = true;
+                } else if (ch == ',') {
+                    values.add(csvValue(field));
+                } else if (ch == '\n') {
+                    values.add(csvValue(field));
+                    handler.processRow(new ExcelReader.SheetRow(count++, values.toArray()));
+                    values.clear();
+                } else if (ch != '\r') {
+                    field.append((char) ch);
                 }
-                
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(null, 
-                    "导入失败：" + e.getMessage(),
-                    "错误", JOptionPane.ERROR_MESSAGE);
+            }
+            if (field.length() > 0 || !values.isEmpty()) {
+                values.add(csvValue(field));
+                handler.processRow(new ExcelReader.SheetRow(count++, values.toArray()));
             }
         }
-        
-        return dataList;
+        return count;
+    }
+    
+    private static String csvValue(StringBuilder field) {
+        String value = field.toString();
+        field.setLength(0);
+        return value.isEmpty() ? null : value;
     }
     
     /**
-     * 获取单元格值为字符串
+     * 获取单元格的值，类型与ExcelReader一致
      */
-    private static String getCellValueAsString(Cell cell) {
+    private static Object getCellValue(Cell cell) {
         if (cell == null) {
-            return "";
+            return null;
         }
         
-        switch (cell.getCellType()) {
+        CellType type = cell.getCellType();
+        if (type == CellType.FORMULA) {
+            type = cell.getCachedFormulaResultType();
+        }
+        switch (type) {
             case STRING:
-                return cell.getStringCellValue();
+                String text = cell.getStringCellValue();
+                return text.isEmpty() ? null : text;
             case NUMERIC:
                 if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getLocalDateTimeCellValue().toLocalDate().toString();
-                }
-                // 处理数字格式，避免科学计数法
-                double value = cell.getNumericCellValue();
-                if (value == Math.floor(value)) {
-                    return String.valueOf((long) value);
+                    return cell.getLocalDateTimeCellValue();
                 }
-                return String.valueOf(value);
+                return cell.getNumericCellValue();
             case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
+                return cell.getBooleanCellValue();
             default:
-                return "";
+                return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * 带执行统计的连接包装
+ * 拦截语句的execute*调用记录执行耗时，拦截结果集的next()/close()记录读取行数和读取耗时。
+ * 读取耗时从查询返回开始到结果集关闭为止，包含DAO逐行映射的时间。
+ * 配置了慢查询日志时还会记录绑定的参数，执行超过阈值时交给慢查询日志。
+ */
+class InstrumentedConnection {
+
+    private InstrumentedConnection() {
+    }
+
+    /**
+     * 包装连接，之后通过该连接创建的语句和结果集都会被统计
+     */
+    static Connection wrap(Connection target, QueryMetrics metrics, SlowQueryLog slowQueryLog) {
+        return (Connection) Proxy.newProxyInstance(
+                InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(target, metrics, slowQueryLog));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final QueryMetrics metrics;
+        private final SlowQueryLog slowQueryLog;
+
+        ConnectionHandler(Connection target, QueryMetrics metrics, SlowQueryLog slowQueryLog) {
+            this.target = target;
+            this.metrics = metrics;
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + target + "]";
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return wrapStatement((Connection) proxy, (Statement) result,
+                            PreparedStatement.class, (String) args[0]);
+                case "prepareCall":
+                    return wrapStatement((Connection) proxy, (Statement) result,
+                            CallableStatement.class, (String) args[0]);
+                case "createStatement":
+                    return wrapStatement((Connection) proxy, (Statement) result, Statement.class, null);
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrapStatement(Connection connection, Statement statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(
+                    InstrumentedConnection.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(connection, statement, metrics, slowQueryLog, sql));
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Connection connection;
+        private final Statement target;
+        private final QueryMetrics metrics;
+        private final SlowQueryLog slowQueryLog;
+        private final String preparedSql;
+        private QueryMetrics.SqlStats lastStats;
+        private ResultSetHandler openResultSet;
+        // 当前绑定的参数，只在开启慢查询日志时记录
+        private Object[] params = new Object[0];
+        private int paramCount = 0;
+
+        StatementHandler(Connection connection, Statement target, QueryMetrics metrics,
+                         SlowQueryLog slowQueryLog, String preparedSql) {
+            this.connection = connection;
+            this.target = target;
+            this.metrics = metrics;
+            this.slowQueryLog = slowQueryLog;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + target + "]";
+                case "getConnection":
+                    return connection;
+                case "close":
+                    finishResultSet();
+                    return invokeTarget(target, method, args);
+                case "getResultSet":
+                    ResultSet current = (ResultSet) invokeTarget(target, method, args);
+                    return current == null || lastStats == null ? current : wrapResultSet((Statement) proxy, current);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                if (slowQueryLog != null) {
+                    captureParameter(name, args);
+                }
+                return invokeTarget(target, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            QueryMetrics.SqlStats stats = metrics.statsFor(sql);
+            lastStats = stats;
+            finishResultSet();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } catch (Throwable e) {
+                stats.recordExecution(System.nanoTime() - start, 0, true);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            stats.recordExecution(elapsed, affectedRows(name, result), false);
+            if (slowQueryLog != null && slowQueryLog.isSlow(elapsed)) {
+                slowQueryLog.record(sql, sql == preparedSql ? Arrays.copyOf(params, paramCount) : null, elapsed);
+            }
+            if (result instanceof ResultSet) {
+                return wrapResultSet((Statement) proxy, (ResultSet) result);
+            }
+            return result;
+        }
+
+        /**
+         * 记录setXxx(index, value)绑定的参数
+         */
+        private void captureParameter(String name, Object[] args) {
+            if ("clearParameters".equals(name)) {
+                Arrays.fill(params, null);
+                paramCount = 0;
+                return;
+            }
+            if (!name.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int index = (Integer) args[0];
+            if (index < 1) {
+                return;
+            }
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = "setNull".equals(name) ? null : args[1];
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private long affectedRows(String methodName, Object result) throws Exception {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long sum = 0;
+                for (int count : (int[]) result) {
+                    if (count > 0) sum += count;
+                }
+                return sum;
+            }
+            if (result instanceof long[]) {
+                long sum = 0;
+                for (long count : (long[]) result) {
+                    if (count > 0) sum += count;
+                }
+                return sum;
+            }
+            if ("execute".equals(methodName) && Boolean.FALSE.equals(result)) {
+                return Math.max(0, target.getUpdateCount());
+            }
+            return 0;
+        }
+
+        private ResultSet wrapResultSet(Statement statement, ResultSet resultSet) {
+            openResultSet = new ResultSetHandler(statement, resultSet, lastStats);
+            return (ResultSet) Proxy.newProxyInstance(
+                    InstrumentedConnection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    openResultSet);
+        }
+
+        /**
+         * 语句关闭或重新执行时，之前未显式关闭的结果集也要计入统计
+         */
+        private void finishResultSet() {
+            if (openResultSet != null) {
+                openResultSet.finish();
+                openResultSet = null;
+            }
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final Statement statement;
+        private final ResultSet target;
+        private final QueryMetrics.SqlStats stats;
+        private final long openedAt = System.nanoTime();
+        private long rows = 0;
+        private boolean finished = false;
+
+        ResultSetHandler(Statement statement, ResultSet target, QueryMetrics.SqlStats stats) {
+            this.statement = statement;
+            this.target = target;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasNext = invokeTarget(target, method, args);
+                    if (Boolean.TRUE.equals(hasNext)) {
+                        rows++;
+                    }
+                    return hasNext;
+                case "close":
+                    finish();
+                    return invokeTarget(target, method, args);
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented[" + target + "]";
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                stats.recordFetch(System.nanoTime() - openedAt, rows);
+            }
+        }
+    }
+}
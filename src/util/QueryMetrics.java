@@ -0,0 +1,288 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SQL执行统计
+ * 按归一化后的SQL分别统计执行次数、返回行数、执行耗时和结果读取耗时，
+ * 另外统计从连接池借出连接的耗时。数据通过JMX暴露，也可以定期输出摘要到日志。
+ */
+public class QueryMetrics implements QueryMetricsMBean {
+
+    public static final String OBJECT_NAME = "StudentManagement:type=QueryMetrics";
+
+    // 归一化结果缓存的上限，防止拼接了字面量的SQL无限增长
+    private static final int MAX_NORMALIZED_CACHE = 2048;
+    // 统计的SQL种类上限，超出后归入同一项
+    private static final int MAX_TRACKED_QUERIES = 1000;
+    private static final String OVERFLOW_KEY = "<其他SQL>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PARAM_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\+?\\)(?:\\s*,\\s*\\(\\?\\+?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentHashMap<String, String> normalizedCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SqlStats> statsBySql = new ConcurrentHashMap<>();
+    private final LatencyHistogram acquireHistogram = new LatencyHistogram();
+
+    private ScheduledExecutorService reporter;
+    private long lastReportedExecutions = 0;
+
+    /**
+     * 获取SQL对应的统计项
+     */
+    public SqlStats statsFor(String sql) {
+        String key = normalize(sql);
+        SqlStats stats = statsBySql.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statsBySql.size() >= MAX_TRACKED_QUERIES) {
+            key = OVERFLOW_KEY;
+        }
+        return statsBySql.computeIfAbsent(key, SqlStats::new);
+    }
+
+    /**
+     * 记录一次借出连接的耗时
+     */
+    public void recordAcquire(long nanos) {
+        acquireHistogram.recordNanos(nanos);
+    }
+
+    /**
+     * 归一化SQL：字面量替换为?，IN列表等连续参数合并，空白压缩
+     */
+    public String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = normalizedCache.get(sql);
+        if (normalized != null) {
+            return normalized;
+        }
+        normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = PARAM_LIST.matcher(normalized).replaceAll("?+");
+        normalized = ROW_LIST.matcher(normalized).replaceAll("(?+)+");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        if (normalizedCache.size() < MAX_NORMALIZED_CACHE) {
+            normalizedCache.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * 按累计执行时间从高到低排列的统计项
+     */
+    public List<SqlStats> getTopQueries(int limit) {
+        List<SqlStats> list = new ArrayList<>(statsBySql.values());
+        list.sort(Comparator.comparingLong((SqlStats s) -> s.getExecuteHistogram().getTotalMicros()
+                + s.getFetchHistogram().getTotalMicros()).reversed());
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    /**
+     * 注册到平台MBeanServer
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            System.err.println("注册SQL统计MBean失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 启动定期输出摘要的后台线程，期间没有新的SQL执行时不输出
+     * @param intervalSeconds 输出间隔（秒），不大于0时不启动
+     */
+    public synchronized void startReporter(int intervalSeconds) {
+        if (intervalSeconds <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止定期输出
+     */
+    public synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private void report() {
+        long executions = getTotalExecutions();
+        if (executions == lastReportedExecutions) {
+            return;
+        }
+        lastReportedExecutions = executions;
+        System.out.println(getSummary());
+    }
+
+    @Override
+    public long getTotalExecutions() {
+        long total = 0;
+        for (SqlStats stats : statsBySql.values()) {
+            total += stats.getExecutions();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (SqlStats stats : statsBySql.values()) {
+            total += stats.getErrors();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalRows() {
+        long total = 0;
+        for (SqlStats stats : statsBySql.values()) {
+            total += stats.getRows();
+        }
+        return total;
+    }
+
+    @Override
+    public long getConnectionAcquireCount() {
+        return acquireHistogram.getCount();
+    }
+
+    @Override
+    public double getConnectionAcquireMeanMillis() {
+        return acquireHistogram.getMeanMillis();
+    }
+
+    @Override
+    public double getConnectionAcquireP99Millis() {
+        return acquireHistogram.getPercentileMillis(99);
+    }
+
+    @Override
+    public String[] getQueryStatistics() {
+        List<SqlStats> top = getTopQueries(Integer.MAX_VALUE);
+        String[] lines = new String[top.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = top.get(i).toString();
+        }
+        return lines;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("===== SQL执行统计 =====\n");
+        sb.append(String.format("执行%d次，失败%d次，读取%d行；借出连接：%s%n",
+                getTotalExecutions(), getTotalErrors(), getTotalRows(), acquireHistogram));
+        for (SqlStats stats : getTopQueries(10)) {
+            sb.append(stats).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        statsBySql.clear();
+        acquireHistogram.reset();
+        lastReportedExecutions = 0;
+    }
+
+    /**
+     * 单条（归一化后）SQL的统计
+     */
+    public static class SqlStats {
+        private final String sql;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram executeHistogram = new LatencyHistogram();
+        private final LatencyHistogram fetchHistogram = new LatencyHistogram();
+
+        SqlStats(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * 记录一次执行
+         * @param nanos 执行耗时
+         * @param affectedRows 影响行数，查询语句传0，行数在读取结果时记录
+         * @param failed 是否抛出异常
+         */
+        public void recordExecution(long nanos, long affectedRows, boolean failed) {
+            executions.increment();
+            executeHistogram.recordNanos(nanos);
+            if (failed) {
+                errors.increment();
+            } else if (affectedRows > 0) {
+                rows.add(affectedRows);
+            }
+        }
+
+        /**
+         * 记录一次结果集读取（包括逐行映射）的耗时和行数
+         */
+        public void recordFetch(long nanos, long fetchedRows) {
+            fetchHistogram.recordNanos(nanos);
+            rows.add(fetchedRows);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public LatencyHistogram getExecuteHistogram() {
+            return executeHistogram;
+        }
+
+        public LatencyHistogram getFetchHistogram() {
+            return fetchHistogram;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d次, %d行, 失败%d] 执行{%s} 读取{%s} %s",
+                    getExecutions(), getRows(), getErrors(), executeHistogram, fetchHistogram, sql);
+        }
+    }
+}
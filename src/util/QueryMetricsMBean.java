@@ -0,0 +1,53 @@
+package util;
+
+/**
+ * SQL执行统计的JMX管理接口
+ * 注册名为 StudentManagement:type=QueryMetrics，可在JConsole/VisualVM中查看
+ */
+public interface QueryMetricsMBean {
+
+    /**
+     * SQL执行总次数
+     */
+    long getTotalExecutions();
+
+    /**
+     * SQL执行失败次数
+     */
+    long getTotalErrors();
+
+    /**
+     * 读取的结果行总数
+     */
+    long getTotalRows();
+
+    /**
+     * 借出连接的次数
+     */
+    long getConnectionAcquireCount();
+
+    /**
+     * 借出连接的平均耗时（毫秒）
+     */
+    double getConnectionAcquireMeanMillis();
+
+    /**
+     * 借出连接的P99耗时（毫秒）
+     */
+    double getConnectionAcquireP99Millis();
+
+    /**
+     * 按累计执行时间排序的各SQL统计，每条一行
+     */
+    String[] getQueryStatistics();
+
+    /**
+     * 统计摘要
+     */
+    String getSummary();
+
+    /**
+     * 清空统计数据
+     */
+    void reset();
+}
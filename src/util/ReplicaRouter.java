@@ -0,0 +1,108 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读副本路由
+ * 为每个副本维护一个连接池，读操作按轮询或最少活动连接选择副本。
+ * 从副本借连接时不等待：连接都已借出的副本只是繁忙，直接尝试下一个副本或主库；
+ * 建立或校验连接失败的副本暂停使用一段时间，期间由其他副本或主库承担读请求。
+ */
+class ReplicaRouter {
+
+    static final String ROUND_ROBIN = "round-robin";
+    static final String LEAST_LOADED = "least-loaded";
+
+    // 副本故障后暂停使用的时间
+    private static final long FAILURE_BACKOFF_MILLIS = 30000;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final boolean leastLoaded;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaRouter(String strategy) {
+        this.leastLoaded = LEAST_LOADED.equalsIgnoreCase(strategy);
+    }
+
+    void addReplica(String name, ConnectionPool pool) {
+        replicas.add(new Replica(name, pool));
+    }
+
+    boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    /**
+     * 从选中的副本借出连接，所有副本都繁忙或不可用时返回null
+     */
+    Connection getConnection() {
+        int size = replicas.size();
+        int start = leastLoaded ? leastLoadedIndex() : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.failedUntil > System.currentTimeMillis()) {
+                continue;
+            }
+            try {
+                Connection conn = replica.pool.tryGetConnection();
+                if (conn != null) {
+                    return conn;
+                }
+            } catch (SQLException e) {
+                // 建立连接可能耗时较长，暂停时间从失败时算起
+                replica.failedUntil = System.currentTimeMillis() + FAILURE_BACKOFF_MILLIS;
+                System.err.println("只读副本" + replica.name + "不可用，暂停使用"
+                        + FAILURE_BACKOFF_MILLIS / 1000 + "秒：" + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 活动连接占比最低的副本
+     */
+    private int leastLoadedIndex() {
+        int best = 0;
+        double bestLoad = Double.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            ConnectionPool pool = replicas.get(i).pool;
+            double load = (double) pool.getActiveCount() / pool.getMaxSize();
+            if (load < bestLoad) {
+                bestLoad = load;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    void close() {
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Replicas{strategy=")
+                .append(leastLoaded ? LEAST_LOADED : ROUND_ROBIN);
+        for (Replica replica : replicas) {
+            sb.append(", ").append(replica.name).append('=').append(replica.pool);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static class Replica {
+        final String name;
+        final ConnectionPool pool;
+        volatile long failedUntil = 0;
+
+        Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+}
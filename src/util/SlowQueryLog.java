@@ -0,0 +1,293 @@
+package util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 慢查询日志
+ * 执行时间超过阈值的SQL连同参数、耗时、调用的DAO方法写入本地滚动日志文件。
+ * 对SELECT/INSERT/UPDATE/DELETE语句会在后台线程另取连接执行EXPLAIN并一起记录，
+ * 写文件和EXPLAIN都不占用业务线程。密码列对应的参数以******代替。
+ */
+public class SlowQueryLog {
+
+    private static final String MASK = "******";
+    private static final int QUEUE_CAPACITY = 200;
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|insert|update|delete|replace)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_COLUMNS = Pattern.compile(
+            "insert\\s+into\\s+\\S+\\s*\\(([^)]*)\\)\\s*values\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PASSWORD_COMPARE = Pattern.compile("password\\s*(=|<>|!=)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdNanos;
+    private final boolean explainEnabled;
+    private final ConnectionProvider connectionProvider;
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final ThreadPoolExecutor writer;
+
+    /**
+     * @param thresholdMillis 慢查询阈值（毫秒）
+     * @param explainEnabled 是否执行EXPLAIN
+     * @param connectionProvider 执行EXPLAIN使用的连接来源
+     * @param fileName 日志文件路径
+     * @param maxFileSize 单个日志文件的最大字节数，超过后滚动
+     * @param maxFiles 保留的日志文件个数（含当前文件）
+     */
+    public SlowQueryLog(long thresholdMillis, boolean explainEnabled, ConnectionProvider connectionProvider,
+                        String fileName, long maxFileSize, int maxFiles) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explainEnabled = explainEnabled;
+        this.connectionProvider = connectionProvider;
+        this.file = Paths.get(fileName);
+        this.maxFileSize = Math.max(1024, maxFileSize);
+        this.maxFiles = Math.max(1, maxFiles);
+        // 单线程按顺序写文件，积压过多时直接丢弃，不拖慢业务线程
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "db-slow-query-log");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * 是否超过慢查询阈值
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * 记录一条慢查询，需在执行SQL的线程上调用以便定位调用方
+     */
+    public void record(String sql, Object[] params, long elapsedNanos) {
+        if (sql == null || sql.trim().toLowerCase(Locale.ROOT).startsWith("explain")) {
+            return;
+        }
+        Entry entry = new Entry(sql, params, elapsedNanos, findCaller(), Thread.currentThread().getName());
+        writer.execute(() -> write(entry));
+    }
+
+    /**
+     * 停止后台线程，已排队的记录会继续写完
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 从调用栈中找出发起查询的DAO方法，BaseDao的通用方法跳过
+     */
+    private static String findCaller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("dao.") && !f.getClassName().startsWith("dao.BaseDao"))
+                .findFirst()
+                .map(f -> f.getClassName() + "." + f.getMethodName() + "(" + f.getFileName() + ":" + f.getLineNumber() + ")")
+                .orElse("未知"));
+    }
+
+    private void write(Entry entry) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("# ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(entry.timestamp)))
+                .append(String.format("  耗时 %.2fms", entry.elapsedNanos / 1_000_000.0))
+                .append("  线程 ").append(entry.threadName).append('\n');
+        sb.append("调用: ").append(entry.caller).append('\n');
+        sb.append("SQL: ").append(entry.sql.replaceAll("\\s+", " ").trim()).append('\n');
+        sb.append("参数: ").append(formatParams(entry.sql, entry.params)).append('\n');
+        if (explainEnabled && EXPLAINABLE.matcher(entry.sql).find()) {
+            sb.append("EXPLAIN:\n").append(explain(entry.sql, entry.params));
+        }
+        sb.append('\n');
+        append(sb.toString());
+    }
+
+    /**
+     * 在单独的连接上执行EXPLAIN，参数与原查询相同
+     */
+    private String explain(String sql, Object[] params) {
+        StringBuilder sb = new StringBuilder();
+        try (Connection conn = connectionProvider.getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = meta.getColumnCount();
+                while (rs.next()) {
+                    sb.append("  ");
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (i > 1) sb.append(", ");
+                        sb.append(meta.getColumnLabel(i)).append('=').append(rs.getObject(i));
+                    }
+                    sb.append('\n');
+                }
+            }
+        } catch (SQLException e) {
+            sb.append("  EXPLAIN失败：").append(e.getMessage()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 格式化参数，密码列对应的参数做掩码处理
+     */
+    static String formatParams(String sql, Object[] params) {
+        if (params == null || params.length == 0) {
+            return "[]";
+        }
+        Set<Integer> masked = passwordParameterIndexes(sql);
+        List<String> values = new ArrayList<>(params.length);
+        for (int i = 0; i < params.length; i++) {
+            Object value = params[i];
+            if (masked.contains(i + 1)) {
+                values.add(MASK);
+            } else if (value instanceof String) {
+                values.add("'" + value + "'");
+            } else {
+                values.add(String.valueOf(value));
+            }
+        }
+        return values.toString();
+    }
+
+    /**
+     * 找出SQL中与password列绑定的占位符序号（从1开始）
+     * 支持 password = ? 形式的条件/赋值和 INSERT 的列清单
+     */
+    static Set<Integer> passwordParameterIndexes(String sql) {
+        Set<Integer> indexes = new HashSet<>();
+        if (!sql.toLowerCase(Locale.ROOT).contains("password")) {
+            return indexes;
+        }
+        int placeholder = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                placeholder++;
+                if (PASSWORD_COMPARE.matcher(sql.substring(0, i)).find()) {
+                    indexes.add(placeholder);
+                }
+            }
+        }
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            String[] values = insert.group(2).split(",");
+            int offset = countPlaceholders(sql.substring(0, insert.start(2)));
+            int index = offset;
+            for (int i = 0; i < values.length && i < columns.length; i++) {
+                if ("?".equals(values[i].trim())) {
+                    index++;
+                    if ("password".equalsIgnoreCase(columns[i].trim().replace("`", ""))) {
+                        indexes.add(index);
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static int countPlaceholders(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '?') count++;
+        }
+        return count;
+    }
+
+    /**
+     * 追加到日志文件，超过大小上限时滚动：slow-query.log -> slow-query.log.1 -> ...
+     */
+    private void append(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (Files.exists(file) && Files.size(file) + bytes.length > maxFileSize) {
+                rotate();
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                out.write(text);
+            }
+        } catch (IOException e) {
+            System.err.println("写入慢查询日志失败：" + e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (maxFiles == 1) {
+            Files.delete(file);
+            return;
+        }
+        Files.deleteIfExists(Paths.get(file + "." + (maxFiles - 1)));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            Path source = Paths.get(file + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 执行EXPLAIN时获取连接的方式
+     */
+    @FunctionalInterface
+    public interface ConnectionProvider {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static class Entry {
+        final long timestamp = System.currentTimeMillis();
+        final String sql;
+        final Object[] params;
+        final long elapsedNanos;
+        final String caller;
+        final String threadName;
+
+        Entry(String sql, Object[] params, long elapsedNanos, String caller, String threadName) {
+            this.sql = sql;
+            this.params = params;
+            this.elapsedNanos = elapsedNanos;
+            this.caller = caller;
+            this.threadName = threadName;
+        }
+    }
+}
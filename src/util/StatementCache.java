@@ -0,0 +1,67 @@
+package util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个物理连接上的PreparedStatement缓存
+ * 以SQL文本为键，按最近最少使用淘汰。只保存空闲语句，借出的语句在归还前不在缓存中，
+ * 因此同一SQL在同一连接上被同时使用时各自拿到独立的语句。
+ */
+class StatementCache {
+
+    private final Map<String, PreparedStatement> idleStatements;
+
+    StatementCache(int maxSize) {
+        this.idleStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 取出缓存的语句，没有时返回null
+     */
+    synchronized PreparedStatement take(String key) {
+        return idleStatements.remove(key);
+    }
+
+    /**
+     * 归还语句，已有同键语句时关闭多余的一个
+     */
+    synchronized void offer(String key, PreparedStatement statement) {
+        if (idleStatements.containsKey(key)) {
+            closeQuietly(statement);
+        } else {
+            idleStatements.put(key, statement);
+        }
+    }
+
+    /**
+     * 关闭并清空所有缓存的语句
+     */
+    synchronized void clear() {
+        for (PreparedStatement statement : idleStatements.values()) {
+            closeQuietly(statement);
+        }
+        idleStatements.clear();
+    }
+
+    synchronized int size() {
+        return idleStatements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {}
+    }
+}
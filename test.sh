@@ -0,0 +1,22 @@
+#!/bin/bash
+
+echo ""
+echo "========================================"
+echo "   学生信息管理系统 - 运行测试"
+echo "========================================"
+echo ""
+
+# 检查编译输出
+if [ ! -d "out-test" ]; then
+    echo "[ERROR] 请先运行 ./download_libs.sh 下载测试依赖，再运行 ./compile.sh 编译项目！"
+    exit 1
+fi
+
+# out-test在前，使测试用的db.properties（内存H2库）优先于resources中的配置
+CLASSPATH="out-test:out"
+for jar in lib/*.jar lib/test/*.jar; do
+    CLASSPATH="$CLASSPATH:$jar"
+done
+
+java -Dfile.encoding=UTF-8 -jar lib/test/junit-platform-console-standalone-*.jar \
+     execute --class-path "$CLASSPATH" --scan-class-path out-test --disable-banner
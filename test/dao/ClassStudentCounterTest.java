@@ -0,0 +1,43 @@
+package dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事务中加载的班级人数不放入缓存，回滚后不会留下未提交的学生
+ * 使用test-resources/db.properties配置的内存H2库
+ */
+class ClassStudentCounterTest {
+
+    private final ClassStudentCounter counter = ClassStudentCounter.getInstance();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS tb_score");
+            stmt.execute("DROP TABLE IF EXISTS tb_student");
+            stmt.execute("CREATE TABLE tb_student (id INT PRIMARY KEY, class_id INT)");
+            stmt.execute("INSERT INTO tb_student VALUES (1, 1), (2, 1)");
+        }
+        ClassStudentCounter.changed();
+    }
+
+    @Test
+    void countsLoadedInRolledBackTransactionAreNotCached() throws SQLException {
+        assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            try (Statement stmt = DBUtil.getConnection().createStatement()) {
+                stmt.execute("INSERT INTO tb_student VALUES (3, 1)");
+            }
+            assertEquals(3, counter.getCount(1));
+            throw new SQLException("rollback");
+        }));
+        assertEquals(2, counter.getCount(1));
+    }
+}
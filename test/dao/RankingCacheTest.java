@@ -0,0 +1,50 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排名缓存的命中与过期
+ */
+class RankingCacheTest {
+
+    @Test
+    void expiredRankingIsRecomputed() throws Exception {
+        RankingCache cache = new RankingCache(10, 200);
+        RankingScope scope = RankingScope.gpaInClass(1);
+        AtomicInteger loads = new AtomicInteger();
+        QueryResultCache.Loader<Ranking> loader = () -> {
+            loads.incrementAndGet();
+            return Ranking.of(new int[] {1, 2}, new double[] {3.5, 2.0}, 2, 100);
+        };
+
+        Ranking first = cache.get(scope, loader);
+        assertSame(first, cache.get(scope, loader));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(300);
+        assertNotSame(first, cache.get(scope, loader));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void zeroEntriesDisablesCaching() throws SQLException {
+        RankingCache cache = new RankingCache(0, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        QueryResultCache.Loader<Ranking> loader = () -> {
+            loads.incrementAndGet();
+            return Ranking.of(new int[0], new double[0], 0, 100);
+        };
+
+        cache.get(RankingScope.gpa(), loader);
+        cache.get(RankingScope.gpa(), loader);
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+}
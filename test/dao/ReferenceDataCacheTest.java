@@ -0,0 +1,42 @@
+package dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事务中加载的基础数据不放入缓存，回滚后不会留下未提交的行
+ * 使用test-resources/db.properties配置的内存H2库
+ */
+class ReferenceDataCacheTest {
+
+    private final ReferenceDataCache cache = ReferenceDataCache.getInstance();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS tb_teacher");
+            stmt.execute("CREATE TABLE tb_teacher (id INT PRIMARY KEY, teacher_no VARCHAR(20), name VARCHAR(50))");
+            stmt.execute("INSERT INTO tb_teacher VALUES (1, 'T001', '张老师')");
+        }
+        cache.invalidateAll();
+    }
+
+    @Test
+    void snapshotLoadedInRolledBackTransactionIsNotCached() throws SQLException {
+        assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            try (Statement stmt = DBUtil.getConnection().createStatement()) {
+                stmt.execute("INSERT INTO tb_teacher VALUES (2, 'T002', '李老师')");
+            }
+            assertEquals(2, cache.getTeachers().size());
+            throw new SQLException("rollback");
+        }));
+        assertEquals(1, cache.getTeachers().size());
+    }
+}
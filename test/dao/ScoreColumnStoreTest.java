@@ -0,0 +1,198 @@
+package dao;
+
+import entity.Score;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ScoreDao的写操作按行增量更新列式存储，不触发整体重新加载
+ * 使用test-resources/db.properties配置的内存H2库
+ */
+class ScoreColumnStoreTest {
+
+    private static final double[] BOUNDARIES = ScoreStatistics.DEFAULT_BOUNDARIES;
+
+    private final ScoreDao scoreDao = new ScoreDao();
+    private final ScoreColumnStore store = ScoreColumnStore.getInstance();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS tb_score");
+            stmt.execute("DROP TABLE IF EXISTS tb_course");
+            stmt.execute("DROP TABLE IF EXISTS tb_student");
+            stmt.execute("CREATE TABLE tb_student (id INT PRIMARY KEY, class_id INT)");
+            stmt.execute("CREATE TABLE tb_course (id INT PRIMARY KEY, credit DECIMAL(3,1))");
+            stmt.execute("CREATE TABLE tb_score (id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "student_id INT NOT NULL, course_id INT NOT NULL, score DECIMAL(5,2), "
+                    + "exam_type VARCHAR(4) DEFAULT '期末', exam_date DATE, recorder_id INT, "
+                    + "UNIQUE (student_id, course_id, exam_type))");
+            stmt.execute("INSERT INTO tb_student VALUES (1, 1), (2, 1), (3, 2), (4, 2)");
+            stmt.execute("INSERT INTO tb_course VALUES (1, 4.0), (2, 2.0)");
+            stmt.execute("INSERT INTO tb_score (student_id, course_id, score, exam_type) VALUES "
+                    + "(1, 1, 90, '期末'), (2, 1, 70, '期末'), (3, 1, 50, '期末'), (1, 2, 80, '期末')");
+        }
+        store.clear();
+        assertEquals(3, store.getCourseStatistics(1, BOUNDARIES).getTotalCount());
+    }
+
+    @Test
+    void singleWritesApplyWithoutReload() throws SQLException {
+        long loads = store.getLoadCount();
+
+        Score added = score(4, 1, 60.0, "期末");
+        added.setId(scoreDao.insert(added));
+        assertStatistics(1, 4, 67.5);
+
+        added.setScore(100.0);
+        scoreDao.update(added);
+        assertStatistics(1, 4, 77.5);
+
+        scoreDao.delete(added.getId());
+        assertStatistics(1, 3, 70.0);
+        assertEquals(loads, store.getLoadCount());
+    }
+
+    @Test
+    void batchInsertAndUpsertApplyWithoutReload() throws SQLException {
+        long loads = store.getLoadCount();
+
+        scoreDao.insertBatch(new ArrayList<>(Arrays.asList(score(4, 1, 60.0, "期末"), score(2, 2, 60.0, "期末"))));
+        assertStatistics(1, 4, 67.5);
+        assertStatistics(2, 2, 70.0);
+
+        // 一行覆盖已有成绩，一行空分数保留原值，一行新增
+        scoreDao.upsertBatch(Arrays.asList(score(1, 1, 100.0, "期末"), score(2, 1, null, "期末"),
+                score(3, 2, 40.0, "期末")));
+        assertStatistics(1, 4, 70.0);
+        assertStatistics(2, 3, 60.0);
+        assertEquals(0.0, store.getStudentGpa(3), 1e-9);
+        assertEquals(loads, store.getLoadCount());
+        assertMatchesReload();
+    }
+
+    @Test
+    void transactionalWritesApplyOnCommitOnly() throws SQLException {
+        long loads = store.getLoadCount();
+
+        assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            scoreDao.upsertBatch(Arrays.asList(score(4, 1, 10.0, "期末")));
+            throw new SQLException("rollback");
+        }));
+        assertStatistics(1, 3, 70.0);
+
+        DBUtil.inTransaction(() -> {
+            scoreDao.upsertBatch(Arrays.asList(score(4, 1, 10.0, "期末"), score(1, 1, 50.0, "期末")));
+            // 提交前不改变存储
+            assertEquals(3, store.getCourseStatistics(1, BOUNDARIES).getTotalCount());
+            return null;
+        });
+        assertStatistics(1, 4, 45.0);
+        assertEquals(loads, store.getLoadCount());
+        assertMatchesReload();
+    }
+
+    @Test
+    void reloadsAfterIntervalToPickUpExternalWrites() throws Exception {
+        ScoreColumnStore reloading = new ScoreColumnStore(500);
+        assertEquals(3, reloading.getCourseStatistics(1, BOUNDARIES).getTotalCount());
+        long loads = reloading.getLoadCount();
+
+        // 绕过ScoreDao直接写库，相当于其他客户端的修改
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO tb_score (student_id, course_id, score, exam_type) VALUES (4, 1, 60, '期末')");
+        }
+        assertEquals(3, reloading.getCourseStatistics(1, BOUNDARIES).getTotalCount());
+
+        Thread.sleep(600);
+        assertEquals(4, reloading.getCourseStatistics(1, BOUNDARIES).getTotalCount());
+        assertEquals(loads + 1, reloading.getLoadCount());
+    }
+
+    @Test
+    void outOfRangeScoresMatchSql() throws SQLException {
+        // DECIMAL(5,2)没有CHECK约束，其他客户端或旧数据可能写入0-100分之外的值
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO tb_score (student_id, course_id, score, exam_type) VALUES "
+                    + "(4, 1, 150, '期末'), (4, 2, -0.01, '期末'), (3, 2, 400, '期末')");
+        }
+        store.clear();
+        assertStatistics(1, 4, 90.0);
+        ScoreStatistics stats = store.getCourseStatistics(1, BOUNDARIES);
+        assertEquals(150.0, stats.getMaxScore(), 1e-9);
+        assertEquals(3, stats.getPassCount());
+        assertEquals(2, stats.getBucketCounts()[stats.getBucketCounts().length - 1]);
+
+        // -0.01不是未录入分数
+        stats = store.getCourseStatistics(2, BOUNDARIES);
+        assertEquals(3, stats.getScoredCount());
+        assertEquals(-0.01, stats.getMinScore(), 1e-9);
+        assertEquals(400.0, stats.getMaxScore(), 1e-9);
+        assertEquals(1, stats.getBucketCounts()[0]);
+
+        // 高于100分的绩点同100分，低于0分的为0：学生4为(4.0×4 + 0×2) / 6
+        assertEquals(16.0 / 6, store.getStudentGpa(4), 1e-9);
+        assertEquals(Map.of(1, 100.0, 2, 199.995), store.getClassCourseAverages(2));
+
+        // 增量更新进出直方图范围
+        long loads = store.getLoadCount();
+        Score score = score(4, 1, 60.0, "期末");
+        try (Connection conn = DBUtil.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM tb_score WHERE student_id = 4 AND course_id = 1")) {
+            rs.next();
+            score.setId(rs.getInt(1));
+        }
+        scoreDao.update(score);
+        assertStatistics(1, 4, 67.5);
+        score.setScore(999.99);
+        scoreDao.update(score);
+        assertEquals(999.99, store.getCourseStatistics(1, BOUNDARIES).getMaxScore(), 1e-9);
+        assertEquals(loads, store.getLoadCount());
+        assertMatchesReload();
+    }
+
+    private void assertStatistics(int courseId, int count, double average) throws SQLException {
+        ScoreStatistics stats = store.getCourseStatistics(courseId, BOUNDARIES);
+        assertEquals(count, stats.getTotalCount());
+        assertEquals(average, stats.getAverageScore(), 1e-9);
+    }
+
+    /**
+     * 增量更新后的结果与重新加载的结果一致
+     */
+    private void assertMatchesReload() throws SQLException {
+        String incremental = describe();
+        store.clear();
+        assertEquals(describe(), incremental);
+    }
+
+    private String describe() throws SQLException {
+        StringBuilder result = new StringBuilder();
+        for (ScoreStatistics stats : store.getAllCourseStatistics(BOUNDARIES).values()) {
+            result.append(stats.getCourseId()).append(':').append(stats.getTotalCount()).append('/')
+                    .append(stats.getScoredCount()).append('/').append(stats.getAverageScore())
+                    .append(Arrays.toString(stats.getBucketCounts())).append(';');
+        }
+        result.append(store.getClassCourseAverages(1)).append(store.getClassCourseAverages(2));
+        result.append(store.getStudentGpas(Arrays.asList(1, 2)));
+        return result.toString();
+    }
+
+    private static Score score(int studentId, int courseId, Double value, String examType) {
+        Score score = new Score(studentId, courseId, value);
+        score.setExamType(examType);
+        return score;
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 归还的连接恢复建立时的会话状态，下一个借用者不受影响
+ */
+class ConnectionPoolTest {
+
+    private final ConnectionPool pool = new ConnectionPool(
+            "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1", "sa", "", 0, 1, 2000, 60000, 0, 2, 0);
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void releaseRestoresSessionState() throws SQLException {
+        boolean readOnly;
+        int isolation;
+        String catalog;
+        try (Connection conn = pool.getConnection()) {
+            readOnly = conn.isReadOnly();
+            isolation = conn.getTransactionIsolation();
+            catalog = conn.getCatalog();
+            conn.setReadOnly(true);
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            conn.setAutoCommit(false);
+        }
+
+        // 连接池只有一个连接，再次借出的是同一个物理连接
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(readOnly, conn.isReadOnly());
+            assertEquals(isolation, conn.getTransactionIsolation());
+            assertEquals(catalog, conn.getCatalog());
+            assertTrue(conn.getAutoCommit());
+        }
+        assertEquals(1, pool.getTotalCount());
+    }
+}
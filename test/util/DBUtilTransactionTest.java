@@ -0,0 +1,169 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DBUtil线程绑定事务的嵌套、仅回滚和事务后操作语义
+ * 使用test-resources/db.properties配置的内存H2库
+ */
+class DBUtilTransactionTest {
+
+    // 与test-resources/db.properties中的库相同，用独立连接观察其他会话能看到的数据
+    private static final String URL = "jdbc:h2:mem:student_management;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection observer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        observer = DriverManager.getConnection(URL, "sa", "");
+        try (Statement stmt = observer.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS tx_test");
+            stmt.execute("CREATE TABLE tx_test (id INT PRIMARY KEY)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        DBUtil.closeConnection();
+        observer.close();
+    }
+
+    @Test
+    void nestedScopeJoinsOuterTransaction() throws SQLException {
+        DBUtil.inTransaction(() -> {
+            Connection outer = DBUtil.getConnection();
+            insert(1);
+            DBUtil.inTransaction(() -> {
+                assertSame(outer, DBUtil.getConnection());
+                insert(2);
+                return null;
+            });
+            // 内层提交不会真正提交，其他会话仍看不到
+            assertEquals(0, committedRows());
+            assertTrue(DBUtil.isInTransaction());
+            return null;
+        });
+        assertEquals(2, committedRows());
+        assertFalse(DBUtil.isInTransaction());
+    }
+
+    @Test
+    void innerFailureMarksOuterRollbackOnly() throws SQLException {
+        SQLException failure = assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            insert(1);
+            try {
+                DBUtil.inTransaction(() -> {
+                    insert(2);
+                    throw new SQLException("inner failure");
+                });
+            } catch (SQLException e) {
+                // 外层吞掉内层异常后仍不能提交
+            }
+            insert(3);
+            return null;
+        }));
+        assertTrue(failure.getMessage().contains("仅回滚"));
+        assertEquals(0, committedRows());
+        assertFalse(DBUtil.isInTransaction());
+    }
+
+    @Test
+    void setRollbackOnlyRollsBackOutermostCommit() throws SQLException {
+        DBUtil.beginTransaction();
+        insert(1);
+        DBUtil.setRollbackOnly();
+        assertThrows(SQLException.class, DBUtil::commit);
+        assertEquals(0, committedRows());
+        assertFalse(DBUtil.isInTransaction());
+    }
+
+    @Test
+    void afterTransactionRunsOnlyOnCommit() throws SQLException {
+        List<String> events = new ArrayList<>();
+
+        DBUtil.inTransaction(() -> {
+            DBUtil.inTransaction(() -> {
+                DBUtil.afterTransaction(() -> events.add("committed"));
+                return null;
+            });
+            // 内层结束时不执行，等最外层提交
+            assertTrue(events.isEmpty());
+            return null;
+        });
+        assertEquals(List.of("committed"), events);
+
+        events.clear();
+        assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            DBUtil.afterTransaction(() -> events.add("rolled back"));
+            throw new SQLException("failure");
+        }));
+        DBUtil.beginTransaction();
+        DBUtil.afterTransaction(() -> events.add("rollback-only"));
+        DBUtil.setRollbackOnly();
+        assertThrows(SQLException.class, DBUtil::commit);
+        assertTrue(events.isEmpty());
+
+        // 不在事务中时立即执行
+        DBUtil.afterTransaction(() -> events.add("immediate"));
+        assertEquals(List.of("immediate"), events);
+    }
+
+    @Test
+    void connectionReleasedWhenOutermostScopeEnds() throws SQLException {
+        int before = DBUtil.getActiveConnectionCount();
+        DBUtil.inTransaction(() -> {
+            assertEquals(before + 1, DBUtil.getActiveConnectionCount());
+            DBUtil.inTransaction(() -> {
+                insert(1);
+                return null;
+            });
+            // 内层结束时连接仍绑定在外层事务上
+            assertEquals(before + 1, DBUtil.getActiveConnectionCount());
+            assertFalse(DBUtil.getConnection().isClosed());
+            return null;
+        });
+        assertEquals(before, DBUtil.getActiveConnectionCount());
+
+        assertThrows(SQLException.class, () -> DBUtil.inTransaction(() -> {
+            DBUtil.inTransaction(() -> {
+                throw new SQLException("failure");
+            });
+            return null;
+        }));
+        assertEquals(before, DBUtil.getActiveConnectionCount());
+        assertFalse(DBUtil.isInTransaction());
+    }
+
+    private static void insert(int id) throws SQLException {
+        Connection conn = DBUtil.getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = conn.prepareStatement("INSERT INTO tx_test (id) VALUES (?)");
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+        } finally {
+            DBUtil.close(null, pstmt, conn);
+        }
+    }
+
+    private int committedRows() throws SQLException {
+        try (Statement stmt = observer.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM tx_test")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 副本繁忙时不等待也不暂停使用，连接失败时跳到下一个副本
+ */
+class ReplicaRouterTest {
+
+    private static final String URL = "jdbc:h2:mem:replica_test;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private final ReplicaRouter router = new ReplicaRouter(ReplicaRouter.ROUND_ROBIN);
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+    }
+
+    @Test
+    void busyReplicaIsSkippedWithoutBackoff() throws SQLException {
+        router.addReplica("replica1", pool(URL, 5000));
+        Connection held = router.getConnection();
+        assertNotNull(held);
+
+        // 连接池已满：立即返回null由主库承担，不等待借出超时
+        long start = System.currentTimeMillis();
+        assertNull(router.getConnection());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        // 只是繁忙，归还后马上可以再用
+        held.close();
+        try (Connection conn = router.getConnection()) {
+            assertNotNull(conn);
+        }
+    }
+
+    @Test
+    void unreachableReplicaFallsThroughToNext() throws SQLException {
+        router.addReplica("broken", pool("jdbc:h2:tcp://127.0.0.1:1/missing", 5000));
+        router.addReplica("replica1", pool(URL, 5000));
+        for (int i = 0; i < 4; i++) {
+            try (Connection conn = router.getConnection()) {
+                assertNotNull(conn);
+                assertTrue(conn.getMetaData().getURL().startsWith("jdbc:h2:mem:replica_test"));
+            }
+        }
+    }
+
+    private static ConnectionPool pool(String url, long borrowTimeoutMillis) {
+        return new ConnectionPool(url, "sa", "", 0, 1, borrowTimeoutMillis, 60000, 0, 2, 0);
+    }
+}